@@ -11,20 +11,42 @@
 package org.mule.module.facebook;
 
 import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.imageio.ImageIO;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.UriBuilder;
 
 import org.apache.commons.lang.ArrayUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.node.JsonNodeFactory;
+import org.codehaus.jackson.node.ObjectNode;
+import org.mule.api.MuleContext;
 import org.mule.api.annotations.Configurable;
 import org.mule.api.annotations.Module;
 import org.mule.api.annotations.Processor;
+import org.mule.api.annotations.Source;
+import org.mule.api.annotations.lifecycle.Start;
+import org.mule.api.annotations.lifecycle.Stop;
 import org.mule.api.annotations.oauth.OAuth2;
 import org.mule.api.annotations.oauth.OAuthAccessToken;
 import org.mule.api.annotations.oauth.OAuthConsumerKey;
@@ -32,6 +54,57 @@ import org.mule.api.annotations.oauth.OAuthConsumerSecret;
 import org.mule.api.annotations.oauth.OAuthScope;
 import org.mule.api.annotations.param.Default;
 import org.mule.api.annotations.param.Optional;
+import org.mule.api.callback.SourceCallback;
+import org.mule.api.config.MuleProperties;
+import org.mule.api.context.MuleContextAware;
+import org.mule.api.store.ObjectStore;
+import org.mule.api.store.ObjectStoreManager;
+import org.mule.module.facebook.cache.CacheSnapshotter;
+import org.mule.module.facebook.cache.CacheStatistics;
+import org.mule.module.facebook.cache.InMemoryResponseCache;
+import org.mule.module.facebook.cache.LocalResponseCache;
+import org.mule.module.facebook.cache.NegativeCache;
+import org.mule.module.facebook.cache.ObjectStoreResponseCache;
+import org.mule.module.facebook.cache.OffHeapResponseCache;
+import org.mule.module.facebook.cache.ReadCache;
+import org.mule.module.facebook.cache.SearchNormalizer;
+import org.mule.module.facebook.cache.TieredResponseCache;
+import org.mule.module.facebook.cache.ResponseCache;
+import org.mule.module.facebook.checkpoint.Checkpoint;
+import org.mule.module.facebook.checkpoint.CheckpointStore;
+import org.mule.module.facebook.checkpoint.ConnectionCheckpoints;
+import org.mule.module.facebook.checkpoint.FileCheckpointStore;
+import org.mule.module.facebook.checkpoint.ObjectStoreCheckpointStore;
+import org.mule.module.facebook.codec.BinaryCodec;
+import org.mule.module.facebook.dedup.Deduplicator;
+import org.mule.module.facebook.export.ExportStatistics;
+import org.mule.module.facebook.export.NdjsonExporter;
+import org.mule.module.facebook.graph.CsrGraph;
+import org.mule.module.facebook.graph.FriendGraphCrawler;
+import org.mule.module.facebook.graph.FriendSource;
+import org.mule.module.facebook.http.ConnectionWarmer;
+import org.mule.module.facebook.http.FacebookClientFactory;
+import org.mule.module.facebook.http.GraphUris;
+import org.mule.module.facebook.http.HttpTransport;
+import org.mule.module.facebook.http.RequestHedger;
+import org.mule.module.facebook.http.RequestTimeouts;
+import org.mule.module.facebook.insights.InsightRollup;
+import org.mule.module.facebook.insights.InsightValues;
+import org.mule.module.facebook.insights.InsightVisitor;
+import org.mule.module.facebook.insights.InsightsFileWriter;
+import org.mule.module.facebook.insights.RollupBucket;
+import org.mule.module.facebook.insights.RollupPeriod;
+import org.mule.module.facebook.intern.IdInterner;
+import org.mule.module.facebook.lazy.LazyJsonArray;
+import org.mule.module.facebook.lazy.LazyJsonObject;
+import org.mule.module.facebook.overlay.WriteOverlay;
+import org.mule.module.facebook.paging.ConnectionPage;
+import org.mule.module.facebook.realtime.RealtimeUpdatesReceiver;
+import org.mule.module.facebook.realtime.UpdateListener;
+import org.mule.module.facebook.source.WatermarkTracker;
+import org.mule.module.facebook.sync.DeltaType;
+import org.mule.module.facebook.sync.PostDelta;
+import org.mule.module.facebook.sync.SyncState;
 import org.mule.module.facebook.types.GetApplicationTaggedResponseType;
 import org.mule.module.facebook.types.GetUserAccountResponseType;
 import org.mule.module.facebook.types.Member;
@@ -60,6 +133,7 @@ import com.restfb.types.StatusMessage;
 import com.restfb.types.User;
 import com.restfb.types.Video;
 import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.UniformInterfaceException;
 import com.sun.jersey.api.client.WebResource;
 import com.sun.jersey.api.client.filter.LoggingFilter;
 import com.sun.jersey.api.representation.Form;
@@ -74,12 +148,21 @@ import com.sun.jersey.multipart.FormDataMultiPart;
 @Module(name = "facebook", schemaVersion = "2.0")
 @OAuth2(accessTokenUrl = "https://graph.facebook.com/oauth/access_token", authorizationUrl = "https://graph.facebook.com/oauth/authorize",
         accessTokenRegex = "access_token=([^&]+?)&", expirationRegex = "expires_in=([^&]+?)$")
-public class FacebookConnector
+public class FacebookConnector implements MuleContextAware
 {
 
+    private static final Log LOGGER = LogFactory.getLog(FacebookConnector.class);
+
     private static String FACEBOOK_URI = "https://graph.facebook.com";
     private static String ACCESS_TOKEN_QUERY_PARAM_NAME = "access_token";
     private static JsonMapper mapper = new DefaultJsonMapper();
+    private static int CACHE_REFRESH_THREADS = 4;
+    private static Set<String> PAGING_PARAMETERS = new HashSet<String>(Arrays.asList(ACCESS_TOKEN_QUERY_PARAM_NAME,
+        "since", "until", "limit", "offset", "after", "before", "__paging_token"));
+    private static int OFF_HEAP_BLOCK_SIZE = 512;
+    private static int MAX_ROLLUPS = 64;
+    private static int OBJECT_STORE_EXPIRATION_INTERVAL = 60000;
+    private static String WARM_UP_JSON = "{\"id\":\"0\",\"name\":\"warm-up\",\"created_time\":\"2012-01-01T00:00:00+0000\",\"from\":{\"id\":\"0\",\"name\":\"warm-up\"}}";
 
     /**
      * The application identifier as registered with Facebook
@@ -105,19 +188,947 @@ public class FacebookConnector
     private String scope;
 
     /**
-     * Jersey client
+     * The HTTP transport used to talk to the Graph API. URL_CONNECTION opens a
+     * connection per in-flight request while POOLED shares a bounded pool of
+     * persistent connections between all the concurrent requests.
+     */
+    @Configurable
+    @Optional
+    @Default(value = "URL_CONNECTION")
+    private HttpTransport transport;
+
+    /**
+     * The maximum number of connections the POOLED transport keeps open to
+     * graph.facebook.com
+     */
+    @Configurable
+    @Optional
+    @Default(value = "20")
+    private int maxConnections;
+
+    /**
+     * The number of connections to graph.facebook.com to open when the connector
+     * starts, in the background, so the first requests don't pay for DNS
+     * resolution and TLS handshakes. Zero disables the connection warm-up. Only
+     * the POOLED transport is warmed up, with at most maxConnections connections,
+     * since the others do not keep the connections opened for later requests.
+     */
+    @Configurable
+    @Optional
+    @Default(value = "0")
+    private int warmUpConnections;
+
+    /**
+     * The timeout in milliseconds for establishing a connection to the Graph API.
+     * Zero means infinite. It can be overridden for a single processor by setting
+     * the facebook.connectTimeout invocation property.
+     */
+    @Configurable
+    @Optional
+    @Default(value = "10000")
+    private int connectTimeout = 10000;
+
+    /**
+     * The timeout in milliseconds for waiting for data from the Graph API. Zero
+     * means infinite. It can be overridden for a single processor by setting the
+     * facebook.readTimeout invocation property.
+     */
+    @Configurable
+    @Optional
+    @Default(value = "60000")
+    private int readTimeout = 60000;
+
+    /**
+     * The overall time budget in milliseconds given to events that reach the
+     * connector without a deadline. Every request issued on behalf of the event
+     * shares it and none is sent once it has been spent. Zero means no budget.
+     */
+    @Configurable
+    @Optional
+    @Default(value = "0")
+    private long requestTimeout;
+
+    /**
+     * Whether to hedge the reads that are slower than usual: once a read has taken
+     * longer than the hedgePercentile latency, a duplicate request is sent and the
+     * first response to arrive is used.
+     */
+    @Configurable
+    @Optional
+    @Default(value = "false")
+    private boolean hedgeReads;
+
+    /**
+     * The percentile of the recent read latencies after which a read is hedged
+     */
+    @Configurable
+    @Optional
+    @Default(value = "95")
+    private int hedgePercentile;
+
+    /**
+     * The minimum delay in milliseconds before a read is hedged
+     */
+    @Configurable
+    @Optional
+    @Default(value = "50")
+    private long hedgeMinDelay;
+
+    /**
+     * The maximum percentage of reads that can be hedged
+     */
+    @Configurable
+    @Optional
+    @Default(value = "5")
+    private int hedgeBudget;
+
+    /**
+     * Whether to drop the posts and comments that have already been returned by a
+     * previous read of the same connection with the same access token before
+     * decoding them. Items are identified by their id and update time, so an item
+     * that changed is returned again.
+     */
+    @Configurable
+    @Optional
+    @Default(value = "false")
+    private boolean deduplicate;
+
+    /**
+     * The number of items remembered by each of the two generations of the
+     * deduplication filter. Once the current generation is full, the oldest one
+     * is forgotten.
+     */
+    @Configurable
+    @Optional
+    @Default(value = "1000000")
+    private int deduplicationCapacity;
+
+    /**
+     * The probability of a new item being wrongly dropped as already seen
+     */
+    @Configurable
+    @Optional
+    @Default(value = "0.0001")
+    private double deduplicationFalsePositiveRate;
+
+    /**
+     * The file the deduplication filter is saved to when the connector stops and
+     * loaded from when it starts. If not set, the filter is not persisted.
+     */
+    @Configurable
+    @Optional
+    private String deduplicationFile;
+
+    /**
+     * Whether connection reads resume from their checkpoint. While a read of a
+     * connection has more pages, the next read of the connection resumes from the
+     * paging cursor of its paging.next link, without its access token; once its
+     * last page has been read, the creation time of the newest item read replaces
+     * the since parameter of the following reads, so nothing is read twice or
+     * missed across restarts.
+     */
+    @Configurable
+    @Optional
+    @Default(value = "false")
+    private boolean resumeFromCheckpoint;
+
+    /**
+     * The file checkpoints and polling watermarks are kept in when no Mule object
+     * store is available. Defaults to a file in the working directory of the Mule
+     * application, or in the home directory of the user outside of Mule.
+     */
+    @Configurable
+    @Optional
+    private String checkpointFile;
+
+    /**
+     * Whether the identical ids of the objects of a list response share a single
+     * String instance, which cuts the memory retained by big lists such as group
+     * members or comments
+     */
+    @Configurable
+    @Optional
+    @Default(value = "false")
+    private boolean internIds;
+
+    /**
+     * Whether the responses of the reads made by the processors are cached. Writes
+     * invalidate the cached reads of the object they write, and of the post or
+     * owner its id is made of, identified by the id or alias the write uses: a write through me does not invalidate the reads
+     * made through the numeric id of the user, and a published photo only
+     * invalidates the reads of its album.
+     */
+    @Configurable
+    @Optional
+    @Default(value = "false")
+    private boolean cacheReads;
+
+    /**
+     * How long a cached response is served, in milliseconds
+     */
+    @Configurable
+    @Optional
+    @Default(value = "60000")
+    private long cacheTtl;
+
+    /**
+     * How long, in milliseconds, a cached response is still served once its
+     * time to live has passed: right away while it is refreshed in the
+     * background, and instead of the error when the refresh fails. 0 never
+     * serves stale responses.
+     */
+    @Configurable
+    @Optional
+    @Default(value = "0")
+    private long cacheStaleTtl;
+
+    /**
+     * Whether the responses are cached in an object store of Mule, shared by the
+     * nodes of a cluster, rather than in the memory of the connector. The store
+     * holds the deflated JSON of the responses and is bounded by cacheMaxEntries
+     * and by cacheTtl plus cacheStaleTtl.
+     */
+    @Configurable
+    @Optional
+    @Default(value = "true")
+    private boolean sharedCache;
+
+    /**
+     * The maximum number of responses cached in the memory of the connector or in
+     * the shared object store
+     */
+    @Configurable
+    @Optional
+    @Default(value = "10000")
+    private int cacheMaxEntries;
+
+    /**
+     * The number of bytes of memory outside of the heap the responses cached by
+     * the connector may take. When set, only the hotCacheEntries most recently
+     * used responses are kept on the heap. 0 keeps every response on the heap.
+     */
+    @Configurable
+    @Optional
+    @Default(value = "0")
+    private long offHeapCacheSize;
+
+    /**
+     * The number of most recently used responses kept on the heap in front of the
+     * off-heap cache. Only used when offHeapCacheSize is set.
+     */
+    @Configurable
+    @Optional
+    @Default(value = "256")
+    private int hotCacheEntries;
+
+    /**
+     * The length, in milliseconds, of the buckets search results are cached for.
+     * Searches are normalized and their relative since and until snapped to the
+     * start and the end of their bucket, so identical searches inside a bucket
+     * are served from memory. 0 disables the search cache.
+     */
+    @Configurable
+    @Optional
+    @Default(value = "0")
+    private long searchCacheBucket;
+
+    /**
+     * A local file the in-memory caches are periodically written to, and
+     * reloaded from when the connector starts. Not set, the caches start empty.
+     */
+    @Configurable
+    @Optional
+    private String cacheSnapshotFile;
+
+    /**
+     * The time between two snapshots of the caches, in milliseconds
+     */
+    @Configurable
+    @Optional
+    @Default(value = "60000")
+    private long cacheSnapshotInterval;
+
+    /**
+     * How long, in milliseconds, the reads that failed because what they read
+     * does not exist or the access token may not see it keep failing without a
+     * request: every read of an object that does not exist, only the reads of the
+     * same path otherwise. 0 disables the negative cache.
+     */
+    @Configurable
+    @Optional
+    @Default(value = "0")
+    private long negativeCacheTtl;
+
+    /**
+     * How long, in milliseconds, the messages and comments published by the
+     * connector are added to the reads of the feed or comments they were
+     * published to, until Graph returns them. Messages are only added to the
+     * reads made with the same access token; comments, seen by whoever may read
+     * their post, to the reads made with any token or none. Either is only added
+     * to the first page of reads whose until is not in the past, so not to reads
+     * with the default until of yesterday. 0 disables it.
+     */
+    @Configurable
+    @Optional
+    @Default(value = "0")
+    private long readYourWritesTtl;
+
+    /**
+     * Timeouts applied to each request
+     */
+    private RequestTimeouts timeouts;
+
+    /**
+     * Filter of the already seen items, only set when deduplication is enabled
+     */
+    private Deduplicator deduplicator;
+
+    /**
+     * Hedger for the reads, only set when hedging is enabled
+     */
+    private RequestHedger hedger;
+
+    /**
+     * Watermarks of the polled connections
+     */
+    private WatermarkTracker watermarks = new WatermarkTracker();
+
+    /**
+     * Checkpoints of the connection reads, only set when resuming from them is
+     * enabled
+     */
+    private ConnectionCheckpoints checkpoints;
+
+    /**
+     * Cache of the reads, only set when caching is enabled
+     */
+    private ReadCache readCache;
+
+    /**
+     * Cache of the failed reads, only set when negative caching is enabled
+     */
+    private NegativeCache negativeCache;
+
+    /**
+     * Cache of the search results, only set when search caching is enabled
+     */
+    private ReadCache searchCache;
+
+    /**
+     * Writes and reloads the caches, only set when a snapshot file is configured
+     */
+    private CacheSnapshotter snapshotter;
+
+    /**
+     * The recently published objects, only set when read your writes is enabled
+     */
+    private WriteOverlay overlay;
+
+    /**
+     * Rollups of the application insights, by application, period and sizes; the
+     * least recently used is dropped beyond MAX_ROLLUPS
+     */
+    private Map<String, InsightRollup> rollups = new LinkedHashMap<String, InsightRollup>(16, 0.75f, true)
+    {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, InsightRollup> eldest)
+        {
+            return size() > MAX_ROLLUPS;
+        }
+    };
+
+    /**
+     * The locks of the pages being synchronized
+     */
+    private ConcurrentMap<String, Object> syncLocks = new ConcurrentHashMap<String, Object>();
+
+    /**
+     * The store of the checkpoints and watermarks
+     */
+    private CheckpointStore checkpointStore;
+
+    private MuleContext muleContext;
+
+    /**
+     * Jersey client
+     */
+    private Client client;
+
+    /**
+     * Constructor
+     */
+    public FacebookConnector()
+    {
+        client = new Client();
+        client.addFilter(new LoggingFilter());
+        timeouts = new RequestTimeouts(connectTimeout, readTimeout, requestTimeout);
+    }
+
+    /**
+     * Creates the client for the configured transport and warms it up
+     */
+    @Start
+    public void start()
+    {
+        if (transport != null)
+        {
+            Client previous = client;
+            client = FacebookClientFactory.createClient(transport, maxConnections, connectTimeout, readTimeout);
+            previous.destroy();
+        }
+        timeouts = new RequestTimeouts(connectTimeout, readTimeout, requestTimeout);
+        if (hedgeReads)
+        {
+            hedger = new RequestHedger(hedgePercentile, hedgeMinDelay, hedgeBudget);
+        }
+        if (deduplicate)
+        {
+            deduplicator = new Deduplicator(deduplicationCapacity, deduplicationFalsePositiveRate);
+            if (deduplicationFile != null)
+            {
+                try
+                {
+                    deduplicator.load(new File(deduplicationFile));
+                }
+                catch (IOException e)
+                {
+                    LOGGER.warn("Could not load the deduplication filter from " + deduplicationFile, e);
+                }
+            }
+        }
+        checkpointStore = createCheckpointStore();
+        watermarks.setStore(checkpointStore);
+        if (resumeFromCheckpoint)
+        {
+            checkpoints = new ConnectionCheckpoints(checkpointStore);
+        }
+        if (cacheReads)
+        {
+            readCache = new ReadCache(createResponseCache(), cacheTtl, cacheStaleTtl, CACHE_REFRESH_THREADS);
+        }
+        if (searchCacheBucket > 0)
+        {
+            searchCache = new ReadCache(new InMemoryResponseCache(cacheMaxEntries), searchCacheBucket);
+        }
+        if (negativeCacheTtl > 0)
+        {
+            negativeCache = new NegativeCache(negativeCacheTtl, cacheMaxEntries, client.getMessageBodyWorkers());
+        }
+        if (cacheSnapshotFile != null)
+        {
+            startSnapshots();
+        }
+        if (readYourWritesTtl > 0)
+        {
+            overlay = new WriteOverlay(readYourWritesTtl);
+        }
+        warmUpMapper();
+        new ConnectionWarmer(client, URI.create(FACEBOOK_URI)).warmUpInBackground(
+            ConnectionWarmer.usableConnections(transport, maxConnections, warmUpConnections));
+    }
+
+    /**
+     * Releases the connections held by the client
+     */
+    @Stop
+    public void stop()
+    {
+        if (hedger != null)
+        {
+            hedger.dispose();
+            hedger = null;
+        }
+        if (snapshotter != null)
+        {
+            snapshotter.stop();
+            snapshotter = null;
+        }
+        if (readCache != null)
+        {
+            readCache.dispose();
+        }
+        if (deduplicator != null && deduplicationFile != null)
+        {
+            try
+            {
+                deduplicator.save(new File(deduplicationFile));
+            }
+            catch (IOException e)
+            {
+                LOGGER.warn("Could not save the deduplication filter to " + deduplicationFile, e);
+            }
+        }
+        client.destroy();
+    }
+
+    /**
+     * Restores the in-memory caches from the snapshot file and keeps writing it
+     */
+    private void startSnapshots()
+    {
+        snapshotter = new CacheSnapshotter(new File(cacheSnapshotFile));
+        if (readCache != null && readCache.getCache() instanceof LocalResponseCache)
+        {
+            snapshotter.add("reads", (LocalResponseCache) readCache.getCache(), readCache.getStaleTtl());
+        }
+        if (searchCache != null)
+        {
+            snapshotter.add("searches", (LocalResponseCache) searchCache.getCache(), 0);
+        }
+        int restored = snapshotter.restore(System.currentTimeMillis());
+        if (restored > 0)
+        {
+            LOGGER.info("Restored " + restored + " cached responses from " + cacheSnapshotFile);
+        }
+        snapshotter.start(cacheSnapshotInterval);
+    }
+
+    public void setMuleContext(MuleContext muleContext)
+    {
+        this.muleContext = muleContext;
+    }
+
+    /**
+     * Uses the persistent object store of Mule when there is one, the checkpoint
+     * file otherwise
+     */
+    private CheckpointStore createCheckpointStore()
+    {
+        if (checkpointFile == null)
+        {
+            ObjectStore<Serializable> objectStore = objectStore("facebook-checkpoints-" + appId, true);
+            if (objectStore != null)
+            {
+                return new ObjectStoreCheckpointStore(objectStore);
+            }
+        }
+        File file = checkpointFile != null ? new File(checkpointFile)
+                                           : new File(privateDirectory(), "facebook-checkpoints-" + appId + ".ser");
+        return new FileCheckpointStore(file);
+    }
+
+    /**
+     * @return the working directory of the Mule application, or the home
+     *         directory of the user outside of Mule: unlike the temporary
+     *         directory, neither is shared with the other users of the host
+     */
+    private File privateDirectory()
+    {
+        if (muleContext != null && muleContext.getConfiguration().getWorkingDirectory() != null)
+        {
+            return new File(muleContext.getConfiguration().getWorkingDirectory());
+        }
+        return new File(System.getProperty("user.home"));
+    }
+
+    /**
+     * Uses an object store of Mule when shared, the memory of the connector
+     * otherwise. Either way the deflated JSON of the responses is stored; the
+     * object store is bounded like the memory cache, and expires the responses
+     * once they can no longer be served, even stale.
+     */
+    private ResponseCache createResponseCache()
+    {
+        if (sharedCache)
+        {
+            ObjectStore<Serializable> objectStore = objectStore("facebook-responses-" + appId, cacheMaxEntries,
+                (int) Math.min(cacheTtl + cacheStaleTtl, Integer.MAX_VALUE));
+            if (objectStore != null)
+            {
+                return new ObjectStoreResponseCache(objectStore);
+            }
+        }
+        if (offHeapCacheSize > 0)
+        {
+            return new TieredResponseCache(hotCacheEntries, new OffHeapResponseCache(offHeapCacheSize, OFF_HEAP_BLOCK_SIZE));
+        }
+        return new InMemoryResponseCache(cacheMaxEntries);
+    }
+
+    /**
+     * @return the object store of Mule with the given name, or null if there is no
+     *         object store manager
+     */
+    private ObjectStore<Serializable> objectStore(String name, boolean persistent)
+    {
+        ObjectStoreManager manager = objectStoreManager();
+        return manager == null ? null : manager.<ObjectStore<Serializable>> getObjectStore(name, persistent);
+    }
+
+    /**
+     * @return the in-memory object store of Mule with the given name, holding at
+     *         most the given number of entries for at most the given time, or null
+     *         if there is no object store manager
+     */
+    private ObjectStore<Serializable> objectStore(String name, int maxEntries, int entryTtl)
+    {
+        ObjectStoreManager manager = objectStoreManager();
+        return manager == null ? null : manager.<ObjectStore<Serializable>> getObjectStore(name, false, maxEntries,
+            entryTtl, OBJECT_STORE_EXPIRATION_INTERVAL);
+    }
+
+    private ObjectStoreManager objectStoreManager()
+    {
+        if (muleContext == null)
+        {
+            return null;
+        }
+        return muleContext.getRegistry().lookupObject(MuleProperties.OBJECT_STORE_MANAGER);
+    }
+
+    /**
+     * Returns the checkpoint of a connection of a user, page or group: the
+     * creation time of the newest item of the reads completed and, while a read
+     * has more pages, the paging cursor of the next page of its last page
+     * returned.
+     * <p/>
+     * {@sample.xml ../../../doc/mule-module-facebook.xml.sample facebook:get-checkpoint}
+     * 
+     * @param accessToken the access token the connection is read with
+     * @param target Represents the ID of the user, page or group
+     * @param connection The connection: feed, posts, home, comments...
+     * @return the checkpoint, or null if the connection has not been read since
+     *         resuming from checkpoints was enabled
+     */
+    @Processor
+    public Checkpoint getCheckpoint(@OAuthAccessToken String accessToken, String target, String connection)
+    {
+        return (Checkpoint) checkpointStore.retrieve(ConnectionCheckpoints.key(accessToken, target, connection));
+    }
+
+    /**
+     * Forgets the checkpoint of a connection, so its next read uses its since
+     * parameter again
+     * <p/>
+     * {@sample.xml ../../../doc/mule-module-facebook.xml.sample facebook:reset-checkpoint}
+     * 
+     * @param accessToken the access token the connection is read with
+     * @param target Represents the ID of the user, page or group
+     * @param connection The connection: feed, posts, home, comments...
+     */
+    @Processor
+    public void resetCheckpoint(@OAuthAccessToken String accessToken, String target, String connection)
+    {
+        checkpointStore.remove(ConnectionCheckpoints.key(accessToken, target, connection));
+    }
+    
+    /**
+     * Gives the current event a time budget for its calls to Facebook. Every
+     * request issued on its behalf afterwards is bounded by the remaining budget
+     * and fails without being sent once it has been spent.
+     * <p/>
+     * {@sample.xml ../../../doc/mule-module-facebook.xml.sample facebook:set-deadline}
+     * 
+     * @param budget the budget in milliseconds
+     */
+    @Processor
+    public void setDeadline(long budget)
+    {
+        timeouts.startDeadline(budget);
+    }
+
+    /**
+     * Polls a connection of a user, page or group, such as its wall, and emits
+     * each post published since the last poll as its own message. Only the posts
+     * after the newest one already emitted are requested, so every post is
+     * emitted exactly once.
+     * <p/>
+     * {@sample.xml ../../../doc/mule-module-facebook.xml.sample facebook:poll-new-posts}
+     * 
+     * @param accessToken the access token to use to authenticate the request
+     * @param target Represents the ID of the user, page or group to poll
+     * @param connection The connection to poll: feed, posts, home, tagged...
+     * @param since A unix timestamp or any date accepted by strtotime. Only used
+     *            until a first post has been emitted.
+     * @param watermarkField The post timestamp the watermark follows: created_time
+     *            or updated_time
+     * @param pollingPeriod The time in milliseconds between polls
+     * @param callback the callback to emit the posts to
+     * @throws InterruptedException when the source is stopped
+     */
+    @Source
+    public void pollNewPosts(@OAuthAccessToken String accessToken, String target,
+                             @Optional @Default("feed") String connection,
+                             @Optional @Default("last week") String since,
+                             @Optional @Default("created_time") String watermarkField,
+                             @Optional @Default("60000") long pollingPeriod,
+                             SourceCallback callback) throws InterruptedException
+    {
+        String key = WatermarkTracker.key(accessToken, target, connection, since, watermarkField);
+        while (!java.lang.Thread.currentThread().isInterrupted())
+        {
+            try
+            {
+                emitNewPosts(accessToken, target, connection, since, watermarkField, key, callback);
+            }
+            catch (Exception e)
+            {
+                LOGGER.warn("Could not poll " + target + "/" + connection + " for new posts", e);
+            }
+            java.lang.Thread.sleep(pollingPeriod);
+        }
+    }
+
+    private void emitNewPosts(String accessToken, String target, String connection, String since,
+                              String watermarkField, String key, SourceCallback callback) throws Exception
+    {
+        Long watermark = watermarks.getSince(key);
+        URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{target}/{connection}").build(target, connection);
+        WebResource resource = resource(uri);
+        ConnectionPage page = ConnectionPage.parse(fetch(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+            .queryParam("since", watermark == null ? since : String.valueOf(watermark))));
+
+        List<JsonNode> items = new ArrayList<JsonNode>();
+        while (page != null)
+        {
+            List<JsonNode> newItems = watermarks.select(key, page.getItems(), watermarkField);
+            items.addAll(newItems);
+            page = newItems.isEmpty() ? null : nextPage(page);
+        }
+        for (JsonNode item : watermarks.select(key, items, watermarkField))
+        {
+            callback.process(mapper.toJavaObject(item.toString(), Post.class));
+            watermarks.advance(key, item, watermarkField);
+        }
+    }
+
+    /**
+     * Exports a connection of a user, page, group or application, such as its
+     * posts, wall or insights, as newline delimited JSON: every page of the
+     * connection is read in turn and each of its items written as one line. The
+     * items are streamed from the responses to the output, so the memory used does
+     * not depend on the size of the export. An export to a file is written to
+     * file.tmp and renamed once every page has been written, so a truncated
+     * export never appears under the name of the file.
+     * <p/>
+     * {@sample.xml ../../../doc/mule-module-facebook.xml.sample facebook:export-connection}
+     * 
+     * @param accessToken the access token to use to authenticate the request
+     * @param target Represents the ID of the user, page, group or application
+     * @param connection The connection to export: posts, feed, insights...
+     * @param since A unix timestamp or any date accepted by strtotime
+     * @param until A unix timestamp or any date accepted by strtotime
+     * @param file The file to write to. Required if no output is given.
+     * @param output The stream to write to, left open once written
+     * @param gzip Whether to compress the output with gzip
+     * @return the counters of the export
+     * @throws IOException if the export can not be written
+     */
+    @Processor
+    public ExportStatistics exportConnection(@OAuthAccessToken String accessToken, String target, String connection,
+                                             @Optional @Default("last week") String since,
+                                             @Optional @Default("yesterday") String until,
+                                             @Optional String file,
+                                             @Optional OutputStream output,
+                                             @Optional @Default("false") boolean gzip) throws IOException
+    {
+        if (file == null && output == null)
+        {
+            throw new IllegalArgumentException("Either a file or an output stream is required to export " + target + "/" + connection);
+        }
+        File temporary = file != null ? new File(file + ".tmp") : null;
+        OutputStream out = file != null ? new BufferedOutputStream(new FileOutputStream(temporary), 64 * 1024) : output;
+        ExportStatistics statistics;
+        try
+        {
+            NdjsonExporter exporter = new NdjsonExporter(out, gzip);
+            URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{target}/{connection}").build(target, connection);
+            String next = exporter.writePage(resource(uri).queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+                .queryParam("since", since)
+                .queryParam("until", until)
+                .get(InputStream.class));
+            while (next != null)
+            {
+                next = exporter.writePage(resource(URI.create(next)).get(InputStream.class));
+            }
+            if (file == null)
+            {
+                return exporter.finish();
+            }
+            statistics = exporter.close();
+        }
+        catch (RuntimeException e)
+        {
+            discard(out, temporary);
+            throw e;
+        }
+        catch (IOException e)
+        {
+            discard(out, temporary);
+            throw e;
+        }
+        replace(temporary, new File(file));
+        return statistics;
+    }
+
+    /**
+     * Reads any object, such as a post, photo or user, without decoding it: the
+     * object keeps the response and an index of the offsets of its fields, and
+     * only decodes a field when it is read. It is a map of the fields of the
+     * object, so Mule expressions read them as they would from any map, and can
+     * be decoded into a restfb type with its as method.
+     * <p/>
+     * {@sample.xml ../../../doc/mule-module-facebook.xml.sample facebook:get-object-lazily}
+     * 
+     * @param accessToken the access token to use to authenticate the request
+     * @param id Represents the ID of the object
+     * @param metadata The Graph API supports introspection of objects, which
+     *            enables you to see all of the connections an object has without
+     *            knowing its type ahead of time.
+     * @return the lazily decoded object
+     */
+    @Processor
+    public LazyJsonObject getObjectLazily(@OAuthAccessToken String accessToken, String id,
+                                          @Optional @Default("0") String metadata)
+    {
+        URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{id}").build(id);
+        return LazyJsonObject.parse(getBytes(resource(uri).queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+            .queryParam("metadata", metadata)));
+    }
+
+    /**
+     * Reads a connection of any object, such as the posts of a page or the photos
+     * of an album, without decoding its items: see
+     * {@link #getObjectLazily(String, String, String)}.
+     * <p/>
+     * {@sample.xml ../../../doc/mule-module-facebook.xml.sample facebook:get-connection-lazily}
+     * 
+     * @param accessToken the access token to use to authenticate the request
+     * @param target Represents the ID of the object
+     * @param connection The connection: posts, feed, photos, comments...
+     * @param since A unix timestamp or any date accepted by strtotime
+     * @param until A unix timestamp or any date accepted by strtotime
+     * @param limit Limit the number of items returned.
+     * @param offset An offset to the response. Useful for paging.
+     * @return the lazily decoded items
+     */
+    @Processor
+    @SuppressWarnings("unchecked")
+    public List<LazyJsonObject> getConnectionLazily(@OAuthAccessToken String accessToken, String target, String connection,
+                                                    @Optional @Default("last week") String since,
+                                                    @Optional @Default("yesterday") String until,
+                                                    @Optional @Default("3") String limit,
+                                                    @Optional @Default("2") String offset)
+    {
+        URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{target}/{connection}").build(target, connection);
+        LazyJsonObject page = LazyJsonObject.parse(getBytes(resource(uri).queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+            .queryParam("since", since)
+            .queryParam("until", until)
+            .queryParam("limit", limit)
+            .queryParam("offset", offset)));
+        Object data = page.get("data");
+        if (data == null)
+        {
+            return new ArrayList<LazyJsonObject>();
+        }
+        if (!(data instanceof LazyJsonArray) || !((LazyJsonArray) data).containsOnlyObjects())
+        {
+            throw new IllegalArgumentException(target + "/" + connection + " is not a connection of objects");
+        }
+        return (List<LazyJsonObject>) data;
+    }
+
+    /**
+     * Encodes objects returned by the connector, such as a list of posts or a
+     * thread, in a compact binary form several times smaller than their Java
+     * serialization, to store them in an object store or replicate them across a
+     * cluster.
+     * <p/>
+     * {@sample.xml ../../../doc/mule-module-facebook.xml.sample facebook:encode-binary}
+     * 
+     * @param value The object to encode
+     * @return the encoded object
+     */
+    @Processor
+    public byte[] encodeBinary(@Optional @Default("#[payload]") Object value)
+    {
+        return BinaryCodec.encode(value);
+    }
+
+    /**
+     * Decodes an object encoded by encode-binary
+     * <p/>
+     * {@sample.xml ../../../doc/mule-module-facebook.xml.sample facebook:decode-binary}
+     * 
+     * @param encoded The encoded object
+     * @return the object
+     */
+    @Processor
+    public Object decodeBinary(@Optional @Default("#[payload]") byte[] encoded)
+    {
+        return BinaryCodec.decode(encoded);
+    }
+
+    /**
+     * Returns the counters of the response and negative caches
+     * <p/>
+     * {@sample.xml ../../../doc/mule-module-facebook.xml.sample facebook:get-cache-statistics}
+     * 
+     * @return the counters, zero for the caches that are not enabled
      */
-    private Client client;
+    @Processor
+    public CacheStatistics getCacheStatistics()
+    {
+        return new CacheStatistics(readCache == null ? 0 : readCache.getHits(),
+            readCache == null ? 0 : readCache.getMisses(),
+            readCache == null ? 0 : readCache.getStaleHits(),
+            negativeCache == null ? 0 : negativeCache.getHits(),
+            negativeCache == null ? 0 : negativeCache.size());
+    }
 
     /**
-     * Constructor
+     * Hosts the callback of a Graph API Real-time Updates subscription and emits
+     * each change notification as its own message, so objects are only fetched
+     * when something actually changed. The subscription verification handshake
+     * is answered with the given verify token and the signature of every
+     * notification is validated with the application secret. The payload of each
+     * message is a map holding the type of the subscription (object), the id of
+     * the changed object (uid or id), the time of the change and the changed
+     * fields. A notification is acknowledged once all of its changes have been
+     * emitted; when the flow fails on one of them, Facebook delivers the whole
+     * notification again, so the changes emitted before the failure are emitted
+     * twice.
+     * <p/>
+     * {@sample.xml ../../../doc/mule-module-facebook.xml.sample facebook:realtime-updates}
+     * 
+     * @param verifyToken The verify token given when creating the subscription
+     * @param port The local port the callback listens on
+     * @param path The path of the callback
+     * @param threads The number of threads handling notifications
+     * @param callback the callback to emit the changes to
+     * @throws Exception if the callback can't be started
      */
-    public FacebookConnector()
+    @Source
+    public void realtimeUpdates(String verifyToken,
+                                @Optional @Default("8081") int port,
+                                @Optional @Default("/facebook/realtime") String path,
+                                @Optional @Default("4") int threads,
+                                final SourceCallback callback) throws Exception
     {
-        client = new Client();
-        client.addFilter(new LoggingFilter());
+        RealtimeUpdatesReceiver receiver = new RealtimeUpdatesReceiver(path, verifyToken, appSecret, new UpdateListener()
+        {
+            public void onUpdate(String object, Map<String, Object> change) throws Exception
+            {
+                change.put("object", object);
+                callback.process(change);
+            }
+        });
+        receiver.start(port, threads);
+        try
+        {
+            while (true)
+            {
+                java.lang.Thread.sleep(Long.MAX_VALUE);
+            }
+        }
+        finally
+        {
+            receiver.stop();
+        }
     }
-    
+
     /**
      * Gets the user logged details.
      * <p/>
@@ -130,8 +1141,8 @@ public class FacebookConnector
     public User loggedUserDetails(@OAuthAccessToken String accessToken)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("me").build();
-        WebResource resource = client.resource(uri);
-        String json = resource.queryParam("access_token", accessToken).type(MediaType.APPLICATION_FORM_URLENCODED).get(String.class);
+        WebResource resource = resource(uri);
+        String json = get(resource.queryParam("access_token", accessToken));
         return mapper.toJavaObject(json, User.class);
     }
     
@@ -155,15 +1166,14 @@ public class FacebookConnector
                                   @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("search").build();
-        WebResource resource = client.resource(uri);
-        final String jsonResponse = resource.queryParam("q", q)
-                                            .queryParam("since", since)
-                                            .queryParam("until", until)
+        WebResource resource = resource(uri);
+        final String jsonResponse = search(resource.queryParam("q", searchQuery(q))
+                                            .queryParam("since", searchSince(since))
+                                            .queryParam("until", searchUntil(until))
                                             .queryParam("limit", limit)
-                                            .queryParam("offset", offset)
-                                            .get(String.class);
+                                            .queryParam("offset", offset));
         
-        return mapper.toJavaList(jsonResponse, Post.class);
+        return toList(jsonResponse, Post.class);
     }
     
     /**
@@ -187,17 +1197,16 @@ public class FacebookConnector
                                   @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("search").build();
-        WebResource resource = client.resource(uri);
-        final String jsonResponse = resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
-                                            .queryParam("q", q)
-                                            .queryParam("since", since)
-                                            .queryParam("until", until)
+        WebResource resource = resource(uri);
+        final String jsonResponse = search(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+                                            .queryParam("q", searchQuery(q))
+                                            .queryParam("since", searchSince(since))
+                                            .queryParam("until", searchUntil(until))
                                             .queryParam("limit", limit)
                                             .queryParam("offset", offset)
-                                            .queryParam("type", "user")
-                                            .get(String.class);
+                                            .queryParam("type", "user"));
         
-        return mapper.toJavaList(jsonResponse, User.class);
+        return toList(jsonResponse, User.class);
     }
     
     /**
@@ -220,15 +1229,14 @@ public class FacebookConnector
                                   @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("search").build();
-        WebResource resource = client.resource(uri);
-        final String jsonResponse = resource.queryParam("q", q)
+        WebResource resource = resource(uri);
+        final String jsonResponse = search(resource.queryParam("q", searchQuery(q))
                                             .queryParam("type", "page")
-                                            .queryParam("since", since)
-                                            .queryParam("until", until)
+                                            .queryParam("since", searchSince(since))
+                                            .queryParam("until", searchUntil(until))
                                             .queryParam("limit", limit)
-                                            .queryParam("offset", offset)
-                                            .get(String.class);
-        return mapper.toJavaList(jsonResponse, Page.class);
+                                            .queryParam("offset", offset));
+        return toList(jsonResponse, Page.class);
     }
     
     /**
@@ -252,16 +1260,15 @@ public class FacebookConnector
                                     @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("search").build();
-        WebResource resource = client.resource(uri);
-        final String jsonResponse = resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
-                                            .queryParam("q", q)
+        WebResource resource = resource(uri);
+        final String jsonResponse = search(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+                                            .queryParam("q", searchQuery(q))
                                             .queryParam("type", "event")
-                                            .queryParam("since", since)
-                                            .queryParam("until", until)
+                                            .queryParam("since", searchSince(since))
+                                            .queryParam("until", searchUntil(until))
                                             .queryParam("limit", limit)
-                                            .queryParam("offset", offset)
-                                            .get(String.class);
-        return mapper.toJavaList(jsonResponse, Event.class);
+                                            .queryParam("offset", offset));
+        return toList(jsonResponse, Event.class);
     }
     
     /**
@@ -285,16 +1292,15 @@ public class FacebookConnector
                                     @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("search").build();
-        WebResource resource = client.resource(uri);
-        final String jsonResponse = resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
-                                            .queryParam("q", q)
+        WebResource resource = resource(uri);
+        final String jsonResponse = search(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+                                            .queryParam("q", searchQuery(q))
                                             .queryParam("type", "group")
-                                            .queryParam("since", since)
-                                            .queryParam("until", until)
+                                            .queryParam("since", searchSince(since))
+                                            .queryParam("until", searchUntil(until))
                                             .queryParam("limit", limit)
-                                            .queryParam("offset", offset)
-                                            .get(String.class);
-        return mapper.toJavaList(jsonResponse, Group.class);
+                                            .queryParam("offset", offset));
+        return toList(jsonResponse, Group.class);
     }
     
     /**
@@ -319,15 +1325,14 @@ public class FacebookConnector
                                         @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("search").build();
-        WebResource resource = client.resource(uri);
-        final String jsonResponse = resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+        WebResource resource = resource(uri);
+        final String jsonResponse = search(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
                                             .queryParam("type", "checkin")
-                                            .queryParam("since", since)
-                                            .queryParam("until", until)
+                                            .queryParam("since", searchSince(since))
+                                            .queryParam("until", searchUntil(until))
                                             .queryParam("limit", limit)
-                                            .queryParam("offset", offset)
-                                            .get(String.class);
-        return mapper.toJavaList(jsonResponse, Checkin.class);
+                                            .queryParam("offset", offset));
+        return toList(jsonResponse, Checkin.class);
     }
 
     /**
@@ -345,8 +1350,8 @@ public class FacebookConnector
     public Album getAlbum(String album, @Optional @Default("0") String metadata)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{album}").build(album);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaObject( resource.queryParam("metadata", metadata).get(String.class), Album.class);
+        WebResource resource = resource(uri);
+        return mapper.toJavaObject( get(resource.queryParam("metadata", metadata)), Album.class);
     }
 
     /**
@@ -370,12 +1375,11 @@ public class FacebookConnector
                                  @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{album}/photos").build(album);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList( resource.queryParam("since", since)
+        WebResource resource = resource(uri);
+        return toList( get(resource.queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), Photo.class);
+            .queryParam("offset", offset)), Photo.class);
     }
 
     /**
@@ -399,12 +1403,11 @@ public class FacebookConnector
                                    @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{album}/comments").build(album);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList( resource.queryParam("since", since)
+        WebResource resource = resource(uri);
+        return readList(resource.queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), Comment.class);
+            .queryParam("offset", offset), Comment.class);
     }
 
     /**
@@ -423,10 +1426,8 @@ public class FacebookConnector
     public Event getEvent(String eventId, @Optional @Default("0") String metadata)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{event}").build(eventId);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaObject( resource.queryParam("metadata", metadata).
-
-        get(String.class), Event.class);
+        WebResource resource = resource(uri);
+        return mapper.toJavaObject( get(resource.queryParam("metadata", metadata)), Event.class);
     }
 
     /**
@@ -451,13 +1452,12 @@ public class FacebookConnector
                                @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{event}/feed").build(eventId);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList( resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+        WebResource resource = resource(uri);
+        return readList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
                                           .queryParam("since", since)
                                           .queryParam("until", until)
                                           .queryParam("limit", limit)
-                                          .queryParam("offset", offset)
-                                          .get(String.class), Post.class);
+                                          .queryParam("offset", offset), Post.class);
     }
 
     /**
@@ -483,13 +1483,12 @@ public class FacebookConnector
                                   @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{event}/noreply").build(eventId);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList( resource.queryParam("since", since)
+        WebResource resource = resource(uri);
+        return toList( get(resource.queryParam("since", since)
             .queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), User.class);
+            .queryParam("offset", offset)), User.class);
     }
 
     /**
@@ -515,13 +1514,12 @@ public class FacebookConnector
                                 @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{event}/maybe").build(eventId);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList( resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+        WebResource resource = resource(uri);
+        return toList( get(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
             .queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), User.class);
+            .queryParam("offset", offset)), User.class);
     }
 
     /**
@@ -546,13 +1544,12 @@ public class FacebookConnector
                                   @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{event}/invited").build(eventId);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList( resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+        WebResource resource = resource(uri);
+        return toList( get(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
             .queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), User.class);
+            .queryParam("offset", offset)), User.class);
     }
 
     /**
@@ -577,13 +1574,12 @@ public class FacebookConnector
                                     @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{event}/attending").build(eventId);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+        WebResource resource = resource(uri);
+        return toList(get(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
             .queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), User.class);
+            .queryParam("offset", offset)), User.class);
     }
 
     /**
@@ -608,13 +1604,12 @@ public class FacebookConnector
                                    @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{event}/declined").build(eventId);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+        WebResource resource = resource(uri);
+        return toList(get(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
             .queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), Event.class);
+            .queryParam("offset", offset)), Event.class);
     }
 
     /**
@@ -632,7 +1627,7 @@ public class FacebookConnector
     public Byte[] getEventPicture(String eventId, @Optional @Default("small") String type)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{event}/picture").build(eventId);
-        WebResource resource = client.resource(uri);
+        WebResource resource = resource(uri);
         BufferedImage image = resource.queryParam("type", type).get(BufferedImage.class);
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         try
@@ -661,8 +1656,8 @@ public class FacebookConnector
     public Group getGroup(String group, @Optional @Default("0") String metadata)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{group}").build(group);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaObject( resource.queryParam("metadata", metadata).get(String.class), Group.class);
+        WebResource resource = resource(uri);
+        return mapper.toJavaObject( get(resource.queryParam("metadata", metadata)), Group.class);
     }
 
     /**
@@ -687,13 +1682,12 @@ public class FacebookConnector
                                @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{group}/feed").build(group);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+        WebResource resource = resource(uri);
+        return readList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
             .queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), Post.class);
+            .queryParam("offset", offset), Post.class);
     }
 
     /**
@@ -718,13 +1712,12 @@ public class FacebookConnector
                                   @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{group}/members").build(group);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+        WebResource resource = resource(uri);
+        return toList(get(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
             .queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), Member.class);
+            .queryParam("offset", offset)), Member.class);
     }
 
     /**
@@ -742,7 +1735,7 @@ public class FacebookConnector
     public Byte[] getGroupPicture(String group, @Optional @Default("small") String type)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{group}/picture").build(group);
-        WebResource resource = client.resource(uri);
+        WebResource resource = resource(uri);
         return bufferedImageToByteArray(resource.queryParam("type", type).get(BufferedImage.class));
     }
 
@@ -762,9 +1755,9 @@ public class FacebookConnector
                         @Optional @Default("0") String metadata)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{link}").build(link);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaObject( resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
-                                            .queryParam("metadata", metadata).get(String.class), Link.class);
+        WebResource resource = resource(uri);
+        return mapper.toJavaObject( get(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+                                                .queryParam("metadata", metadata)), Link.class);
     }
 
     /**
@@ -787,13 +1780,12 @@ public class FacebookConnector
                                   @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{link}/comments").build(link);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+        WebResource resource = resource(uri);
+        return readList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
             .queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), Comment.class);
+            .queryParam("offset", offset), Comment.class);
     }
 
     /**
@@ -811,8 +1803,8 @@ public class FacebookConnector
     public Note getNote(@OAuthAccessToken String accessToken, String note, @Optional @Default("0") String metadata)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{note}").build(note);
-        WebResource resource = client.resource(uri).queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken);
-        return mapper.toJavaObject( resource.queryParam("metadata", metadata).get(String.class), Note.class);
+        WebResource resource = resource(uri).queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken);
+        return mapper.toJavaObject( get(resource.queryParam("metadata", metadata)), Note.class);
     }
 
     /**
@@ -834,12 +1826,11 @@ public class FacebookConnector
                                   @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{note}/comments").build(note);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam("since", since)
+        WebResource resource = resource(uri);
+        return readList(resource.queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), Comment.class);
+            .queryParam("offset", offset), Comment.class);
     }
 
     /**
@@ -861,12 +1852,11 @@ public class FacebookConnector
                                @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{note}/likes").build(note);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaObject( resource.queryParam("since", since)
+        WebResource resource = resource(uri);
+        return mapper.toJavaObject( get(resource.queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), Likes.class);
+            .queryParam("offset", offset)), Likes.class);
     }
 
     /**
@@ -883,12 +1873,16 @@ public class FacebookConnector
     public Page getPage(String page, @Optional @Default("0") String metadata)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{page}").build(page);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaObject( resource.queryParam("metadata", metadata).get(String.class), Page.class);
+        WebResource resource = resource(uri);
+        return mapper.toJavaObject( get(resource.queryParam("metadata", metadata)), Page.class);
     }
 
     /**
-     * The page's wall 
+     * The page's wall. When readYourWritesTtl is set, the messages published
+     * through the connector with the same access token are added until Graph
+     * returns them, but only to the newest page: pass an until of now and an
+     * offset of 0, since the default window ends yesterday and skips the newest
+     * posts.
      * {@sample.xml ../../../doc/mule-module-facebook.xml.sample facebook:getPageWall}
      * 
      * @param accessToken the access token to use to authenticate the request
@@ -907,13 +1901,12 @@ public class FacebookConnector
                               @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{page}/feed").build(page);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+        WebResource resource = resource(uri);
+        return readList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
             .queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), Post.class);
+            .queryParam("offset", offset), Post.class);
     }
 
     /**
@@ -929,7 +1922,7 @@ public class FacebookConnector
     public Byte[] getPagePicture(String page, @Optional @Default("small") String type)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{page}/picture").build(page);
-        WebResource resource = client.resource(uri);
+        WebResource resource = resource(uri);
         return bufferedImageToByteArray( resource.queryParam("type", type).get(BufferedImage.class));
     }
 
@@ -953,13 +1946,12 @@ public class FacebookConnector
                                 @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{page}/tagged").build(page);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList( resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+        WebResource resource = resource(uri);
+        return readList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
             .queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), Post.class);
+            .queryParam("offset", offset), Post.class);
     }
 
     /**
@@ -981,12 +1973,11 @@ public class FacebookConnector
                                @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{page}/links").build(page);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList( resource.queryParam("since", since)
+        WebResource resource = resource(uri);
+        return toList( get(resource.queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), Link.class);
+            .queryParam("offset", offset)), Link.class);
     }
 
     /**
@@ -1008,12 +1999,11 @@ public class FacebookConnector
                                 @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{page}/photos").build(page);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam("since", since)
+        WebResource resource = resource(uri);
+        return toList(get(resource.queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), Photo.class);
+            .queryParam("offset", offset)), Photo.class);
     }
 
     /**
@@ -1036,13 +2026,12 @@ public class FacebookConnector
                                 @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{page}/groups").build(page);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+        WebResource resource = resource(uri);
+        return toList(get(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
             .queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), Group.class);
+            .queryParam("offset", offset)), Group.class);
     }
 
     /**
@@ -1064,12 +2053,11 @@ public class FacebookConnector
                                 @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{page}/albums").build(page);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam("since", since)
+        WebResource resource = resource(uri);
+        return toList(get(resource.queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), Album.class);
+            .queryParam("offset", offset)), Album.class);
     }
 
     /**
@@ -1092,13 +2080,12 @@ public class FacebookConnector
                                   @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{page}/statuses").build(page);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+        WebResource resource = resource(uri);
+        return toList(get(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
             .queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), StatusMessage.class);
+            .queryParam("offset", offset)), StatusMessage.class);
     }
 
     /**
@@ -1121,13 +2108,12 @@ public class FacebookConnector
                                 @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{page}/videos").build(page);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+        WebResource resource = resource(uri);
+        return toList(get(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
             .queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), Video.class);
+            .queryParam("offset", offset)), Video.class);
     }
 
     /**
@@ -1150,13 +2136,12 @@ public class FacebookConnector
                                @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{page}/notes").build(page);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+        WebResource resource = resource(uri);
+        return toList(get(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
             .queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), Note.class);
+            .queryParam("offset", offset)), Note.class);
     }
 
     /**
@@ -1179,13 +2164,69 @@ public class FacebookConnector
                                @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{page}/posts").build(page);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+        WebResource resource = resource(uri);
+        return readList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
             .queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), Post.class);
+            .queryParam("offset", offset), Post.class);
+    }
+
+    /**
+     * Synchronizes the posts of a page published since the given time with the
+     * previous synchronization of the page, and returns what changed instead of a
+     * full snapshot. The comments and likes are only fetched for the posts that
+     * were inserted or whose update time or content changed. Posts missing from
+     * the listing but created after its oldest post are reported as deleted.
+     * <p/>
+     * {@sample.xml ../../../doc/mule-module-facebook.xml.sample facebook:sync-page-posts}
+     * 
+     * @param accessToken the access token to use to authenticate the request
+     * @param page Represents the ID of the page object.
+     * @param since A unix timestamp or any date accepted by strtotime
+     * @return the inserted, updated and deleted posts
+     */
+    @Processor
+    public List<PostDelta> syncPagePosts(@OAuthAccessToken String accessToken, String page,
+                                         @Optional @Default("last week") String since)
+    {
+        String key = SyncState.key(accessToken, page);
+        syncLocks.putIfAbsent(key, new Object());
+        synchronized (syncLocks.get(key))
+        {
+            // the stored state is only replaced once every fetch has succeeded, so
+            // a failed sync reports the same changes again
+            SyncState stored = (SyncState) checkpointStore.retrieve(key);
+            SyncState state = stored == null ? new SyncState() : stored.copy();
+            URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{page}/posts").build(page);
+            List<JsonNode> items = readAll(resource(uri).queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+                .queryParam("since", since));
+
+            List<PostDelta> deltas = new ArrayList<PostDelta>();
+            for (SyncState.Change change : state.update(items))
+            {
+                if (change.getType() == DeltaType.DELETE)
+                {
+                    deltas.add(new PostDelta(DeltaType.DELETE, change.getId(), null, null, null));
+                    continue;
+                }
+                URI comments = UriBuilder.fromPath(FACEBOOK_URI).path("{post}/comments").build(change.getId());
+                URI likes = UriBuilder.fromPath(FACEBOOK_URI).path("{post}/likes").build(change.getId());
+                List<Comment> postComments = new ArrayList<Comment>();
+                for (JsonNode comment : readAll(resource(comments).queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)))
+                {
+                    postComments.add(mapper.toJavaObject(comment.toString(), Comment.class));
+                }
+                ObjectNode postLikes = JsonNodeFactory.instance.objectNode();
+                postLikes.putArray("data").addAll(readAll(resource(likes).queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)));
+                postLikes.put("count", postLikes.get("data").size());
+                deltas.add(new PostDelta(change.getType(), change.getId(),
+                    mapper.toJavaObject(change.getItem().toString(), Post.class), postComments,
+                    mapper.toJavaObject(postLikes.toString(), Likes.class)));
+            }
+            checkpointStore.store(key, state);
+            return deltas;
+        }
     }
 
     /**
@@ -1208,13 +2249,12 @@ public class FacebookConnector
                                 @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{page}/events").build(page);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+        WebResource resource = resource(uri);
+        return toList(get(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
             .queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), Event.class);
+            .queryParam("offset", offset)), Event.class);
     }
 
     /**
@@ -1237,13 +2277,12 @@ public class FacebookConnector
                                   @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{page}/checkins").build(page);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+        WebResource resource = resource(uri);
+        return toList(get(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
             .queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), Checkin.class);
+            .queryParam("offset", offset)), Checkin.class);
     }
 
     /**
@@ -1260,8 +2299,8 @@ public class FacebookConnector
     public org.mule.module.facebook.types.Photo getPhoto(String photo, @Optional @Default("0") String metadata)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{photo}").build(photo);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaObject(resource.queryParam("metadata", metadata).get(String.class), org.mule.module.facebook.types.Photo.class);
+        WebResource resource = resource(uri);
+        return mapper.toJavaObject(get(resource.queryParam("metadata", metadata)), org.mule.module.facebook.types.Photo.class);
     }
 
     /**
@@ -1283,12 +2322,11 @@ public class FacebookConnector
                                    @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{photo}/comments").build(photo);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam("since", since)
+        WebResource resource = resource(uri);
+        return readList(resource.queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), Comment.class);
+            .queryParam("offset", offset), Comment.class);
     }
 
     /**
@@ -1310,12 +2348,11 @@ public class FacebookConnector
                                 @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{photo}/likes").build(photo);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaObject( resource.queryParam("since", since)
+        WebResource resource = resource(uri);
+        return mapper.toJavaObject( get(resource.queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), Likes.class);
+            .queryParam("offset", offset)), Likes.class);
     }
 
     /**
@@ -1332,12 +2369,15 @@ public class FacebookConnector
     public Post getPost(String post, @Optional @Default("0") String metadata)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{post}").build(post);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaObject(resource.queryParam("metadata", metadata).get(String.class), Post.class);
+        WebResource resource = resource(uri);
+        return mapper.toJavaObject(get(resource.queryParam("metadata", metadata)), Post.class);
     }
 
     /**
-     * All of the comments on this post 
+     * All of the comments on this post. When readYourWritesTtl is set, the
+     * comments published through the connector are added until Graph returns
+     * them, but only to the newest page: pass an until of now and an offset of
+     * 0, since the default window ends yesterday and skips the newest comments.
      * {@sample.xml ../../../doc/mule-module-facebook.xml.sample facebook:getPostComments}
      * 
      * @param post Represents the ID of the post object.
@@ -1355,12 +2395,11 @@ public class FacebookConnector
                                   @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{post}/comments").build(post);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam("since", since)
+        WebResource resource = resource(uri);
+        return readList(resource.queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), Comment.class);
+            .queryParam("offset", offset), Comment.class);
     }
 
     /**
@@ -1378,8 +2417,8 @@ public class FacebookConnector
     public StatusMessage getStatus(@OAuthAccessToken String accessToken, String status, @Optional @Default("0") String metadata)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{status}").build(status);
-        WebResource resource = client.resource(uri).queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken);
-        return mapper.toJavaObject( resource.queryParam("metadata", metadata).get(String.class), StatusMessage.class);
+        WebResource resource = resource(uri).queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken);
+        return mapper.toJavaObject( get(resource.queryParam("metadata", metadata)), StatusMessage.class);
     }
 
     /**
@@ -1402,13 +2441,12 @@ public class FacebookConnector
                                     @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{status}/comments").build(status);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+        WebResource resource = resource(uri);
+        return readList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
             .queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), Comment.class);
+            .queryParam("offset", offset), Comment.class);
     }
 
     /**
@@ -1425,8 +2463,8 @@ public class FacebookConnector
     public User getUser(String user, @Optional @Default("0") String metadata)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{user}").build(user);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaObject( resource.queryParam("metadata", metadata).get(String.class), User.class);
+        WebResource resource = resource(uri);
+        return mapper.toJavaObject( get(resource.queryParam("metadata", metadata)), User.class);
     }
 
     /**
@@ -1456,15 +2494,14 @@ public class FacebookConnector
                                     @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{user}/home").build(user);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+        WebResource resource = resource(uri);
+        return readList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
             .queryParam("q", q)
             .queryParam("metadata", metadata)
             .queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), Post.class);
+            .queryParam("offset", offset), Post.class);
     }
 
     /**
@@ -1487,13 +2524,12 @@ public class FacebookConnector
                               @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{user}/home").build(user);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+        WebResource resource = resource(uri);
+        return readList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
             .queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), Post.class);
+            .queryParam("offset", offset), Post.class);
     }
 
     /**
@@ -1517,13 +2553,12 @@ public class FacebookConnector
                               @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{user}/feed").build(user);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+        WebResource resource = resource(uri);
+        return readList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
             .queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), Post.class);
+            .queryParam("offset", offset), Post.class);
     }
 
     /**
@@ -1548,13 +2583,12 @@ public class FacebookConnector
                                 @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{user}/tagged").build(user);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+        WebResource resource = resource(uri);
+        return readList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
             .queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), Post.class);
+            .queryParam("offset", offset), Post.class);
     }
 
     /**
@@ -1578,13 +2612,12 @@ public class FacebookConnector
                                @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{user}/posts").build(user);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+        WebResource resource = resource(uri);
+        return readList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
             .queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), Post.class);
+            .queryParam("offset", offset), Post.class);
     }
 
     /**
@@ -1600,7 +2633,7 @@ public class FacebookConnector
     public Byte[] getUserPicture(String user, @Optional @Default("small") String type)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{user}/picture").build(user);
-        WebResource resource = client.resource(uri);
+        WebResource resource = resource(uri);
         BufferedImage image = resource.queryParam("type", type).get(BufferedImage.class);
         return bufferedImageToByteArray(image);
     }
@@ -1625,13 +2658,64 @@ public class FacebookConnector
                                  @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{user}/friends").build(user);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+        WebResource resource = resource(uri);
+        return toList(get(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
             .queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), NamedFacebookType.class);
+            .queryParam("offset", offset)), NamedFacebookType.class);
+    }
+
+    /**
+     * Crawls the friend graph breadth first from the given users, reading the
+     * friends of several users in parallel, and returns it in a compact compressed
+     * sparse row form over interned ids. The friends of a user can only be read
+     * with an access token of that user, so only the users whose tokens are in
+     * the given map are crawled; the others are added as nodes without edges. The
+     * time budget left to the event when the crawl starts bounds the whole crawl:
+     * once it is spent, the graph read so far is returned.
+     * <p/>
+     * {@sample.xml ../../../doc/mule-module-facebook.xml.sample facebook:crawl-friend-graph}
+     * 
+     * @param users The IDs of the users to start from
+     * @param accessTokens The access tokens of the users, by user ID
+     * @param maxDepth The depth of the crawl: 0 only reads the friends of the given users
+     * @param parallelism The number of users whose friends are read at once
+     * @param maxUsers The maximum number of users whose friends are read
+     * @param file The file to write the graph to, if any
+     * @return the graph, with an edge from each crawled user to each of its friends
+     * @throws IOException if the graph can not be written
+     * @throws InterruptedException if interrupted while crawling
+     */
+    @Processor
+    public CsrGraph crawlFriendGraph(List<String> users, Map<String, String> accessTokens,
+                                     @Optional @Default("1") int maxDepth,
+                                     @Optional @Default("4") int parallelism,
+                                     @Optional @Default("10000") int maxUsers,
+                                     @Optional String file) throws IOException, InterruptedException
+    {
+        long remaining = timeouts.remaining();
+        long deadline = remaining == Long.MAX_VALUE ? Long.MAX_VALUE : System.currentTimeMillis() + remaining;
+        FriendSource source = new FriendSource()
+        {
+            public List<String> getFriends(String user, String userAccessToken)
+            {
+                URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{user}/friends").build(user);
+                List<String> friends = new ArrayList<String>();
+                for (JsonNode friend : readAll(resource(uri).queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, userAccessToken)))
+                {
+                    friends.add(friend.path("id").getTextValue());
+                }
+                return friends;
+            }
+        };
+        CsrGraph graph = new FriendGraphCrawler(source, parallelism, maxDepth, maxUsers).crawl(users, accessTokens,
+            deadline);
+        if (file != null)
+        {
+            graph.writeTo(new File(file));
+        }
+        return graph;
     }
 
     /**
@@ -1654,13 +2738,12 @@ public class FacebookConnector
                                     @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{user}/activities").build(user);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+        WebResource resource = resource(uri);
+        return toList(get(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
             .queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), PageConnection.class);
+            .queryParam("offset", offset)), PageConnection.class);
     }
 
     /**
@@ -1683,13 +2766,12 @@ public class FacebookConnector
                                   @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{user}/checkins").build(user);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+        WebResource resource = resource(uri);
+        return toList(get(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
             .queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), Checkin.class);
+            .queryParam("offset", offset)), Checkin.class);
     }
 
     /**
@@ -1712,13 +2794,12 @@ public class FacebookConnector
                                    @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{user}/interests").build(user);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+        WebResource resource = resource(uri);
+        return toList(get(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
             .queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), PageConnection.class);
+            .queryParam("offset", offset)), PageConnection.class);
     }
 
     /**
@@ -1741,13 +2822,12 @@ public class FacebookConnector
                                @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{user}/music").build(user);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+        WebResource resource = resource(uri);
+        return toList(get(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
             .queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), PageConnection.class);
+            .queryParam("offset", offset)), PageConnection.class);
     }
 
     /**
@@ -1770,13 +2850,12 @@ public class FacebookConnector
                                @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{user}/books").build(user);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+        WebResource resource = resource(uri);
+        return toList(get(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
             .queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), PageConnection.class);
+            .queryParam("offset", offset)), PageConnection.class);
     }
 
     /**
@@ -1799,13 +2878,12 @@ public class FacebookConnector
                                 @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{user}/movies").build(user);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+        WebResource resource = resource(uri);
+        return toList(get(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
             .queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), PageConnection.class);
+            .queryParam("offset", offset)), PageConnection.class);
     }
 
     /**
@@ -1828,13 +2906,12 @@ public class FacebookConnector
                                     @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{user}/television").build(user);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+        WebResource resource = resource(uri);
+        return toList(get(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
             .queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), PageConnection.class);
+            .queryParam("offset", offset)), PageConnection.class);
     }
 
     /**
@@ -1859,13 +2936,12 @@ public class FacebookConnector
                                @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{user}/likes").build(user);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+        WebResource resource = resource(uri);
+        return toList(get(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
             .queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), PageConnection.class);
+            .queryParam("offset", offset)), PageConnection.class);
     }
 
     /**
@@ -1889,12 +2965,11 @@ public class FacebookConnector
                                 @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{user}/photos").build(user);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam("since", since)
+        WebResource resource = resource(uri);
+        return toList(get(resource.queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), Photo.class);
+            .queryParam("offset", offset)), Photo.class);
     }
 
     /**
@@ -1917,12 +2992,11 @@ public class FacebookConnector
                                 @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{user}/albums").build(user);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam("since", since)
+        WebResource resource = resource(uri);
+        return toList(get(resource.queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), Album.class);
+            .queryParam("offset", offset)), Album.class);
     }
 
     /**
@@ -1946,13 +3020,12 @@ public class FacebookConnector
                                 @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{user}/videos").build(user);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+        WebResource resource = resource(uri);
+        return toList(get(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
             .queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), Video.class);
+            .queryParam("offset", offset)), Video.class);
     }
 
     /**
@@ -1977,13 +3050,12 @@ public class FacebookConnector
                                 @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{user}/groups").build(user);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+        WebResource resource = resource(uri);
+        return toList(get(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
             .queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), Group.class);
+            .queryParam("offset", offset)), Group.class);
     }
 
     /**
@@ -2006,13 +3078,12 @@ public class FacebookConnector
                                   @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{user}/statuses").build(user);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+        WebResource resource = resource(uri);
+        return toList(get(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
             .queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), StatusMessage.class);
+            .queryParam("offset", offset)), StatusMessage.class);
     }
 
     /**
@@ -2035,13 +3106,12 @@ public class FacebookConnector
                                @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{user}/links").build(user);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+        WebResource resource = resource(uri);
+        return toList(get(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
             .queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), Link.class);
+            .queryParam("offset", offset)), Link.class);
     }
 
     /**
@@ -2064,13 +3134,12 @@ public class FacebookConnector
                                @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{user}/notes").build(user);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+        WebResource resource = resource(uri);
+        return toList(get(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
             .queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), Note.class);
+            .queryParam("offset", offset)), Note.class);
     }
 
     /**
@@ -2095,13 +3164,12 @@ public class FacebookConnector
                                 @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{user}/events").build(user);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+        WebResource resource = resource(uri);
+        return toList(get(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
             .queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), Event.class);
+            .queryParam("offset", offset)), Event.class);
     }
 
     /**
@@ -2127,13 +3195,12 @@ public class FacebookConnector
                                @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{user}/inbox").build(user);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+        WebResource resource = resource(uri);
+        return toList(get(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
             .queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), Thread.class);
+            .queryParam("offset", offset)), Thread.class);
     }
 
     /**
@@ -2158,13 +3225,12 @@ public class FacebookConnector
                                 @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{user}/outbox").build(user);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+        WebResource resource = resource(uri);
+        return toList(get(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
             .queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), OutboxThread.class);
+            .queryParam("offset", offset)), OutboxThread.class);
     }
 
     /**
@@ -2188,13 +3254,12 @@ public class FacebookConnector
                                  @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{user}/updates").build(user);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+        WebResource resource = resource(uri);
+        return toList(get(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
             .queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), OutboxThread.class);
+            .queryParam("offset", offset)), OutboxThread.class);
     }
 
     /**
@@ -2217,13 +3282,12 @@ public class FacebookConnector
                                   @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{user}/accounts").build(user);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+        WebResource resource = resource(uri);
+        return toList(get(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
             .queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), GetUserAccountResponseType.class);
+            .queryParam("offset", offset)), GetUserAccountResponseType.class);
     }
 
     /**
@@ -2242,11 +3306,10 @@ public class FacebookConnector
     public Video getVideo(@OAuthAccessToken String accessToken, String video, @Optional @Default("0") String metadata)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{video}").build(video);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaObject(resource
+        WebResource resource = resource(uri);
+        return mapper.toJavaObject(get(resource
             .queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
-            .queryParam("metadata", metadata)
-            .get(String.class), Video.class);
+            .queryParam("metadata", metadata)), Video.class);
     }
 
     /**
@@ -2268,12 +3331,11 @@ public class FacebookConnector
                                    @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{video}/comments").build(video);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam("since", since)
+        WebResource resource = resource(uri);
+        return readList(resource.queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), Comment.class);
+            .queryParam("offset", offset), Comment.class);
     }
 
     /**
@@ -2302,7 +3364,7 @@ public class FacebookConnector
                                  @Optional String description)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{profile_id}/feed").build(profile_id);
-        WebResource resource = client.resource(uri);
+        WebResource resource = resource(uri);
         Form form = new Form();
         form.add("access_token", accessToken);
         form.add("message", msg);
@@ -2313,7 +3375,10 @@ public class FacebookConnector
         if (name != null) form.add("name", name);
         if (description != null) form.add("description", description);
 
-        return resource.type(MediaType.APPLICATION_FORM_URLENCODED).post(String.class, form);
+        String id = resource.type(MediaType.APPLICATION_FORM_URLENCODED).post(String.class, form);
+        invalidate(uri);
+        published(accessToken, profile_id, "feed", id, form, false);
+        return id;
     }
 
     /**
@@ -2329,14 +3394,17 @@ public class FacebookConnector
     public String publishComment(@OAuthAccessToken String accessToken, String postId, String msg)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{postId}/comments").build(postId);
-        WebResource resource = client.resource(uri);
+        WebResource resource = resource(uri);
         Form form = new Form();
         form.add("access_token", accessToken);
         form.add("message", msg);
 
         WebResource.Builder type = resource.type(MediaType.APPLICATION_FORM_URLENCODED);
-        return type.accept(MediaType.APPLICATION_JSON_TYPE, MediaType.APPLICATION_XML_TYPE)
+        String id = type.accept(MediaType.APPLICATION_JSON_TYPE, MediaType.APPLICATION_XML_TYPE)
                         .post(String.class, form);
+        invalidate(uri);
+        published(accessToken, postId, "comments", id, form, true);
+        return id;
     }
 
     /**
@@ -2350,8 +3418,9 @@ public class FacebookConnector
     public void like(@OAuthAccessToken String accessToken, String postId)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{postId}/likes").build(postId);
-        WebResource resource = client.resource(uri).queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken);
+        WebResource resource = resource(uri).queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken);
         resource.type(MediaType.APPLICATION_FORM_URLENCODED).post();
+        invalidate(uri);
     }
 
     /**
@@ -2368,12 +3437,13 @@ public class FacebookConnector
                             String subject)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{profile_id}/notes").build(profile_id);
-        WebResource resource = client.resource(uri).queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken);
+        WebResource resource = resource(uri).queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken);
         Form form = new Form();
         form.add("message", msg);
         form.add("subject", subject);
 
         resource.type(MediaType.APPLICATION_FORM_URLENCODED).post(form);
+        invalidate(uri);
     }
 
     /**
@@ -2389,12 +3459,13 @@ public class FacebookConnector
     public void publishLink(@OAuthAccessToken String accessToken, String profile_id, String msg, String link)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{profile_id}/links").build(profile_id);
-        WebResource resource = client.resource(uri).queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken);
+        WebResource resource = resource(uri).queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken);
         Form form = new Form();
         form.add("message", msg);
         form.add("link", link);
 
         resource.type(MediaType.APPLICATION_FORM_URLENCODED).post(form);
+        invalidate(uri);
     }
 
     /**
@@ -2408,8 +3479,9 @@ public class FacebookConnector
     public void publishEvent(@OAuthAccessToken String accessToken, String profile_id)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{profile_id}/events").build(profile_id);
-        WebResource resource = client.resource(uri).queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken);
+        WebResource resource = resource(uri).queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken);
         resource.type(MediaType.APPLICATION_FORM_URLENCODED).post();
+        invalidate(uri);
     }
 
     /**
@@ -2423,8 +3495,9 @@ public class FacebookConnector
     public void attendEvent(@OAuthAccessToken String accessToken, String eventId)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{eventId}/attending").build(eventId);
-        WebResource resource = client.resource(uri).queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken);
+        WebResource resource = resource(uri).queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken);
         resource.type(MediaType.APPLICATION_FORM_URLENCODED).post();
+        invalidate(uri);
     }
 
     /**
@@ -2438,8 +3511,9 @@ public class FacebookConnector
     public void tentativeEvent(@OAuthAccessToken String accessToken, String eventId)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{eventId}/maybe").build(eventId);
-        WebResource resource = client.resource(uri).queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken);
+        WebResource resource = resource(uri).queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken);
         resource.type(MediaType.APPLICATION_FORM_URLENCODED).post();
+        invalidate(uri);
     }
 
     /**
@@ -2453,8 +3527,9 @@ public class FacebookConnector
     public void declineEvent(@OAuthAccessToken String accessToken, String eventId)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{eventId}/declined").build(eventId);
-        WebResource resource = client.resource(uri).queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken);
+        WebResource resource = resource(uri).queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken);
         resource.type(MediaType.APPLICATION_FORM_URLENCODED).post();
+        invalidate(uri);
     }
 
     /**
@@ -2471,12 +3546,13 @@ public class FacebookConnector
     public void publishAlbum(@OAuthAccessToken String accessToken, String profile_id, String msg, String name)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{profile_id}/albums").build(profile_id);
-        WebResource resource = client.resource(uri).queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken);
+        WebResource resource = resource(uri).queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken);
         Form form = new Form();
         form.add("message", msg);
         form.add("name", name);
 
         resource.type(MediaType.APPLICATION_FORM_URLENCODED).post(form);
+        invalidate(uri);
     }
 
     /**
@@ -2492,12 +3568,13 @@ public class FacebookConnector
     public void publishPhoto(@OAuthAccessToken String accessToken, String albumId, String caption, File photo)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{albumId}/photos").build(albumId);
-        WebResource resource = client.resource(uri).queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken);
+        WebResource resource = resource(uri).queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken);
         FormDataMultiPart multiPart = new FormDataMultiPart();
         multiPart.bodyPart(new BodyPart(photo, MediaType.APPLICATION_OCTET_STREAM_TYPE));
         multiPart.field("message", caption);
 
         resource.type(MediaType.MULTIPART_FORM_DATA).post(multiPart);
+        invalidate(uri);
     }
 
     /**
@@ -2511,9 +3588,13 @@ public class FacebookConnector
     public void deleteObject(@OAuthAccessToken String accessToken, String objectId)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{object_id}").build(objectId);
-        WebResource resource = client.resource(uri).queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken);
+        WebResource resource = resource(uri).queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken);
         resource.type(MediaType.APPLICATION_FORM_URLENCODED).post();
-
+        invalidate(uri);
+        if (overlay != null)
+        {
+            overlay.remove(objectId);
+        }
     }
 
     /**
@@ -2527,8 +3608,9 @@ public class FacebookConnector
     public void dislike(@OAuthAccessToken String accessToken, String postId)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{postId}/likes").build(postId);
-        WebResource resource = client.resource(uri).queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken);
+        WebResource resource = resource(uri).queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken);
         resource.type(MediaType.APPLICATION_FORM_URLENCODED).post();
+        invalidate(uri);
     }
 
     /**
@@ -2546,8 +3628,8 @@ public class FacebookConnector
     public Checkin getCheckin(@OAuthAccessToken String accessToken, String checkin, @Optional @Default("0") String metadata)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{checkin}").build(checkin);
-        WebResource resource = client.resource(uri).queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken);
-        return mapper.toJavaObject(resource.queryParam("metadata", metadata).get(String.class), Checkin.class);
+        WebResource resource = resource(uri).queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken);
+        return mapper.toJavaObject(get(resource.queryParam("metadata", metadata)), Checkin.class);
     }
 
     /**
@@ -2562,8 +3644,8 @@ public class FacebookConnector
     public Application getApplication(@OAuthAccessToken String accessToken, String application)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{application}").build(application);
-        WebResource resource = client.resource(uri).queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken);
-        return mapper.toJavaObject( resource.get(String.class), Application.class);
+        WebResource resource = resource(uri).queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken);
+        return mapper.toJavaObject( get(resource), Application.class);
     }
 
     /**
@@ -2586,12 +3668,11 @@ public class FacebookConnector
                                      @Optional @Default("2") String offset)
     {
         URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{application}/feed").build(application);
-        WebResource resource = client.resource(uri).queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken);
-        return mapper.toJavaList(resource.queryParam("since", since)
+        WebResource resource = resource(uri).queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken);
+        return readList(resource.queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), Post.class);
+            .queryParam("offset", offset), Post.class);
     }
 
     /**
@@ -2607,271 +3688,737 @@ public class FacebookConnector
     @Processor
     public Byte[] getApplicationPicture(@OAuthAccessToken String accessToken, String application, @Optional @Default("small") String type)
     {
-        URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{application}/picture").build(application);
-        WebResource resource = client.resource(uri).queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken);
-        BufferedImage image = resource.queryParam("type", type).get(BufferedImage.class);
-        return bufferedImageToByteArray(image);
+        URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{application}/picture").build(application);
+        WebResource resource = resource(uri).queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken);
+        BufferedImage image = resource.queryParam("type", type).get(BufferedImage.class);
+        return bufferedImageToByteArray(image);
+    }
+
+    /**
+     * The photos, videos, and posts in which this application has been tagged.
+     * 
+     * {@sample.xml ../../../doc/mule-module-facebook.xml.sample
+     * facebook:getApplicationTagged}
+     * 
+     * @param accessToken the access token to use to authentica the request to Facebook
+     * @param application Represents the ID of the application object.
+     * @param since A unix timestamp or any date accepted by strtotime
+     * @param until A unix timestamp or any date accepted by strtotime
+     * @param limit Limit the number of items returned.
+     * @param offset An offset to the response. Useful for paging.
+     * @return The posts where this application has been tagged
+     */
+    @Processor
+    public List<GetApplicationTaggedResponseType> getApplicationTagged(@OAuthAccessToken String accessToken, String application,
+                                       @Optional @Default("last week") String since,
+                                       @Optional @Default("yesterday") String until,
+                                       @Optional @Default("3") String limit,
+                                       @Optional @Default("2") String offset)
+    {
+        URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{application}/tagged").build(application);
+        WebResource resource = resource(uri).queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken);
+        return toList(get(resource.queryParam("since", since)
+            .queryParam("until", until)
+            .queryParam("limit", limit)
+            .queryParam("offset", offset)), GetApplicationTaggedResponseType.class);
+    }
+
+    /**
+     * The application's posted links. 
+     * {@sample.xml ../../../doc/mule-module-facebook.xml.sample facebook:getApplicationLinks}
+     * 
+     * @param accessToken the access token to use to authentica the request to Facebook
+     * @param application Represents the ID of the application object.
+     * @param since A unix timestamp or any date accepted by strtotime
+     * @param until A unix timestamp or any date accepted by strtotime
+     * @param limit Limit the number of items returned.
+     * @param offset An offset to the response. Useful for paging.
+     * @return A list containig the links of the given application
+     */
+    @Processor
+    public List<Post> getApplicationLinks(@OAuthAccessToken String accessToken, String application,
+                                      @Optional @Default("last week") String since,
+                                      @Optional @Default("yesterday") String until,
+                                      @Optional @Default("3") String limit,
+                                      @Optional @Default("2") String offset)
+    {
+        URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{application}/links").build(application);
+        WebResource resource = resource(uri);
+        return readList(resource.queryParam("since", since)
+            .queryParam("until", until)
+            .queryParam("limit", limit)
+            .queryParam("offset", offset), Post.class);
+    }
+
+    /**
+     * The photos this application is tagged in. 
+     * {@sample.xml ../../../doc/mule-module-facebook.xml.sample facebook:getApplicationPhotos}
+     *
+     * @param accessToken the access token to use to authentica the request to Facebook
+     * @param application Represents the ID of the application object.
+     * @param since A unix timestamp or any date accepted by shorttime
+     * @param until A unix timestamp or any date accepted by shorttime
+     * @param limit Limit the number of items returned.
+     * @param offset An offset to the response. Useful for paging.
+     * @return A list with photos
+     */
+    @Processor
+    public List<Photo> getApplicationPhotos(@OAuthAccessToken String accessToken, String application,
+                                       @Optional @Default("last week") String since,
+                                       @Optional @Default("yesterday") String until,
+                                       @Optional @Default("3") String limit,
+                                       @Optional @Default("2") String offset)
+    {
+        URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{application}/photos").build(application);
+        WebResource resource = resource(uri).queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken);
+        return toList(get(resource.queryParam("since", since)
+            .queryParam("until", until)
+            .queryParam("limit", limit)
+            .queryParam("offset", offset)), Photo.class);
+    }
+
+    /**
+     * The photo albums this application has created. 
+     * {@sample.xml ../../../doc/mule-module-facebook.xml.sample facebook:getApplicationAlbums}
+     * 
+     * @param accessToken the access token to use to authentica the request to Facebook
+     * @param application Represents the ID of the application object.
+     * @param since A unix timestamp or any date accepted by strtotime
+     * @param until A unix timestamp or any date accepted by strtotime
+     * @param limit Limit the number of items returned.
+     * @param offset An offset to the response. Useful for paging.
+     * @return A list containing the given application's albums
+     */
+    @Processor
+    public List<Album> getApplicationAlbums(@OAuthAccessToken String accessToken, String application,
+                                       @Optional @Default("last week") String since,
+                                       @Optional @Default("yesterday") String until,
+                                       @Optional @Default("3") String limit,
+                                       @Optional @Default("2") String offset)
+    {
+        URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{application}/albums").build(application);
+        WebResource resource = resource(uri).queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken);
+        return toList(get(resource.queryParam("since", since)
+            .queryParam("until", until)
+            .queryParam("limit", limit)
+            .queryParam("offset", offset)), Album.class);
+    }
+
+    /**
+     * The application's status updates. 
+     * {@sample.xml ../../../doc/mule-module-facebook.xml.sample facebook:getApplicationStatuses}
+     * 
+     * @param accessToken the access token to use to authentica the request to Facebook
+     * @param application Represents the ID of the application object.
+     * @param since A unix timestamp or any date accepted by strtotime
+     * @param until A unix timestamp or any date accepted by strtotime
+     * @param limit Limit the number of items returned.
+     * @param offset An offset to the response. Useful for paging.
+     * @return A list containing the status messages for the given application
+     */
+    @Processor
+    public List<StatusMessage> getApplicationStatuses(@OAuthAccessToken String accessToken, String application,
+                                         @Optional @Default("last week") String since,
+                                         @Optional @Default("yesterday") String until,
+                                         @Optional @Default("3") String limit,
+                                         @Optional @Default("2") String offset)
+    {
+        URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{application}/statuses").build(application);
+        WebResource resource = resource(uri);
+        return toList(get(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+            .queryParam("since", since)
+            .queryParam("until", until)
+            .queryParam("limit", limit)
+            .queryParam("offset", offset)), StatusMessage.class);
     }
 
     /**
-     * The photos, videos, and posts in which this application has been tagged.
-     * 
-     * {@sample.xml ../../../doc/mule-module-facebook.xml.sample
-     * facebook:getApplicationTagged}
-     * 
+     * The videos this application has created 
+     * {@sample.xml ../../../doc/mule-module-facebook.xml.sample facebook:getApplicationVideos}
+     *
      * @param accessToken the access token to use to authentica the request to Facebook
      * @param application Represents the ID of the application object.
      * @param since A unix timestamp or any date accepted by strtotime
      * @param until A unix timestamp or any date accepted by strtotime
      * @param limit Limit the number of items returned.
      * @param offset An offset to the response. Useful for paging.
-     * @return The posts where this application has been tagged
+     * @return A list of videos for the given application
      */
     @Processor
-    public List<GetApplicationTaggedResponseType> getApplicationTagged(@OAuthAccessToken String accessToken, String application,
+    public List<Video> getApplicationVideos(@OAuthAccessToken String accessToken, String application,
                                        @Optional @Default("last week") String since,
                                        @Optional @Default("yesterday") String until,
                                        @Optional @Default("3") String limit,
                                        @Optional @Default("2") String offset)
     {
-        URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{application}/tagged").build(application);
-        WebResource resource = client.resource(uri).queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken);
-        return mapper.toJavaList(resource.queryParam("since", since)
+        URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{application}/videos").build(application);
+        WebResource resource = resource(uri);
+        return toList(get(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+            .queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), GetApplicationTaggedResponseType.class);
+            .queryParam("offset", offset)), Video.class);
     }
 
     /**
-     * The application's posted links. 
-     * {@sample.xml ../../../doc/mule-module-facebook.xml.sample facebook:getApplicationLinks}
-     * 
+     * The application's notes. 
+     * {@sample.xml ../../../doc/mule-module-facebook.xml.sample facebook:getApplicationNotes}
+     *
      * @param accessToken the access token to use to authentica the request to Facebook
      * @param application Represents the ID of the application object.
      * @param since A unix timestamp or any date accepted by strtotime
      * @param until A unix timestamp or any date accepted by strtotime
      * @param limit Limit the number of items returned.
      * @param offset An offset to the response. Useful for paging.
-     * @return A list containig the links of the given application
+     * @return A list containing the notes for the given application
      */
     @Processor
-    public List<Post> getApplicationLinks(@OAuthAccessToken String accessToken, String application,
+    public List<Note> getApplicationNotes(@OAuthAccessToken String accessToken, String application,
                                       @Optional @Default("last week") String since,
                                       @Optional @Default("yesterday") String until,
                                       @Optional @Default("3") String limit,
                                       @Optional @Default("2") String offset)
     {
-        URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{application}/links").build(application);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam("since", since)
+        URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{application}/notes").build(application);
+        WebResource resource = resource(uri);
+        return toList(get(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+            .queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), Post.class);
+            .queryParam("offset", offset)), Note.class);
     }
 
     /**
-     * The photos this application is tagged in. 
-     * {@sample.xml ../../../doc/mule-module-facebook.xml.sample facebook:getApplicationPhotos}
+     * The events this page is managing 
+     * {@sample.xml ../../../doc/mule-module-facebook.xml.sample facebook:getApplicationEvents}
      *
      * @param accessToken the access token to use to authentica the request to Facebook
      * @param application Represents the ID of the application object.
-     * @param since A unix timestamp or any date accepted by shorttime
-     * @param until A unix timestamp or any date accepted by shorttime
+     * @param since A unix timestamp or any date accepted by strtotime
+     * @param until A unix timestamp or any date accepted by strtotime
      * @param limit Limit the number of items returned.
      * @param offset An offset to the response. Useful for paging.
-     * @return A list with photos
+     * @return A list containing the events for the given application
      */
     @Processor
-    public List<Photo> getApplicationPhotos(@OAuthAccessToken String accessToken, String application,
+    public List<Event> getApplicationEvents(@OAuthAccessToken String accessToken, String application,
                                        @Optional @Default("last week") String since,
                                        @Optional @Default("yesterday") String until,
                                        @Optional @Default("3") String limit,
                                        @Optional @Default("2") String offset)
     {
-        URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{application}/photos").build(application);
-        WebResource resource = client.resource(uri).queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken);
-        return mapper.toJavaList(resource.queryParam("since", since)
+        URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{application}/events").build(application);
+        WebResource resource = resource(uri);
+        return toList(get(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+            .queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), Photo.class);
+            .queryParam("offset", offset)), Event.class);
     }
 
     /**
-     * The photo albums this application has created. 
-     * {@sample.xml ../../../doc/mule-module-facebook.xml.sample facebook:getApplicationAlbums}
-     * 
+     * Usage metrics for this application 
+     * {@sample.xml ../../../doc/mule-module-facebook.xml.sample facebook:getApplicationInsights}
+     *
      * @param accessToken the access token to use to authentica the request to Facebook
      * @param application Represents the ID of the application object.
      * @param since A unix timestamp or any date accepted by strtotime
      * @param until A unix timestamp or any date accepted by strtotime
      * @param limit Limit the number of items returned.
      * @param offset An offset to the response. Useful for paging.
-     * @return A list containing the given application's albums
+     * @return A list containing the insights for the given application
      */
     @Processor
-    public List<Album> getApplicationAlbums(@OAuthAccessToken String accessToken, String application,
-                                       @Optional @Default("last week") String since,
-                                       @Optional @Default("yesterday") String until,
-                                       @Optional @Default("3") String limit,
-                                       @Optional @Default("2") String offset)
+    public List<Insight> getApplicationInsights(@OAuthAccessToken String accessToken, String application,
+                                         @Optional @Default("last week") String since,
+                                         @Optional @Default("yesterday") String until,
+                                         @Optional @Default("3") String limit,
+                                         @Optional @Default("2") String offset)
     {
-        URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{application}/albums").build(application);
-        WebResource resource = client.resource(uri).queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken);
-        return mapper.toJavaList(resource.queryParam("since", since)
+        URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{application}/insights").build(application);
+        WebResource resource = resource(uri);
+        return toList(get(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+            .queryParam("since", since)
             .queryParam("until", until)
             .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), Album.class);
+            .queryParam("offset", offset)), Insight.class);
     }
 
     /**
-     * The application's status updates. 
-     * {@sample.xml ../../../doc/mule-module-facebook.xml.sample facebook:getApplicationStatuses}
-     * 
+     * Exports the usage metrics of an application to a compact columnar file,
+     * with one column per metric holding the end times and values in primitive
+     * arrays, metric names encoded in a dictionary and compressed blocks. The file
+     * is read back with {@link org.mule.module.facebook.insights.InsightsFileReader}.
+     * Every page of the insights is read. The file is written next to the given
+     * one and only renamed to it once complete, so a failed export leaves no
+     * partial file behind.
+     * <p/>
+     * {@sample.xml ../../../doc/mule-module-facebook.xml.sample facebook:export-application-insights}
+     *
      * @param accessToken the access token to use to authentica the request to Facebook
      * @param application Represents the ID of the application object.
      * @param since A unix timestamp or any date accepted by strtotime
      * @param until A unix timestamp or any date accepted by strtotime
-     * @param limit Limit the number of items returned.
-     * @param offset An offset to the response. Useful for paging.
-     * @return A list containing the status messages for the given application
+     * @param file The file to write to
+     * @param blockSize The number of values of a metric per compressed block
+     * @return the counters of the export, its items being the values written
+     * @throws IOException if the file can not be written
      */
     @Processor
-    public List<StatusMessage> getApplicationStatuses(@OAuthAccessToken String accessToken, String application,
-                                         @Optional @Default("last week") String since,
-                                         @Optional @Default("yesterday") String until,
-                                         @Optional @Default("3") String limit,
-                                         @Optional @Default("2") String offset)
+    public ExportStatistics exportApplicationInsights(@OAuthAccessToken String accessToken, String application,
+                                                      @Optional @Default("last week") String since,
+                                                      @Optional @Default("yesterday") String until,
+                                                      String file,
+                                                      @Optional @Default("4096") int blockSize) throws IOException
     {
-        URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{application}/statuses").build(application);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
-            .queryParam("since", since)
-            .queryParam("until", until)
-            .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), StatusMessage.class);
+        long started = System.currentTimeMillis();
+        URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{application}/insights").build(application);
+        File target = new File(file);
+        File temporary = new File(file + ".tmp");
+        InsightsFileWriter writer = new InsightsFileWriter(new BufferedOutputStream(new FileOutputStream(temporary), 64 * 1024), blockSize);
+        int pages;
+        try
+        {
+            pages = visitInsights(resource(uri).queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+                .queryParam("since", since)
+                .queryParam("until", until), writer);
+            writer.close();
+        }
+        catch (RuntimeException e)
+        {
+            discard(writer, temporary);
+            throw e;
+        }
+        catch (IOException e)
+        {
+            discard(writer, temporary);
+            throw e;
+        }
+        replace(temporary, target);
+        return new ExportStatistics(writer.getCount(), pages, writer.getBytes(), System.currentTimeMillis() - started);
     }
 
     /**
-     * The videos this application has created 
-     * {@sample.xml ../../../doc/mule-module-facebook.xml.sample facebook:getApplicationVideos}
+     * Renames a complete export to its file, replacing the previous one
+     */
+    private static void replace(File temporary, File target) throws IOException
+    {
+        if (!temporary.renameTo(target))
+        {
+            target.delete();
+            if (!temporary.renameTo(target))
+            {
+                throw new IOException("Could not replace " + target);
+            }
+        }
+    }
+
+    /**
+     * Closes the writer of a failed export and deletes its partial file, so no
+     * complete looking file is left behind
+     */
+    private static void discard(InsightsFileWriter writer, File file)
+    {
+        try
+        {
+            writer.close();
+        }
+        catch (IOException e)
+        {
+            LOGGER.debug("Could not close the partial insights file " + file, e);
+        }
+        file.delete();
+    }
+
+    /**
+     * Closes the file of a failed export and deletes it, so no complete looking
+     * file is left behind. Streams given by the caller are left open.
+     * 
+     * @param file the partial file, or null if the export was written to a stream
+     */
+    private static void discard(OutputStream out, File file)
+    {
+        if (file == null)
+        {
+            return;
+        }
+        try
+        {
+            out.close();
+        }
+        catch (IOException e)
+        {
+            LOGGER.debug("Could not close the partial export " + file, e);
+        }
+        file.delete();
+    }
+
+    /**
+     * Adds the usage metrics of an application to its rollup by period, and
+     * returns the sum, count, average and percentiles of each metric over each of
+     * the latest periods. The rollup lives in the connector and only keeps
+     * primitive aggregates and samples, so it can be fed incrementally as new
+     * insights become available; every page of the insights is read and values
+     * fetched again replace the previous ones. Each application, period, number
+     * of periods and number of samples has its own rollup, and the connector
+     * keeps the 64 most recently used, dropping the others.
+     * <p/>
+     * {@sample.xml ../../../doc/mule-module-facebook.xml.sample facebook:rollup-application-insights}
      *
      * @param accessToken the access token to use to authentica the request to Facebook
      * @param application Represents the ID of the application object.
      * @param since A unix timestamp or any date accepted by strtotime
      * @param until A unix timestamp or any date accepted by strtotime
-     * @param limit Limit the number of items returned.
-     * @param offset An offset to the response. Useful for paging.
-     * @return A list of videos for the given application
+     * @param period The period to roll up by: DAY, WEEK or MONTH
+     * @param periods The number of periods kept per metric
+     * @param samples The number of values kept per metric for the percentiles
+     * @return the aggregates, by metric then oldest period first
      */
     @Processor
-    public List<Video> getApplicationVideos(@OAuthAccessToken String accessToken, String application,
-                                       @Optional @Default("last week") String since,
-                                       @Optional @Default("yesterday") String until,
-                                       @Optional @Default("3") String limit,
-                                       @Optional @Default("2") String offset)
+    public List<RollupBucket> rollupApplicationInsights(@OAuthAccessToken String accessToken, String application,
+                                                        @Optional @Default("last week") String since,
+                                                        @Optional @Default("yesterday") String until,
+                                                        @Optional @Default("DAY") RollupPeriod period,
+                                                        @Optional @Default("90") int periods,
+                                                        @Optional @Default("4096") int samples)
+    {
+        String key = application + "/" + period + "/" + periods + "/" + samples;
+        InsightRollup rollup;
+        synchronized (rollups)
+        {
+            rollup = rollups.get(key);
+            if (rollup == null)
+            {
+                rollup = new InsightRollup(period, periods, samples);
+                rollups.put(key, rollup);
+            }
+        }
+        URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{application}/insights").build(application);
+        visitInsights(resource(uri).queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
+            .queryParam("since", since)
+            .queryParam("until", until), rollup);
+        return rollup.getBuckets();
+    }
+    
+    /**
+     * Runs the JSON mapping path once so the reflection metadata of restfb is
+     * already loaded when the first response arrives
+     */
+    private void warmUpMapper()
+    {
+        mapper.toJavaObject(WARM_UP_JSON, User.class);
+        mapper.toJavaList("[" + WARM_UP_JSON + "]", Post.class);
+    }
+
+    /**
+     * Creates a resource with the timeouts of the current event applied
+     */
+    private WebResource resource(URI uri)
+    {
+        WebResource resource = client.resource(uri);
+        timeouts.apply(resource);
+        return resource;
+    }
+
+    /**
+     * Reads the given resource. Every read of the Graph API made by a processor
+     * goes through here: connection reads resume from their checkpoint and
+     * responses are cached when enabled.
+     */
+    private String get(WebResource resource)
+    {
+        String json = checkpointedFetch(resource);
+        return overlay == null ? json : overlay.merge(resource.getURI(), json);
+    }
+
+    /**
+     * Reads the given resource as UTF-8 bytes. When no checkpoint, cache, overlay
+     * or hedging applies to reads, the bytes are those of the response, never
+     * decoded into a string.
+     */
+    private byte[] getBytes(WebResource resource)
+    {
+        if (checkpoints == null && readCache == null && negativeCache == null && overlay == null && hedger == null)
+        {
+            return resource.get(byte[].class);
+        }
+        return LazyJsonObject.utf8(get(resource));
+    }
+
+    /**
+     * Sends the given read, resuming it from its checkpoint when it has one
+     */
+    private String checkpointedFetch(WebResource resource)
+    {
+        String key = checkpoints == null ? null : checkpoints.key(resource.getURI());
+        if (key == null)
+        {
+            return cachedFetch(resource);
+        }
+        String json = cachedFetch(resource(checkpoints.resume(resource.getURI(), key)));
+        checkpoints.record(key, json);
+        return json;
+    }
+
+    /**
+     * Sends the given search, unless an identical one was sent in the current
+     * bucket
+     */
+    private String search(final WebResource resource)
+    {
+        if (searchCache == null)
+        {
+            return get(resource);
+        }
+        return searchCache.read(resource.getURI(), new ReadCache.Loader()
+        {
+            public String load()
+            {
+                return get(resource);
+            }
+        });
+    }
+
+    /**
+     * Remembers an object published to the given connection so it is added to
+     * its reads
+     * 
+     * @param response the response of the publish request
+     * @param form the fields of the object
+     * @param visibleToAll whether the object is seen by whoever may read the
+     *            connection, so it is added to its reads made with any token
+     */
+    private void published(String accessToken, String target, String connection, String response, Form form,
+                           boolean visibleToAll)
+    {
+        String id = overlay == null ? null : WriteOverlay.id(response);
+        if (id == null)
+        {
+            return;
+        }
+        ObjectNode item = WriteOverlay.item(id);
+        for (String field : form.keySet())
+        {
+            if (!field.equals(ACCESS_TOKEN_QUERY_PARAM_NAME))
+            {
+                item.put(field, form.getFirst(field));
+            }
+        }
+        overlay.add(accessToken, target, connection, item, visibleToAll);
+    }
+
+    /**
+     * Stops serving the cached reads of the object written through the given uri.
+     * The object is the first segment of its path as written: me is not resolved
+     * to the id of the user of the token, so the reads made through that id are
+     * still served, and a photo published to an album only invalidates the
+     * album, not the feed and photos of its owner. Reads in those gaps are only
+     * refreshed once their time to live has passed.
+     */
+    private void invalidate(URI uri)
+    {
+        if (readCache != null)
+        {
+            readCache.invalidate(GraphUris.objectId(uri));
+        }
+    }
+
+    private String searchQuery(String q)
+    {
+        return searchCache == null ? q : SearchNormalizer.query(q);
+    }
+
+    private String searchSince(String time)
+    {
+        return searchCache == null ? time : SearchNormalizer.snap(time, System.currentTimeMillis(), searchCacheBucket);
+    }
+
+    private String searchUntil(String time)
+    {
+        return searchCache == null ? time : SearchNormalizer.snapUp(time, System.currentTimeMillis(), searchCacheBucket);
+    }
+
+    /**
+     * Sends the given read, unless its response is cached or it failed recently
+     */
+    private String cachedFetch(final WebResource resource)
+    {
+        if (negativeCache != null)
+        {
+            negativeCache.check(resource.getURI());
+        }
+        try
+        {
+            if (readCache == null)
+            {
+                return fetch(resource);
+            }
+            return readCache.read(resource.getURI(), new ReadCache.Loader()
+            {
+                public String load()
+                {
+                    return fetch(resource);
+                }
+            });
+        }
+        catch (UniformInterfaceException e)
+        {
+            if (negativeCache == null)
+            {
+                throw e;
+            }
+            throw negativeCache.record(resource.getURI(), e);
+        }
+    }
+
+    /**
+     * Sends the given read, hedged when enabled
+     */
+    private String fetch(WebResource resource)
+    {
+        if (hedger != null)
+        {
+            return hedger.get(resource);
+        }
+        return resource.get(String.class);
+    }
+
+    /**
+     * Reads a connection of posts or comments. When deduplication is enabled, the
+     * items already returned by a previous read of the same connection with the
+     * same access token are dropped before being decoded.
+     */
+    private <T> List<T> readList(WebResource resource, Class<T> type)
+    {
+        String json = get(resource);
+        if (deduplicator == null)
+        {
+            return toList(json, type);
+        }
+        Object data = LazyJsonObject.parse(json).get("data");
+        if (!(data instanceof LazyJsonArray))
+        {
+            return toList(json, type);
+        }
+        String scope = deduplicationScope(resource.getURI());
+        StringBuilder kept = new StringBuilder(json.length()).append('[');
+        for (Object item : (LazyJsonArray) data)
+        {
+            if (item instanceof LazyJsonObject && deduplicator.firstSeen(deduplicationKey(scope, (LazyJsonObject) item)))
+            {
+                if (kept.length() > 1)
+                {
+                    kept.append(',');
+                }
+                kept.append(item);
+            }
+        }
+        return toList(kept.append(']').toString(), type);
+    }
+
+    /**
+     * Decodes a list response. When enabled, the ids of the result are interned.
+     */
+    private <T> List<T> toList(String json, Class<T> type)
+    {
+        List<T> result = mapper.toJavaList(json, type);
+        if (internIds)
+        {
+            new IdInterner().internAll(result);
+        }
+        return result;
+    }
+
+    /**
+     * @return the access token and the connection read, without the time window
+     *         and paging parameters
+     */
+    private static String deduplicationScope(URI uri)
+    {
+        StringBuilder scope = new StringBuilder(GraphUris.tokenHash(uri)).append(uri.getRawPath());
+        if (uri.getRawQuery() != null)
+        {
+            for (String parameter : uri.getRawQuery().split("&"))
+            {
+                int equals = parameter.indexOf('=');
+                if (!PAGING_PARAMETERS.contains(equals < 0 ? parameter : parameter.substring(0, equals)))
+                {
+                    scope.append('&').append(parameter);
+                }
+            }
+        }
+        return scope.toString();
+    }
+
+    private static String deduplicationKey(String scope, LazyJsonObject item)
     {
-        URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{application}/videos").build(application);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
-            .queryParam("since", since)
-            .queryParam("until", until)
-            .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), Video.class);
+        Object time = item.get("updated_time");
+        if (time == null)
+        {
+            time = item.get("created_time");
+        }
+        return scope + '|' + item.get("id") + '@' + time;
     }
 
     /**
-     * The application's notes. 
-     * {@sample.xml ../../../doc/mule-module-facebook.xml.sample facebook:getApplicationNotes}
-     *
-     * @param accessToken the access token to use to authentica the request to Facebook
-     * @param application Represents the ID of the application object.
-     * @param since A unix timestamp or any date accepted by strtotime
-     * @param until A unix timestamp or any date accepted by strtotime
-     * @param limit Limit the number of items returned.
-     * @param offset An offset to the response. Useful for paging.
-     * @return A list containing the notes for the given application
+     * Follows the next link of the given connection page
+     * 
+     * @return the next page, or null if the given one is the last
      */
-    @Processor
-    public List<Note> getApplicationNotes(@OAuthAccessToken String accessToken, String application,
-                                      @Optional @Default("last week") String since,
-                                      @Optional @Default("yesterday") String until,
-                                      @Optional @Default("3") String limit,
-                                      @Optional @Default("2") String offset)
+    private ConnectionPage nextPage(ConnectionPage page)
     {
-        URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{application}/notes").build(application);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
-            .queryParam("since", since)
-            .queryParam("until", until)
-            .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), Note.class);
+        if (page.getNext() == null || page.isEmpty())
+        {
+            return null;
+        }
+        return ConnectionPage.parse(fetch(resource(URI.create(page.getNext()))));
     }
 
     /**
-     * The events this page is managing 
-     * {@sample.xml ../../../doc/mule-module-facebook.xml.sample facebook:getApplicationEvents}
-     *
-     * @param accessToken the access token to use to authentica the request to Facebook
-     * @param application Represents the ID of the application object.
-     * @param since A unix timestamp or any date accepted by strtotime
-     * @param until A unix timestamp or any date accepted by strtotime
-     * @param limit Limit the number of items returned.
-     * @param offset An offset to the response. Useful for paging.
-     * @return A list containing the events for the given application
+     * Gives every value of every page of the given insights read to the visitor.
+     * Pages are followed until one holds no value: the windows after the newest
+     * values come back empty rather than without a next page.
+     * 
+     * @return the number of pages read
      */
-    @Processor
-    public List<Event> getApplicationEvents(@OAuthAccessToken String accessToken, String application,
-                                       @Optional @Default("last week") String since,
-                                       @Optional @Default("yesterday") String until,
-                                       @Optional @Default("3") String limit,
-                                       @Optional @Default("2") String offset)
+    private int visitInsights(WebResource resource, final InsightVisitor visitor)
     {
-        URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{application}/events").build(application);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
-            .queryParam("since", since)
-            .queryParam("until", until)
-            .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), Event.class);
+        final long[] values = new long[1];
+        InsightVisitor counter = new InsightVisitor()
+        {
+            public void value(String metric, long time, double value)
+            {
+                values[0]++;
+                visitor.value(metric, time, value);
+            }
+        };
+        int pages = 0;
+        ConnectionPage page = ConnectionPage.parse(fetch(resource));
+        while (page != null)
+        {
+            pages++;
+            long visited = values[0];
+            InsightValues.visit(page.getItems(), counter);
+            page = values[0] == visited ? null : nextPage(page);
+        }
+        return pages;
     }
 
     /**
-     * Usage metrics for this application 
-     * {@sample.xml ../../../doc/mule-module-facebook.xml.sample facebook:getApplicationInsights}
-     *
-     * @param accessToken the access token to use to authentica the request to Facebook
-     * @param application Represents the ID of the application object.
-     * @param since A unix timestamp or any date accepted by strtotime
-     * @param until A unix timestamp or any date accepted by strtotime
-     * @param limit Limit the number of items returned.
-     * @param offset An offset to the response. Useful for paging.
-     * @return A list containing the insights for the given application
+     * Reads every page of the given connection
      */
-    @Processor
-    public List<Insight> getApplicationInsights(@OAuthAccessToken String accessToken, String application,
-                                         @Optional @Default("last week") String since,
-                                         @Optional @Default("yesterday") String until,
-                                         @Optional @Default("3") String limit,
-                                         @Optional @Default("2") String offset)
+    private List<JsonNode> readAll(WebResource resource)
     {
-        URI uri = UriBuilder.fromPath(FACEBOOK_URI).path("{application}/insights").build(application);
-        WebResource resource = client.resource(uri);
-        return mapper.toJavaList(resource.queryParam(ACCESS_TOKEN_QUERY_PARAM_NAME, accessToken)
-            .queryParam("since", since)
-            .queryParam("until", until)
-            .queryParam("limit", limit)
-            .queryParam("offset", offset)
-            .get(String.class), Insight.class);
+        List<JsonNode> items = new ArrayList<JsonNode>();
+        ConnectionPage page = ConnectionPage.parse(fetch(resource));
+        while (page != null)
+        {
+            items.addAll(page.getItems());
+            page = nextPage(page);
+        }
+        return items;
     }
-    
+
     private Byte[] bufferedImageToByteArray(BufferedImage image)
     {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
@@ -2917,6 +4464,299 @@ public class FacebookConnector
         this.scope = scope;
     }
     
+    public HttpTransport getTransport()
+    {
+        return transport;
+    }
+
+    public void setTransport(HttpTransport transport)
+    {
+        this.transport = transport;
+    }
+
+    public int getMaxConnections()
+    {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections)
+    {
+        this.maxConnections = maxConnections;
+    }
+
+    public int getWarmUpConnections()
+    {
+        return warmUpConnections;
+    }
+
+    public void setWarmUpConnections(int warmUpConnections)
+    {
+        this.warmUpConnections = warmUpConnections;
+    }
+
+    public int getConnectTimeout()
+    {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(int connectTimeout)
+    {
+        this.connectTimeout = connectTimeout;
+        timeouts.setConnectTimeout(connectTimeout);
+    }
+
+    public int getReadTimeout()
+    {
+        return readTimeout;
+    }
+
+    public void setReadTimeout(int readTimeout)
+    {
+        this.readTimeout = readTimeout;
+        timeouts.setReadTimeout(readTimeout);
+    }
+
+    public long getRequestTimeout()
+    {
+        return requestTimeout;
+    }
+
+    public void setRequestTimeout(long requestTimeout)
+    {
+        this.requestTimeout = requestTimeout;
+        timeouts.setRequestTimeout(requestTimeout);
+    }
+
+    public boolean getHedgeReads()
+    {
+        return hedgeReads;
+    }
+
+    public void setHedgeReads(boolean hedgeReads)
+    {
+        this.hedgeReads = hedgeReads;
+    }
+
+    public int getHedgePercentile()
+    {
+        return hedgePercentile;
+    }
+
+    public void setHedgePercentile(int hedgePercentile)
+    {
+        this.hedgePercentile = hedgePercentile;
+    }
+
+    public long getHedgeMinDelay()
+    {
+        return hedgeMinDelay;
+    }
+
+    public void setHedgeMinDelay(long hedgeMinDelay)
+    {
+        this.hedgeMinDelay = hedgeMinDelay;
+    }
+
+    public int getHedgeBudget()
+    {
+        return hedgeBudget;
+    }
+
+    public void setHedgeBudget(int hedgeBudget)
+    {
+        this.hedgeBudget = hedgeBudget;
+    }
+
+    public boolean getDeduplicate()
+    {
+        return deduplicate;
+    }
+
+    public void setDeduplicate(boolean deduplicate)
+    {
+        this.deduplicate = deduplicate;
+    }
+
+    public int getDeduplicationCapacity()
+    {
+        return deduplicationCapacity;
+    }
+
+    public void setDeduplicationCapacity(int deduplicationCapacity)
+    {
+        this.deduplicationCapacity = deduplicationCapacity;
+    }
+
+    public double getDeduplicationFalsePositiveRate()
+    {
+        return deduplicationFalsePositiveRate;
+    }
+
+    public void setDeduplicationFalsePositiveRate(double deduplicationFalsePositiveRate)
+    {
+        this.deduplicationFalsePositiveRate = deduplicationFalsePositiveRate;
+    }
+
+    public String getDeduplicationFile()
+    {
+        return deduplicationFile;
+    }
+
+    public void setDeduplicationFile(String deduplicationFile)
+    {
+        this.deduplicationFile = deduplicationFile;
+    }
+
+    public boolean getResumeFromCheckpoint()
+    {
+        return resumeFromCheckpoint;
+    }
+
+    public void setResumeFromCheckpoint(boolean resumeFromCheckpoint)
+    {
+        this.resumeFromCheckpoint = resumeFromCheckpoint;
+    }
+
+    public String getCheckpointFile()
+    {
+        return checkpointFile;
+    }
+
+    public void setCheckpointFile(String checkpointFile)
+    {
+        this.checkpointFile = checkpointFile;
+    }
+
+    public boolean getInternIds()
+    {
+        return internIds;
+    }
+
+    public void setInternIds(boolean internIds)
+    {
+        this.internIds = internIds;
+    }
+
+    public boolean getCacheReads()
+    {
+        return cacheReads;
+    }
+
+    public void setCacheReads(boolean cacheReads)
+    {
+        this.cacheReads = cacheReads;
+    }
+
+    public long getCacheTtl()
+    {
+        return cacheTtl;
+    }
+
+    public void setCacheTtl(long cacheTtl)
+    {
+        this.cacheTtl = cacheTtl;
+    }
+
+    public long getCacheStaleTtl()
+    {
+        return cacheStaleTtl;
+    }
+
+    public void setCacheStaleTtl(long cacheStaleTtl)
+    {
+        this.cacheStaleTtl = cacheStaleTtl;
+    }
+
+    public boolean getSharedCache()
+    {
+        return sharedCache;
+    }
+
+    public void setSharedCache(boolean sharedCache)
+    {
+        this.sharedCache = sharedCache;
+    }
+
+    public int getCacheMaxEntries()
+    {
+        return cacheMaxEntries;
+    }
+
+    public void setCacheMaxEntries(int cacheMaxEntries)
+    {
+        this.cacheMaxEntries = cacheMaxEntries;
+    }
+
+    public long getSearchCacheBucket()
+    {
+        return searchCacheBucket;
+    }
+
+    public void setSearchCacheBucket(long searchCacheBucket)
+    {
+        this.searchCacheBucket = searchCacheBucket;
+    }
+
+    public String getCacheSnapshotFile()
+    {
+        return cacheSnapshotFile;
+    }
+
+    public void setCacheSnapshotFile(String cacheSnapshotFile)
+    {
+        this.cacheSnapshotFile = cacheSnapshotFile;
+    }
+
+    public long getCacheSnapshotInterval()
+    {
+        return cacheSnapshotInterval;
+    }
+
+    public void setCacheSnapshotInterval(long cacheSnapshotInterval)
+    {
+        this.cacheSnapshotInterval = cacheSnapshotInterval;
+    }
+
+    public long getOffHeapCacheSize()
+    {
+        return offHeapCacheSize;
+    }
+
+    public void setOffHeapCacheSize(long offHeapCacheSize)
+    {
+        this.offHeapCacheSize = offHeapCacheSize;
+    }
+
+    public int getHotCacheEntries()
+    {
+        return hotCacheEntries;
+    }
+
+    public void setHotCacheEntries(int hotCacheEntries)
+    {
+        this.hotCacheEntries = hotCacheEntries;
+    }
+
+    public long getReadYourWritesTtl()
+    {
+        return readYourWritesTtl;
+    }
+
+    public void setReadYourWritesTtl(long readYourWritesTtl)
+    {
+        this.readYourWritesTtl = readYourWritesTtl;
+    }
+
+    public long getNegativeCacheTtl()
+    {
+        return negativeCacheTtl;
+    }
+
+    public void setNegativeCacheTtl(long negativeCacheTtl)
+    {
+        this.negativeCacheTtl = negativeCacheTtl;
+    }
+
     public Client getClient()
     {
         return client;
@@ -0,0 +1,268 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.cache;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Periodically writes the responses of in-memory caches to a local segment
+ * file, and reloads them from it, memory mapped, so a restarted connector starts
+ * with the responses it had. Each cache is a section of the file holding its
+ * responses, still deflated, from the least to the most recently used; only the
+ * responses that may still be served are restored. The file is written to a
+ * temporary file which then replaces the previous one; since the responses were
+ * read with the access tokens of users, only its owner may read or write it.
+ */
+public class CacheSnapshotter
+{
+    private static final Log LOGGER = LogFactory.getLog(CacheSnapshotter.class);
+
+    private static final int MAGIC = 0x46424353;
+    private static final int VERSION = 1;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final File file;
+    private final Map<String, Section> sections = new LinkedHashMap<String, Section>();
+    private ScheduledExecutorService scheduler;
+
+    private static class Section
+    {
+        private final LocalResponseCache cache;
+        private final long grace;
+
+        private Section(LocalResponseCache cache, long grace)
+        {
+            this.cache = cache;
+            this.grace = grace;
+        }
+    }
+
+    public CacheSnapshotter(File file)
+    {
+        this.file = file;
+    }
+
+    /**
+     * @param name the name of the cache in the file
+     * @param cache the cache
+     * @param grace how long its responses are still served once expired, in
+     *            milliseconds
+     */
+    public void add(String name, LocalResponseCache cache, long grace)
+    {
+        sections.put(name, new Section(cache, grace));
+    }
+
+    /**
+     * Loads the responses of the file that have not expired into their caches
+     * 
+     * @param now the current time in milliseconds
+     * @return the number of responses restored
+     */
+    public int restore(long now)
+    {
+        if (!file.isFile())
+        {
+            return 0;
+        }
+        int restored = 0;
+        try
+        {
+            RandomAccessFile in = new RandomAccessFile(file, "r");
+            try
+            {
+                FileChannel channel = in.getChannel();
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+                {
+                    LOGGER.warn("Ignoring " + file + ", it is not a cache snapshot");
+                    return 0;
+                }
+                while (buffer.hasRemaining())
+                {
+                    Section section = sections.get(readString(buffer));
+                    int count = buffer.getInt();
+                    for (int i = 0; i < count; i++)
+                    {
+                        String key = readString(buffer);
+                        long created = buffer.getLong();
+                        long expires = buffer.getLong();
+                        int length = buffer.getInt();
+                        byte[] body = new byte[buffer.getInt()];
+                        if (section == null || now >= expires + section.grace)
+                        {
+                            buffer.position(buffer.position() + body.length);
+                            continue;
+                        }
+                        buffer.get(body);
+                        section.cache.put(key, new CachedResponse(body, length, created, expires));
+                        restored++;
+                    }
+                }
+            }
+            finally
+            {
+                in.close();
+            }
+        }
+        catch (BufferUnderflowException e)
+        {
+            LOGGER.warn("The cache snapshot " + file + " is truncated, restored " + restored + " responses");
+        }
+        catch (IllegalArgumentException e)
+        {
+            LOGGER.warn("The cache snapshot " + file + " is corrupted, restored " + restored + " responses");
+        }
+        catch (NegativeArraySizeException e)
+        {
+            LOGGER.warn("The cache snapshot " + file + " is corrupted, restored " + restored + " responses");
+        }
+        catch (IOException e)
+        {
+            LOGGER.warn("Could not read the cache snapshot " + file, e);
+        }
+        return restored;
+    }
+
+    /**
+     * Writes the responses of the caches to the file
+     * 
+     * @throws IOException if the file can not be written
+     */
+    public synchronized void save() throws IOException
+    {
+        File temporary = new File(file.getPath() + ".tmp");
+        FileOutputStream stream = new FileOutputStream(temporary);
+        temporary.setReadable(false, false);
+        temporary.setWritable(false, false);
+        temporary.setReadable(true, true);
+        temporary.setWritable(true, true);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+        try
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            for (Map.Entry<String, Section> section : sections.entrySet())
+            {
+                Map<String, CachedResponse> entries = section.getValue().cache.entries();
+                writeString(out, section.getKey());
+                out.writeInt(entries.size());
+                for (Map.Entry<String, CachedResponse> entry : entries.entrySet())
+                {
+                    CachedResponse response = entry.getValue();
+                    writeString(out, entry.getKey());
+                    out.writeLong(response.getCreated());
+                    out.writeLong(response.getExpires());
+                    out.writeInt(response.getLength());
+                    out.writeInt(response.getBody().length);
+                    out.write(response.getBody());
+                }
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+        if (!temporary.renameTo(file))
+        {
+            file.delete();
+            if (!temporary.renameTo(file))
+            {
+                throw new IOException("Could not replace " + file);
+            }
+        }
+    }
+
+    /**
+     * Saves the caches every interval
+     * 
+     * @param interval the time between snapshots, in milliseconds
+     */
+    public void start(long interval)
+    {
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+        {
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable, "facebook-cache-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.scheduleWithFixedDelay(new Runnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    save();
+                }
+                catch (IOException e)
+                {
+                    LOGGER.warn("Could not write the cache snapshot " + file, e);
+                }
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the periodic snapshots and takes a last one
+     */
+    public void stop()
+    {
+        if (scheduler != null)
+        {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        try
+        {
+            save();
+        }
+        catch (IOException e)
+        {
+            LOGGER.warn("Could not write the cache snapshot " + file, e);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException
+    {
+        byte[] bytes = value.getBytes(UTF8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer)
+    {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, UTF8);
+    }
+}
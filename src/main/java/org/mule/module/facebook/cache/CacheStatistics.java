@@ -0,0 +1,83 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.cache;
+
+import java.io.Serializable;
+
+/**
+ * Counters of the caches of the connector
+ */
+public class CacheStatistics implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    private final long hits;
+    private final long misses;
+    private final long staleHits;
+    private final long negativeHits;
+    private final int negativeEntries;
+
+    public CacheStatistics(long hits, long misses, long staleHits, long negativeHits, int negativeEntries)
+    {
+        this.hits = hits;
+        this.misses = misses;
+        this.staleHits = staleHits;
+        this.negativeHits = negativeHits;
+        this.negativeEntries = negativeEntries;
+    }
+
+    /**
+     * @return the number of reads served from the response cache
+     */
+    public long getHits()
+    {
+        return hits;
+    }
+
+    /**
+     * @return the number of reads the response cache had to fetch
+     */
+    public long getMisses()
+    {
+        return misses;
+    }
+
+    /**
+     * @return the number of reads served a response past its time to live
+     */
+    public long getStaleHits()
+    {
+        return staleHits;
+    }
+
+    /**
+     * @return the number of reads failed by the negative cache without a request
+     */
+    public long getNegativeHits()
+    {
+        return negativeHits;
+    }
+
+    /**
+     * @return the number of failures remembered by the negative cache
+     */
+    public int getNegativeEntries()
+    {
+        return negativeEntries;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "CacheStatistics[hits=" + hits + " misses=" + misses + " staleHits=" + staleHits + " negativeHits=" + negativeHits
+               + " negativeEntries=" + negativeEntries + "]";
+    }
+}
@@ -0,0 +1,145 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Serializable;
+import java.io.UnsupportedEncodingException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.mule.modules.utils.MuleSoftException;
+
+/**
+ * A response of the Graph API held by a {@link ResponseCache}, deflated so it is
+ * cheap to store and replicate
+ */
+public class CachedResponse implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    private final byte[] body;
+    private final int length;
+    private final long created;
+    private final long expires;
+
+    public CachedResponse(byte[] body, int length, long created, long expires)
+    {
+        this.body = body;
+        this.length = length;
+        this.created = created;
+        this.expires = expires;
+    }
+
+    /**
+     * @param json the response
+     * @param now the current time in milliseconds
+     * @param ttl how long it may be served, in milliseconds
+     * @return the cached response
+     */
+    public static CachedResponse of(String json, long now, long ttl)
+    {
+        try
+        {
+            byte[] raw = json.getBytes("UTF-8");
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try
+            {
+                deflater.setInput(raw);
+                deflater.finish();
+                ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 4 + 16);
+                byte[] buffer = new byte[4096];
+                while (!deflater.finished())
+                {
+                    out.write(buffer, 0, deflater.deflate(buffer));
+                }
+                return new CachedResponse(out.toByteArray(), raw.length, now, now + ttl);
+            }
+            finally
+            {
+                deflater.end();
+            }
+        }
+        catch (UnsupportedEncodingException e)
+        {
+            throw MuleSoftException.soften(e);
+        }
+    }
+
+    /**
+     * @return the response
+     */
+    public String getJson()
+    {
+        Inflater inflater = new Inflater();
+        try
+        {
+            inflater.setInput(body);
+            byte[] raw = new byte[length];
+            int inflated = 0;
+            while (inflated < length && !inflater.finished())
+            {
+                inflated += inflater.inflate(raw, inflated, length - inflated);
+            }
+            return new String(raw, 0, inflated, "UTF-8");
+        }
+        catch (DataFormatException e)
+        {
+            throw new IllegalStateException("Corrupted cached response", e);
+        }
+        catch (UnsupportedEncodingException e)
+        {
+            throw MuleSoftException.soften(e);
+        }
+        finally
+        {
+            inflater.end();
+        }
+    }
+
+    /**
+     * @return the deflated response
+     */
+    public byte[] getBody()
+    {
+        return body;
+    }
+
+    /**
+     * @return the length of the response once inflated
+     */
+    public int getLength()
+    {
+        return length;
+    }
+
+    /**
+     * @return when the response was received, in milliseconds
+     */
+    public long getCreated()
+    {
+        return created;
+    }
+
+    /**
+     * @return when the response stops being served, in milliseconds
+     */
+    public long getExpires()
+    {
+        return expires;
+    }
+
+    public boolean isExpired(long now)
+    {
+        return now >= expires;
+    }
+}
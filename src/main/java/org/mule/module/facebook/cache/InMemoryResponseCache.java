@@ -0,0 +1,62 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A {@link ResponseCache} local to the connector, forgetting the least recently
+ * used responses beyond a maximum number of entries
+ */
+public class InMemoryResponseCache implements LocalResponseCache
+{
+    private final Map<String, CachedResponse> responses;
+
+    public InMemoryResponseCache(final int maxEntries)
+    {
+        responses = new LinkedHashMap<String, CachedResponse>(16, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest)
+            {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public synchronized CachedResponse get(String key)
+    {
+        return responses.get(key);
+    }
+
+    public synchronized void put(String key, CachedResponse response)
+    {
+        responses.put(key, response);
+    }
+
+    public synchronized void remove(String key)
+    {
+        responses.remove(key);
+    }
+
+    public synchronized Map<String, CachedResponse> entries()
+    {
+        return new LinkedHashMap<String, CachedResponse>(responses);
+    }
+
+    public synchronized int size()
+    {
+        return responses.size();
+    }
+}
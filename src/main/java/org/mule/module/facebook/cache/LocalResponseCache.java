@@ -0,0 +1,30 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.cache;
+
+import java.util.Map;
+
+/**
+ * A {@link ResponseCache} held by the connector itself, whose responses can be
+ * listed
+ */
+public interface LocalResponseCache extends ResponseCache
+{
+    /**
+     * @return a copy of the responses, from the least to the most recently used
+     */
+    Map<String, CachedResponse> entries();
+
+    /**
+     * @return the number of responses
+     */
+    int size();
+}
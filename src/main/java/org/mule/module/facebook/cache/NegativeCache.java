@@ -0,0 +1,247 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.mule.module.facebook.http.GraphUris;
+import org.mule.modules.utils.MuleSoftException;
+
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.UniformInterfaceException;
+import com.sun.jersey.core.header.InBoundHeaders;
+import com.sun.jersey.spi.MessageBodyWorkers;
+
+/**
+ * Remembers, for a while, the reads that failed because what they read does not
+ * exist or the access token may not see it, so reading it again with the same
+ * token fails at once without a request. The failures remembered are the 403
+ * and 404 responses, the Graph API error 100 when its message says the object
+ * does not exist, and the errors 10 and 200 to 299 (missing permission). A 404
+ * or an object that does not exist fails every read of the object; a missing
+ * permission only fails the reads of the same path, since it may be missing for
+ * one connection of an object and not for the others. The other errors 100,
+ * such as an invalid parameter, depend on the query of the read and are not
+ * remembered. The failures remembered are rethrown as
+ * the {@link UniformInterfaceException} the original read threw, with the same
+ * status and body.
+ */
+public class NegativeCache
+{
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final long ttl;
+    private final MessageBodyWorkers workers;
+    private final Map<String, Failure> failures;
+    private final AtomicLong hits = new AtomicLong();
+
+    /**
+     * @param ttl how long a failure is remembered, in milliseconds
+     * @param maxEntries the maximum number of failures remembered
+     * @param workers the readers of the entities of the responses rethrown
+     */
+    public NegativeCache(long ttl, final int maxEntries, MessageBodyWorkers workers)
+    {
+        this.ttl = ttl;
+        this.workers = workers;
+        this.failures = new LinkedHashMap<String, Failure>(16, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Failure> eldest)
+            {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Fails if a read of the object of the given uri, or of the same path, failed
+     * recently
+     * 
+     * @param uri the uri of a read
+     * @throws UniformInterfaceException the remembered failure
+     */
+    public void check(URI uri)
+    {
+        Failure failure = find(objectKey(uri));
+        if (failure == null)
+        {
+            failure = find(pathKey(uri));
+        }
+        if (failure != null)
+        {
+            hits.incrementAndGet();
+            throw failure.toException(workers);
+        }
+    }
+
+    private Failure find(String key)
+    {
+        synchronized (failures)
+        {
+            Failure failure = failures.get(key);
+            if (failure != null && System.currentTimeMillis() >= failure.expires)
+            {
+                failures.remove(key);
+                failure = null;
+            }
+            return failure;
+        }
+    }
+
+    /**
+     * Remembers the given failure if the object is missing or not visible
+     * 
+     * @param uri the uri of the read
+     * @param e the failure
+     * @return the exception to rethrow in place of the given one, whose response
+     *         has been read
+     */
+    public UniformInterfaceException record(URI uri, UniformInterfaceException e)
+    {
+        ClientResponse response = e.getResponse();
+        int status = response.getStatus();
+        String body = response.hasEntity() ? response.getEntity(String.class) : "";
+        Failure failure = new Failure(status, body, System.currentTimeMillis() + ttl);
+        String key = isMissingObject(status, body) ? objectKey(uri) : isForbidden(status, body) ? pathKey(uri) : null;
+        if (key != null)
+        {
+            synchronized (failures)
+            {
+                failures.put(key, failure);
+            }
+        }
+        return failure.toException(workers);
+    }
+
+    /**
+     * @return the number of reads failed without a request
+     */
+    public long getHits()
+    {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of failures remembered
+     */
+    public int size()
+    {
+        synchronized (failures)
+        {
+            return failures.size();
+        }
+    }
+
+    /**
+     * @return whether the failure means the access token may not read the path
+     */
+    private static boolean isForbidden(int status, String body)
+    {
+        if (status == 403)
+        {
+            return true;
+        }
+        if (status != 400)
+        {
+            return false;
+        }
+        try
+        {
+            int code = MAPPER.readTree(body).path("error").path("code").getIntValue();
+            return code == 10 || (code >= 200 && code < 300);
+        }
+        catch (Exception e)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * @return whether the failure means the object read does not exist
+     */
+    private static boolean isMissingObject(int status, String body)
+    {
+        if (status == 404)
+        {
+            return true;
+        }
+        if (status != 400)
+        {
+            return false;
+        }
+        try
+        {
+            JsonNode error = MAPPER.readTree(body).path("error");
+            String message = error.path("message").getTextValue();
+            return error.path("code").getIntValue() == 100 && message != null && message.contains("does not exist");
+        }
+        catch (Exception e)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * @return the id the uri reads and the hash of its access token
+     */
+    private static String objectKey(URI uri)
+    {
+        return GraphUris.objectId(uri) + "@" + GraphUris.tokenHash(uri);
+    }
+
+    /**
+     * @return the path the uri reads and the hash of its access token
+     */
+    private static String pathKey(URI uri)
+    {
+        return uri.getRawPath() + "@" + GraphUris.tokenHash(uri);
+    }
+
+    private static class Failure
+    {
+        private final int status;
+        private final String body;
+        private final long expires;
+
+        public Failure(int status, String body, long expires)
+        {
+            this.status = status;
+            this.body = body;
+            this.expires = expires;
+        }
+
+        public UniformInterfaceException toException(MessageBodyWorkers workers)
+        {
+            try
+            {
+                InBoundHeaders headers = new InBoundHeaders();
+                headers.putSingle("Content-Type", "application/json");
+                ClientResponse response = new ClientResponse(status, headers,
+                    new ByteArrayInputStream(body.getBytes("UTF-8")), workers);
+                return new UniformInterfaceException(response);
+            }
+            catch (UnsupportedEncodingException e)
+            {
+                throw MuleSoftException.soften(e);
+            }
+        }
+    }
+}
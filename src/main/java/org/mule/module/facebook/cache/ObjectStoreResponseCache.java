@@ -0,0 +1,81 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.cache;
+
+import java.io.Serializable;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.mule.api.store.ObjectStore;
+import org.mule.api.store.ObjectStoreException;
+
+/**
+ * A {@link ResponseCache} backed by a Mule {@link ObjectStore}, holding the
+ * deflated JSON of the responses. In a cluster the object stores are shared, so
+ * a response fetched by one node serves them all.
+ * Failures of the store are logged and treated as misses: the cache never makes
+ * a read fail.
+ */
+public class ObjectStoreResponseCache implements ResponseCache
+{
+    private static final Log LOGGER = LogFactory.getLog(ObjectStoreResponseCache.class);
+
+    private final ObjectStore<Serializable> objectStore;
+
+    public ObjectStoreResponseCache(ObjectStore<Serializable> objectStore)
+    {
+        this.objectStore = objectStore;
+    }
+
+    public CachedResponse get(String key)
+    {
+        try
+        {
+            return objectStore.contains(key) ? (CachedResponse) objectStore.retrieve(key) : null;
+        }
+        catch (ObjectStoreException e)
+        {
+            LOGGER.warn("Could not read the cached response of " + key, e);
+            return null;
+        }
+    }
+
+    public void put(String key, CachedResponse response)
+    {
+        try
+        {
+            if (objectStore.contains(key))
+            {
+                objectStore.remove(key);
+            }
+            objectStore.store(key, response);
+        }
+        catch (ObjectStoreException e)
+        {
+            LOGGER.debug("Could not cache the response of " + key, e);
+        }
+    }
+
+    public void remove(String key)
+    {
+        try
+        {
+            if (objectStore.contains(key))
+            {
+                objectStore.remove(key);
+            }
+        }
+        catch (ObjectStoreException e)
+        {
+            LOGGER.debug("Could not remove the cached response of " + key, e);
+        }
+    }
+}
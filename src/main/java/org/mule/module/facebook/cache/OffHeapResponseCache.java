@@ -0,0 +1,215 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.cache;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A {@link ResponseCache} keeping the deflated responses outside of the heap, in
+ * direct buffers allocated once. The buffers are split in fixed size blocks and
+ * each response takes as many blocks as it needs, so there is no fragmentation;
+ * only the keys and the block numbers of the responses live on the heap. When
+ * the blocks run out the least recently used responses are dropped.
+ */
+public class OffHeapResponseCache implements LocalResponseCache
+{
+    /**
+     * created, expires, length and body length
+     */
+    private static final int HEADER = 8 + 8 + 4 + 4;
+
+    private static final int MAX_SLAB_SIZE = 64 * 1024 * 1024;
+
+    private final int blockSize;
+    private final int blocksPerSlab;
+    private final ByteBuffer[] slabs;
+    private final int[] freeBlocks;
+    private int free;
+    private long usedBytes;
+    private final LinkedHashMap<String, Slot> slots = new LinkedHashMap<String, Slot>(16, 0.75f, true);
+
+    /**
+     * Where a response is stored
+     */
+    private static class Slot
+    {
+        private final int[] blocks;
+        private final int size;
+
+        private Slot(int[] blocks, int size)
+        {
+            this.blocks = blocks;
+            this.size = size;
+        }
+    }
+
+    /**
+     * @param capacity the number of bytes of the buffers
+     * @param blockSize the number of bytes of a block
+     */
+    public OffHeapResponseCache(long capacity, int blockSize)
+    {
+        this.blockSize = blockSize;
+        int blocks = (int) Math.min(capacity / blockSize, Integer.MAX_VALUE);
+        this.blocksPerSlab = Math.max(1, MAX_SLAB_SIZE / blockSize);
+        this.slabs = new ByteBuffer[(blocks + blocksPerSlab - 1) / blocksPerSlab];
+        for (int i = 0; i < slabs.length; i++)
+        {
+            slabs[i] = ByteBuffer.allocateDirect(Math.min(blocksPerSlab, blocks - i * blocksPerSlab) * blockSize);
+        }
+        this.freeBlocks = new int[blocks];
+        for (int i = 0; i < blocks; i++)
+        {
+            freeBlocks[i] = blocks - 1 - i;
+        }
+        this.free = blocks;
+    }
+
+    public synchronized CachedResponse get(String key)
+    {
+        Slot slot = slots.get(key);
+        return slot == null ? null : read(slot);
+    }
+
+    /**
+     * Stores a response, dropping the least recently used ones to make room;
+     * a response larger than the whole cache is not stored
+     */
+    public synchronized void put(String key, CachedResponse response)
+    {
+        remove(key);
+        byte[] body = response.getBody();
+        int size = HEADER + body.length;
+        int needed = (size + blockSize - 1) / blockSize;
+        if (needed > freeBlocks.length)
+        {
+            return;
+        }
+        Iterator<Slot> eldest = slots.values().iterator();
+        while (free < needed)
+        {
+            release(eldest.next());
+            eldest.remove();
+        }
+        int[] blocks = new int[needed];
+        for (int i = 0; i < needed; i++)
+        {
+            blocks[i] = freeBlocks[--free];
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        header.putLong(response.getCreated()).putLong(response.getExpires()).putInt(response.getLength()).putInt(body.length);
+        write(blocks, 0, header.array());
+        write(blocks, HEADER, body);
+        slots.put(key, new Slot(blocks, size));
+        usedBytes += size;
+    }
+
+    public synchronized void remove(String key)
+    {
+        Slot slot = slots.remove(key);
+        if (slot != null)
+        {
+            release(slot);
+        }
+    }
+
+    public synchronized Map<String, CachedResponse> entries()
+    {
+        Map<String, CachedResponse> copy = new LinkedHashMap<String, CachedResponse>();
+        for (Map.Entry<String, Slot> entry : slots.entrySet())
+        {
+            copy.put(entry.getKey(), read(entry.getValue()));
+        }
+        return copy;
+    }
+
+    public synchronized int size()
+    {
+        return slots.size();
+    }
+
+    /**
+     * @return the number of bytes taken by the responses
+     */
+    public synchronized long getUsedBytes()
+    {
+        return usedBytes;
+    }
+
+    /**
+     * @return the number of bytes of the buffers
+     */
+    public long getCapacity()
+    {
+        return (long) freeBlocks.length * blockSize;
+    }
+
+    private void release(Slot slot)
+    {
+        for (int i = 0; i < slot.blocks.length; i++)
+        {
+            freeBlocks[free++] = slot.blocks[i];
+        }
+        usedBytes -= slot.size;
+    }
+
+    private CachedResponse read(Slot slot)
+    {
+        byte[] bytes = new byte[slot.size];
+        int offset = 0;
+        for (int i = 0; offset < slot.size; i++)
+        {
+            int count = Math.min(blockSize, slot.size - offset);
+            ByteBuffer slab = slab(slot.blocks[i]);
+            slab.get(bytes, offset, count);
+            offset += count;
+        }
+        ByteBuffer header = ByteBuffer.wrap(bytes, 0, HEADER);
+        long created = header.getLong();
+        long expires = header.getLong();
+        int length = header.getInt();
+        byte[] body = new byte[header.getInt()];
+        System.arraycopy(bytes, HEADER, body, 0, body.length);
+        return new CachedResponse(body, length, created, expires);
+    }
+
+    /**
+     * Writes the bytes at the given offset of the blocks
+     */
+    private void write(int[] blocks, int position, byte[] bytes)
+    {
+        int offset = 0;
+        while (offset < bytes.length)
+        {
+            int block = position / blockSize;
+            int within = position % blockSize;
+            int count = Math.min(blockSize - within, bytes.length - offset);
+            ByteBuffer slab = slab(blocks[block]);
+            slab.position(slab.position() + within);
+            slab.put(bytes, offset, count);
+            offset += count;
+            position += count;
+        }
+    }
+
+    /**
+     * @return a view of the slab holding the block, positioned at its start
+     */
+    private ByteBuffer slab(int block)
+    {
+        ByteBuffer slab = slabs[block / blocksPerSlab].duplicate();
+        slab.position((block % blocksPerSlab) * blockSize);
+        return slab;
+    }
+}
@@ -0,0 +1,321 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.cache;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.mule.module.facebook.http.GraphUris;
+
+import com.sun.jersey.api.client.UniformInterfaceException;
+
+/**
+ * Serves reads of the Graph API from a {@link ResponseCache} while their
+ * response is younger than the time to live, and fetches and caches them
+ * otherwise. Responses are keyed by the path and the sorted query parameters of
+ * the request; the access token is part of the key, hashed, since what a read
+ * returns depends on the permissions of the token.
+ * <p/>
+ * With a stale time to live, a response past its time to live is still served
+ * for that long: right away while it is refreshed in the background, and in
+ * place of the error when Graph cannot be reached or fails.
+ * <p/>
+ * Writes invalidate the reads of the objects they change. Since a shared object
+ * store can not list its keys, an invalidation is not a removal: it stores when
+ * the object was last written, and responses of reads of that object received
+ * before then are no longer served. Objects are identified by the first segment
+ * of the path as written, so a write through me does not invalidate the reads
+ * made through the numeric id of the user, nor the other way round.
+ */
+public class ReadCache
+{
+    private static final Log LOGGER = LogFactory.getLog(ReadCache.class);
+
+    private static final String ACCESS_TOKEN = "access_token=";
+    private static final String INVALIDATED = "invalidated:";
+
+    /**
+     * Refreshes beyond these many pending are dropped; the next read retries them
+     */
+    private static final int MAX_PENDING_REFRESHES = 1000;
+
+    private final ResponseCache cache;
+    private final long ttl;
+    private final long staleTtl;
+    private final ExecutorService refresher;
+    private final ConcurrentMap<String, Boolean> refreshing = new ConcurrentHashMap<String, Boolean>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+
+    /**
+     * Fetches a response that is not cached
+     */
+    public interface Loader
+    {
+        String load();
+    }
+
+    /**
+     * @param cache where to keep the responses
+     * @param ttl how long a response is served, in milliseconds
+     */
+    public ReadCache(ResponseCache cache, long ttl)
+    {
+        this(cache, ttl, 0, 0);
+    }
+
+    /**
+     * @param cache where to keep the responses
+     * @param ttl how long a response is served, in milliseconds
+     * @param staleTtl how long a response is still served past its time to live
+     *            while it is refreshed or when refreshing it fails, in milliseconds
+     * @param refreshThreads how many threads refresh stale responses
+     */
+    public ReadCache(ResponseCache cache, long ttl, long staleTtl, int refreshThreads)
+    {
+        this.cache = cache;
+        this.ttl = ttl;
+        this.staleTtl = staleTtl;
+        if (staleTtl > 0)
+        {
+            this.refresher = new ThreadPoolExecutor(refreshThreads, refreshThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(MAX_PENDING_REFRESHES), new ThreadFactory()
+                {
+                    private final AtomicInteger count = new AtomicInteger();
+
+                    public Thread newThread(Runnable runnable)
+                    {
+                        Thread thread = new Thread(runnable, "facebook-cache-refresh-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+            ((ThreadPoolExecutor) this.refresher).allowCoreThreadTimeOut(true);
+        }
+        else
+        {
+            this.refresher = null;
+        }
+    }
+
+    /**
+     * @param uri the uri of the read
+     * @param loader fetches the response when it is not cached
+     * @return the response
+     */
+    public String read(URI uri, Loader loader)
+    {
+        String key = key(uri);
+        long now = System.currentTimeMillis();
+        CachedResponse cached = cache.get(key);
+        if (cached != null && isInvalidated(uri, cached))
+        {
+            cached = null;
+        }
+        if (cached != null && !cached.isExpired(now))
+        {
+            hits.incrementAndGet();
+            return cached.getJson();
+        }
+        boolean stale = cached != null && now < cached.getExpires() + staleTtl;
+        if (stale && refresh(key, loader))
+        {
+            staleHits.incrementAndGet();
+            return cached.getJson();
+        }
+        misses.incrementAndGet();
+        String json;
+        try
+        {
+            json = loader.load();
+        }
+        catch (RuntimeException e)
+        {
+            if (!stale || !isUpstreamFailure(e))
+            {
+                throw e;
+            }
+            LOGGER.debug("Serving a stale response of " + key + " after the read failed", e);
+            staleHits.incrementAndGet();
+            return cached.getJson();
+        }
+        cache.put(key, CachedResponse.of(json, now, ttl));
+        return json;
+    }
+
+    /**
+     * Stops serving the cached responses of the reads of an object and of its
+     * connections, received until now. Ids made of several ids joined by
+     * underscores invalidate the reads of each of their prefixes as well: the
+     * owner of a post, whose feed and wall hold it, and the post of a comment,
+     * whose comments hold it.
+     * 
+     * @param id the id of the object that was written
+     */
+    public void invalidate(String id)
+    {
+        long now = System.currentTimeMillis();
+        CachedResponse marker = new CachedResponse(new byte[0], 0, now, now + ttl + staleTtl);
+        cache.put(INVALIDATED + id, marker);
+        for (int separator = id.indexOf('_'); separator > 0; separator = id.indexOf('_', separator + 1))
+        {
+            cache.put(INVALIDATED + id.substring(0, separator), marker);
+        }
+    }
+
+    /**
+     * @return whether the object read was written after the response was received
+     */
+    private boolean isInvalidated(URI uri, CachedResponse cached)
+    {
+        CachedResponse marker = cache.get(INVALIDATED + GraphUris.objectId(uri));
+        return marker != null && cached.getCreated() <= marker.getCreated();
+    }
+
+    /**
+     * Loads the response again in the background, unless it is already being
+     * loaded
+     * 
+     * @return whether the stale response can be served meanwhile
+     */
+    private boolean refresh(final String key, final Loader loader)
+    {
+        if (refreshing.putIfAbsent(key, Boolean.TRUE) != null)
+        {
+            return true;
+        }
+        try
+        {
+            refresher.execute(new Runnable()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        long now = System.currentTimeMillis();
+                        cache.put(key, CachedResponse.of(loader.load(), now, ttl));
+                    }
+                    catch (RuntimeException e)
+                    {
+                        LOGGER.debug("Could not refresh the cached response of " + key, e);
+                    }
+                    finally
+                    {
+                        refreshing.remove(key);
+                    }
+                }
+            });
+            return true;
+        }
+        catch (RejectedExecutionException e)
+        {
+            refreshing.remove(key);
+            return false;
+        }
+    }
+
+    /**
+     * Errors saying the request itself is wrong, or that the object is gone or
+     * forbidden, are not hidden by a stale response
+     */
+    private static boolean isUpstreamFailure(RuntimeException e)
+    {
+        return !(e instanceof UniformInterfaceException)
+               || ((UniformInterfaceException) e).getResponse().getStatus() >= 500;
+    }
+
+    /**
+     * Stops refreshing stale responses
+     */
+    public void dispose()
+    {
+        if (refresher != null)
+        {
+            refresher.shutdownNow();
+        }
+    }
+
+    /**
+     * @return where the responses are kept
+     */
+    public ResponseCache getCache()
+    {
+        return cache;
+    }
+
+    /**
+     * @return how long a response is still served past its time to live, in
+     *         milliseconds
+     */
+    public long getStaleTtl()
+    {
+        return staleTtl;
+    }
+
+    public long getHits()
+    {
+        return hits.get();
+    }
+
+    public long getMisses()
+    {
+        return misses.get();
+    }
+
+    /**
+     * @return the number of reads served a response past its time to live
+     */
+    public long getStaleHits()
+    {
+        return staleHits.get();
+    }
+
+    /**
+     * @param uri the uri of a read
+     * @return the key of its response
+     */
+    public static String key(URI uri)
+    {
+        String query = uri.getRawQuery();
+        if (query == null || query.length() == 0)
+        {
+            return uri.getRawPath();
+        }
+        String[] parameters = query.split("&");
+        for (int i = 0; i < parameters.length; i++)
+        {
+            if (parameters[i].startsWith(ACCESS_TOKEN))
+            {
+                parameters[i] = ACCESS_TOKEN + GraphUris.hash(parameters[i].substring(ACCESS_TOKEN.length()));
+            }
+        }
+        Arrays.sort(parameters);
+        StringBuilder key = new StringBuilder(uri.getRawPath());
+        for (int i = 0; i < parameters.length; i++)
+        {
+            key.append(i == 0 ? '?' : '&').append(parameters[i]);
+        }
+        return key.toString();
+    }
+}
@@ -0,0 +1,36 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.cache;
+
+/**
+ * Where {@link ReadCache} keeps the responses
+ */
+public interface ResponseCache
+{
+    /**
+     * @param key the key of the response
+     * @return the response, or null if there is none
+     */
+    CachedResponse get(String key);
+
+    /**
+     * Stores a response, replacing the previous one
+     * 
+     * @param key the key of the response
+     * @param response the response
+     */
+    void put(String key, CachedResponse response);
+
+    /**
+     * @param key the key of the response to forget
+     */
+    void remove(String key);
+}
@@ -0,0 +1,154 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.cache;
+
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rewrites the parameters of searches so that identical searches made close in
+ * time send identical requests: the query is trimmed, lower cased and its
+ * whitespace collapsed, and relative times such as <i>last week</i> or <i>3
+ * hours ago</i> are resolved and snapped to their bucket: to its start for a
+ * since, to its end for an until, so the window searched always contains the
+ * one asked for. Absolute
+ * times, and relative times that only change once a day such as
+ * <i>yesterday</i>, are left as they are.
+ */
+public final class SearchNormalizer
+{
+    private static final String UNIT = "(sec|second|min|minute|hour|day|week|fortnight|month|year)s?";
+    private static final Pattern AGO = Pattern.compile("(\\d+|an?|last)\\s+" + UNIT + "(\\s+ago)?");
+    private static final Pattern SIGNED = Pattern.compile("([+-])\\s*(\\d+)\\s+" + UNIT);
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private SearchNormalizer()
+    {
+    }
+
+    /**
+     * @param q a search string
+     * @return the search string, normalized
+     */
+    public static String query(String q)
+    {
+        if (q == null)
+        {
+            return null;
+        }
+        return WHITESPACE.matcher(q.trim()).replaceAll(" ").toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * @param time a since or until parameter
+     * @param now the current time in milliseconds
+     * @param bucket the length of the buckets in milliseconds
+     * @return the unix timestamp of the start of the bucket of the time if it is
+     *         relative to now, the time as it is otherwise
+     */
+    public static String snap(String time, long now, long bucket)
+    {
+        return snap(time, now, bucket, false);
+    }
+
+    /**
+     * @param time an until parameter
+     * @param now the current time in milliseconds
+     * @param bucket the length of the buckets in milliseconds
+     * @return the unix timestamp of the end of the bucket of the time if it is
+     *         relative to now, the time as it is otherwise
+     */
+    public static String snapUp(String time, long now, long bucket)
+    {
+        return snap(time, now, bucket, true);
+    }
+
+    private static String snap(String time, long now, long bucket, boolean up)
+    {
+        if (time == null)
+        {
+            return null;
+        }
+        String normalized = query(time);
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"), Locale.ENGLISH);
+        calendar.setTimeInMillis(now);
+        if (!normalized.equals("now") && !resolve(normalized, calendar))
+        {
+            return time;
+        }
+        long millis = calendar.getTimeInMillis();
+        long start = millis - millis % bucket;
+        return String.valueOf((up && start != millis ? start + bucket : start) / 1000);
+    }
+
+    /**
+     * Moves the calendar by the relative time, if it is one
+     */
+    private static boolean resolve(String time, Calendar calendar)
+    {
+        Matcher ago = AGO.matcher(time);
+        if (ago.matches())
+        {
+            String count = ago.group(1);
+            boolean past = ago.group(3) != null || count.equals("last");
+            int amount = Character.isDigit(count.charAt(0)) ? Integer.parseInt(count) : 1;
+            add(calendar, ago.group(2), past ? -amount : amount);
+            return true;
+        }
+        Matcher signed = SIGNED.matcher(time);
+        if (signed.matches())
+        {
+            int amount = Integer.parseInt(signed.group(2));
+            add(calendar, signed.group(3), signed.group(1).equals("-") ? -amount : amount);
+            return true;
+        }
+        return false;
+    }
+
+    private static void add(Calendar calendar, String unit, int amount)
+    {
+        if (unit.startsWith("sec"))
+        {
+            calendar.add(Calendar.SECOND, amount);
+        }
+        else if (unit.startsWith("min"))
+        {
+            calendar.add(Calendar.MINUTE, amount);
+        }
+        else if (unit.equals("hour"))
+        {
+            calendar.add(Calendar.HOUR_OF_DAY, amount);
+        }
+        else if (unit.equals("day"))
+        {
+            calendar.add(Calendar.DAY_OF_MONTH, amount);
+        }
+        else if (unit.equals("week"))
+        {
+            calendar.add(Calendar.DAY_OF_MONTH, 7 * amount);
+        }
+        else if (unit.equals("fortnight"))
+        {
+            calendar.add(Calendar.DAY_OF_MONTH, 14 * amount);
+        }
+        else if (unit.equals("month"))
+        {
+            calendar.add(Calendar.MONTH, amount);
+        }
+        else
+        {
+            calendar.add(Calendar.YEAR, amount);
+        }
+    }
+}
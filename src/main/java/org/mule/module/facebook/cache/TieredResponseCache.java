@@ -0,0 +1,106 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A {@link ResponseCache} made of a small tier of the most recently used
+ * responses on the heap and a large {@link OffHeapResponseCache} below it. A
+ * response is in one tier at a time: new and read responses go to the heap, and
+ * the least recently used response of the heap is moved off the heap when it
+ * is full.
+ */
+public class TieredResponseCache implements LocalResponseCache
+{
+    private final Map<String, CachedResponse> hot;
+    private final OffHeapResponseCache cold;
+
+    /**
+     * @param hotEntries the number of responses kept on the heap
+     * @param cold where the other responses are kept
+     */
+    public TieredResponseCache(final int hotEntries, OffHeapResponseCache cold)
+    {
+        this.cold = cold;
+        this.hot = new LinkedHashMap<String, CachedResponse>(16, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest)
+            {
+                if (size() <= hotEntries)
+                {
+                    return false;
+                }
+                TieredResponseCache.this.cold.put(eldest.getKey(), eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    public synchronized CachedResponse get(String key)
+    {
+        CachedResponse response = hot.get(key);
+        if (response == null)
+        {
+            response = cold.get(key);
+            if (response != null)
+            {
+                cold.remove(key);
+                hot.put(key, response);
+            }
+        }
+        return response;
+    }
+
+    public synchronized void put(String key, CachedResponse response)
+    {
+        cold.remove(key);
+        hot.put(key, response);
+    }
+
+    public synchronized void remove(String key)
+    {
+        hot.remove(key);
+        cold.remove(key);
+    }
+
+    public synchronized Map<String, CachedResponse> entries()
+    {
+        Map<String, CachedResponse> entries = cold.entries();
+        entries.putAll(hot);
+        return entries;
+    }
+
+    public synchronized int size()
+    {
+        return hot.size() + cold.size();
+    }
+
+    /**
+     * @return the number of responses on the heap
+     */
+    public synchronized int getHotSize()
+    {
+        return hot.size();
+    }
+
+    /**
+     * @return the tier off the heap
+     */
+    public OffHeapResponseCache getCold()
+    {
+        return cold;
+    }
+}
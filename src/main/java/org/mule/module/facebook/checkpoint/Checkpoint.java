@@ -0,0 +1,67 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.checkpoint;
+
+import java.io.Serializable;
+
+/**
+ * How far an incremental read of a connection has got: the creation time of the
+ * newest item of the reads completed and, while a read has more pages, the
+ * paging cursor of the next page of its last page returned and the creation time
+ * of the newest item it has read so far. The cursor is only the paging query
+ * parameters of the paging.next link, never the link itself, which holds the
+ * access token.
+ */
+public class Checkpoint implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    private final long timestamp;
+    private final long newest;
+    private final String cursor;
+
+    /**
+     * @param timestamp the creation time of the newest item of the completed
+     *            reads, in seconds since the epoch
+     * @param newest the creation time of the newest item of the read in progress,
+     *            in seconds since the epoch
+     * @param cursor the paging query parameters of the paging.next link of the
+     *            last page of the read in progress, such as
+     *            until=1335866400&amp;__paging_token=..., null if there is none
+     */
+    public Checkpoint(long timestamp, long newest, String cursor)
+    {
+        this.timestamp = timestamp;
+        this.newest = newest;
+        this.cursor = cursor;
+    }
+
+    public long getTimestamp()
+    {
+        return timestamp;
+    }
+
+    public long getNewest()
+    {
+        return newest;
+    }
+
+    public String getCursor()
+    {
+        return cursor;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Checkpoint[timestamp=" + timestamp + " newest=" + newest + " cursor=" + cursor + "]";
+    }
+}
@@ -0,0 +1,42 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.checkpoint;
+
+import java.io.Serializable;
+
+/**
+ * Durable storage for the state the connector needs to pick up where it left off
+ * after a restart: checkpoints of incremental reads, watermarks of polled
+ * connections...
+ */
+public interface CheckpointStore
+{
+    /**
+     * @param key the key
+     * @return the value stored under the key, or null if there is none
+     */
+    Serializable retrieve(String key);
+
+    /**
+     * Stores a value, replacing the previous one
+     * 
+     * @param key the key
+     * @param value the value
+     */
+    void store(String key, Serializable value);
+
+    /**
+     * Removes the value stored under the given key, if any
+     * 
+     * @param key the key
+     */
+    void remove(String key);
+}
@@ -0,0 +1,176 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.checkpoint;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Date;
+
+import javax.ws.rs.core.UriBuilder;
+
+import org.codehaus.jackson.JsonNode;
+import org.mule.module.facebook.http.GraphUris;
+import org.mule.module.facebook.paging.ConnectionPage;
+
+import com.restfb.util.DateUtils;
+
+/**
+ * Records a {@link Checkpoint} for every connection read, keyed by the access
+ * token, target id and connection it reads (and so by processor and target), and
+ * makes later reads of the same connection resume from it. While a read has more
+ * pages, the next read follows its paging cursor: the paging parameters of its
+ * paging.next link are recorded, never the link and its access token, and
+ * applied to the uri of the next read. Once its last page has been read, the
+ * since parameter of the following reads is replaced by the creation time of the
+ * newest item read, exclusive.
+ */
+public class ConnectionCheckpoints
+{
+    private static final String KEY_PREFIX = "checkpoint:";
+
+    /**
+     * The query parameters of a paging.next link that locate the next page
+     */
+    private static final String[] CURSOR_PARAMETERS = {"after", "until", "offset", "__paging_token"};
+
+    private final CheckpointStore store;
+
+    public ConnectionCheckpoints(CheckpointStore store)
+    {
+        this.store = store;
+    }
+
+    /**
+     * @param uri the uri of a request
+     * @return the checkpoint key of the request, or null if it is not an
+     *         incremental connection read
+     */
+    public String key(URI uri)
+    {
+        String path = uri.getPath();
+        if (path == null || uri.getRawQuery() == null || !uri.getRawQuery().contains("since="))
+        {
+            return null;
+        }
+        String[] segments = path.replaceAll("^/+", "").split("/");
+        if (segments.length != 2)
+        {
+            return null;
+        }
+        return KEY_PREFIX + GraphUris.tokenHash(uri) + "/" + segments[0] + "/" + segments[1];
+    }
+
+    /**
+     * @param accessToken the access token the connection is read with
+     * @param target the id of the user, page or group
+     * @param connection the connection
+     * @return the checkpoint key of the connection
+     */
+    public static String key(String accessToken, String target, String connection)
+    {
+        return KEY_PREFIX + GraphUris.hash(accessToken) + "/" + target + "/" + connection;
+    }
+
+    /**
+     * @param key the checkpoint key of the request
+     * @return the checkpoint, or null if the connection has never been read
+     */
+    public Checkpoint get(String key)
+    {
+        return (Checkpoint) store.retrieve(key);
+    }
+
+    /**
+     * @param uri the uri of a connection read
+     * @param key its checkpoint key
+     * @return the uri resuming from the checkpoint of the connection, or the given
+     *         one if there is none
+     */
+    public URI resume(URI uri, String key)
+    {
+        Checkpoint checkpoint = get(key);
+        if (checkpoint == null)
+        {
+            return uri;
+        }
+        if (checkpoint.getCursor() != null)
+        {
+            UriBuilder builder = UriBuilder.fromUri(uri);
+            for (String parameter : checkpoint.getCursor().split("&"))
+            {
+                int separator = parameter.indexOf('=');
+                builder.replaceQueryParam(parameter.substring(0, separator), parameter.substring(separator + 1));
+            }
+            return builder.build();
+        }
+        return UriBuilder.fromUri(uri).replaceQueryParam("since", checkpoint.getTimestamp() + 1).build();
+    }
+
+    /**
+     * Records how far the given response got. The checkpoint only moves past the
+     * items read once the last page of the read has been returned, so the older
+     * pages are never skipped.
+     * 
+     * @param key the checkpoint key of the request
+     * @param json the response
+     */
+    public void record(String key, String json)
+    {
+        ConnectionPage page = ConnectionPage.parse(json);
+        Checkpoint previous = get(key);
+        long timestamp = previous == null ? 0 : previous.getTimestamp();
+        long newest = previous == null ? 0 : previous.getNewest();
+        for (JsonNode item : page.getItems())
+        {
+            Date created = DateUtils.toDateFromLongFormat(item.path("created_time").getTextValue());
+            if (created != null)
+            {
+                newest = Math.max(newest, created.getTime() / 1000);
+            }
+        }
+        if (page.getNext() != null && !page.isEmpty())
+        {
+            String cursor = cursor(URI.create(page.getNext()));
+            if (cursor != null)
+            {
+                store.store(key, new Checkpoint(timestamp, newest, cursor));
+            }
+        }
+        else if (Math.max(timestamp, newest) > 0)
+        {
+            store.store(key, new Checkpoint(Math.max(timestamp, newest), 0, null));
+        }
+    }
+
+    /**
+     * @param next the paging.next link of a page
+     * @return its paging query parameters, still encoded, or null if it has none
+     */
+    static String cursor(URI next)
+    {
+        String query = next.getRawQuery();
+        if (query == null)
+        {
+            return null;
+        }
+        StringBuilder cursor = new StringBuilder();
+        for (String parameter : query.split("&"))
+        {
+            int separator = parameter.indexOf('=');
+            String name = separator < 0 ? parameter : parameter.substring(0, separator);
+            if (separator > 0 && Arrays.asList(CURSOR_PARAMETERS).contains(name))
+            {
+                cursor.append(cursor.length() == 0 ? "" : "&").append(parameter);
+            }
+        }
+        return cursor.length() == 0 ? null : cursor.toString();
+    }
+}
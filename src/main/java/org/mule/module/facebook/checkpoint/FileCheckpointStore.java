@@ -0,0 +1,165 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.checkpoint;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.mule.modules.utils.MuleSoftException;
+
+/**
+ * A {@link CheckpointStore} kept in a local file, used when no Mule object store
+ * is available. The whole map is rewritten to a temporary file which then
+ * replaces the previous one, so a crash never leaves a half written file behind.
+ * The file is only readable and writable by its owner, and reading it back only
+ * instantiates the JDK collection and connector classes checkpoints are made of.
+ */
+public class FileCheckpointStore implements CheckpointStore
+{
+    private static final String[] ALLOWED_PACKAGES = {"java.lang.", "java.util.", "org.mule.module.facebook."};
+
+    private final File file;
+    private Map<String, Serializable> values;
+
+    public FileCheckpointStore(File file)
+    {
+        this.file = file;
+    }
+
+    public synchronized Serializable retrieve(String key)
+    {
+        return values().get(key);
+    }
+
+    public synchronized void store(String key, Serializable value)
+    {
+        values().put(key, value);
+        save();
+    }
+
+    public synchronized void remove(String key)
+    {
+        if (values().remove(key) != null)
+        {
+            save();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Serializable> values()
+    {
+        if (values == null)
+        {
+            values = new HashMap<String, Serializable>();
+            if (file.exists())
+            {
+                try
+                {
+                    ObjectInputStream in = new RestrictedObjectInputStream(new BufferedInputStream(new FileInputStream(file)));
+                    try
+                    {
+                        values.putAll((Map<String, Serializable>) in.readObject());
+                    }
+                    finally
+                    {
+                        in.close();
+                    }
+                }
+                catch (Exception e)
+                {
+                    throw MuleSoftException.soften(e);
+                }
+            }
+        }
+        return values;
+    }
+
+    private void save()
+    {
+        File temporary = new File(file.getPath() + ".tmp");
+        try
+        {
+            FileOutputStream stream = new FileOutputStream(temporary);
+            temporary.setReadable(false, false);
+            temporary.setWritable(false, false);
+            temporary.setReadable(true, true);
+            temporary.setWritable(true, true);
+            ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(stream));
+            try
+            {
+                out.writeObject(values);
+            }
+            finally
+            {
+                out.close();
+            }
+            if (!temporary.renameTo(file))
+            {
+                file.delete();
+                if (!temporary.renameTo(file))
+                {
+                    throw new IOException("Could not replace " + file);
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            throw MuleSoftException.soften(e);
+        }
+    }
+
+    /**
+     * Refuses the classes checkpoints are not made of, so a planted file can't
+     * instantiate arbitrary serializable classes
+     */
+    private static class RestrictedObjectInputStream extends ObjectInputStream
+    {
+        public RestrictedObjectInputStream(InputStream in) throws IOException
+        {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass description) throws IOException, ClassNotFoundException
+        {
+            String name = description.getName().replaceFirst("^\\[+L?", "");
+            if (name.length() > 1 && !allowed(name))
+            {
+                throw new InvalidClassException(description.getName(), "not a checkpoint class");
+            }
+            return super.resolveClass(description);
+        }
+
+        private static boolean allowed(String name)
+        {
+            for (String prefix : ALLOWED_PACKAGES)
+            {
+                if (name.startsWith(prefix))
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.checkpoint;
+
+import java.io.Serializable;
+
+import org.mule.api.store.ObjectStore;
+import org.mule.api.store.ObjectStoreException;
+import org.mule.modules.utils.MuleSoftException;
+
+/**
+ * A {@link CheckpointStore} backed by a Mule {@link ObjectStore}
+ */
+public class ObjectStoreCheckpointStore implements CheckpointStore
+{
+    private final ObjectStore<Serializable> objectStore;
+
+    public ObjectStoreCheckpointStore(ObjectStore<Serializable> objectStore)
+    {
+        this.objectStore = objectStore;
+    }
+
+    public Serializable retrieve(String key)
+    {
+        try
+        {
+            return objectStore.contains(key) ? objectStore.retrieve(key) : null;
+        }
+        catch (ObjectStoreException e)
+        {
+            throw MuleSoftException.soften(e);
+        }
+    }
+
+    public void store(String key, Serializable value)
+    {
+        try
+        {
+            if (objectStore.contains(key))
+            {
+                objectStore.remove(key);
+            }
+            objectStore.store(key, value);
+        }
+        catch (ObjectStoreException e)
+        {
+            throw MuleSoftException.soften(e);
+        }
+    }
+
+    public void remove(String key)
+    {
+        try
+        {
+            if (objectStore.contains(key))
+            {
+                objectStore.remove(key);
+            }
+        }
+        catch (ObjectStoreException e)
+        {
+            throw MuleSoftException.soften(e);
+        }
+    }
+}
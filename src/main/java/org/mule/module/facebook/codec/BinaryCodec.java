@@ -0,0 +1,605 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.mule.modules.utils.MuleSoftException;
+
+import com.restfb.json.JsonArray;
+import com.restfb.json.JsonObject;
+
+/**
+ * A compact binary encoding of the restfb and connector types, and of the lists
+ * and maps holding them. The schema of a type is the list of its fields, those of
+ * its superclasses first, each class's sorted by name; an object is written as a
+ * reference to its class name followed by the value of each field of its schema,
+ * with no field names. The first object of a class also carries a hash of the
+ * class's schema. Every value starts with a one byte tag, numbers are zigzag
+ * varints and every distinct string is written once, later occurrences being
+ * varint references into the table of strings already written. Types the codec
+ * does not know fall back to Java serialization. The connector types replace
+ * themselves with their encoding when Java serialized, see
+ * {@link #replacement(Object)}.
+ * <p/>
+ * Encoder and decoder must agree on the schemas, so an encoded value can only be
+ * decoded by the same version of the connector and restfb: a schema hash that
+ * does not match the decoder's is rejected. Decoding only ever instantiates
+ * restfb and connector types, and Java serialization is only read back for the
+ * classes of the JDK packages it is needed for and those two libraries.
+ */
+public final class BinaryCodec
+{
+    private static final byte VERSION = 2;
+
+    private static final int NULL = 0;
+    private static final int TRUE = 1;
+    private static final int FALSE = 2;
+    private static final int INT = 3;
+    private static final int LONG = 4;
+    private static final int DOUBLE = 5;
+    private static final int FLOAT = 6;
+    private static final int STRING = 7;
+    private static final int STRING_REF = 8;
+    private static final int DATE = 9;
+    private static final int LIST = 10;
+    private static final int OBJECT = 11;
+    private static final int ENUM = 12;
+    private static final int JSON_OBJECT = 13;
+    private static final int JSON_ARRAY = 14;
+    private static final int JAVA = 15;
+    private static final int SHORT = 16;
+    private static final int BYTE = 17;
+    private static final int MAP = 18;
+    private static final int SET = 19;
+    private static final int BYTES = 20;
+
+    private static final Map<Class<?>, Field[]> SCHEMAS = new ConcurrentHashMap<Class<?>, Field[]>();
+    private static final Field[] NO_SCHEMA = new Field[0];
+    private static final String[] ENCODED_PACKAGES = {"com.restfb.types.", "org.mule.module.facebook.types."};
+    private static final String[] SERIALIZED_PACKAGES = {"java.lang.", "java.util.", "java.math.", "com.restfb.",
+        "org.mule.module.facebook."};
+
+    private BinaryCodec()
+    {
+    }
+
+    /**
+     * @param value the value to encode
+     * @return its encoding
+     */
+    public static byte[] encode(Object value)
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        out.write(VERSION);
+        try
+        {
+            new Encoder(out).write(value);
+        }
+        catch (IOException e)
+        {
+            throw MuleSoftException.soften(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @param bytes an encoding returned by {@link #encode(Object)}
+     * @return the value
+     */
+    public static Object decode(byte[] bytes)
+    {
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        if (in.get() != VERSION)
+        {
+            throw new IllegalArgumentException("Unsupported encoding version " + bytes[0]);
+        }
+        try
+        {
+            return new Decoder(in).read();
+        }
+        catch (Exception e)
+        {
+            throw MuleSoftException.soften(e);
+        }
+    }
+
+    /**
+     * Returns what a connector type is Java serialized as, from its writeReplace
+     * method: its encoding, which is decoded back when deserialized
+     * 
+     * @param value the object being serialized
+     * @return its encoded form, or the object itself if the codec can not encode
+     *         its type field by field
+     */
+    public static Object replacement(Object value)
+    {
+        return hasSchema(value.getClass()) ? new EncodedObject(encode(value)) : value;
+    }
+
+    /**
+     * @return whether objects of the type are encoded field by field
+     */
+    private static boolean hasSchema(Class<?> type)
+    {
+        return inPackage(type.getName(), ENCODED_PACKAGES) && schema(type) != null;
+    }
+
+    private static boolean inPackage(String name, String[] packages)
+    {
+        for (String prefix : packages)
+        {
+            if (name.startsWith(prefix))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return a hash of the names and types of the fields of the schema
+     */
+    private static long fingerprint(Field[] schema)
+    {
+        int hash = 1;
+        for (Field field : schema)
+        {
+            hash = 31 * hash + field.getName().hashCode();
+            hash = 31 * hash + field.getType().getName().hashCode();
+        }
+        return hash & 0xFFFFFFFFL;
+    }
+
+    /**
+     * @return the fields of the type, or null if it can not be instantiated
+     */
+    private static Field[] schema(Class<?> type)
+    {
+        Field[] schema = SCHEMAS.get(type);
+        if (schema == null)
+        {
+            schema = createSchema(type);
+            SCHEMAS.put(type, schema);
+        }
+        return schema == NO_SCHEMA ? null : schema;
+    }
+
+    private static Field[] createSchema(Class<?> type)
+    {
+        try
+        {
+            type.getDeclaredConstructor();
+        }
+        catch (NoSuchMethodException e)
+        {
+            return NO_SCHEMA;
+        }
+        List<Class<?>> hierarchy = new ArrayList<Class<?>>();
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass())
+        {
+            hierarchy.add(0, current);
+        }
+        List<Field> fields = new ArrayList<Field>();
+        for (Class<?> current : hierarchy)
+        {
+            Field[] declared = current.getDeclaredFields();
+            Arrays.sort(declared, new Comparator<Field>()
+            {
+                public int compare(Field first, Field second)
+                {
+                    return first.getName().compareTo(second.getName());
+                }
+            });
+            for (Field field : declared)
+            {
+                int modifiers = field.getModifiers();
+                if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers) && !Modifier.isFinal(modifiers))
+                {
+                    field.setAccessible(true);
+                    fields.add(field);
+                }
+            }
+        }
+        return fields.toArray(new Field[fields.size()]);
+    }
+
+    private static Class<?> load(String name) throws ClassNotFoundException
+    {
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        if (loader != null)
+        {
+            try
+            {
+                return Class.forName(name, false, loader);
+            }
+            catch (ClassNotFoundException e)
+            {
+                // fall back to the loader of the connector
+            }
+        }
+        return Class.forName(name, false, BinaryCodec.class.getClassLoader());
+    }
+
+    private static class Encoder
+    {
+        private final ByteArrayOutputStream out;
+        private final Map<String, Integer> strings = new HashMap<String, Integer>();
+        private final Set<Class<?>> described = new HashSet<Class<?>>();
+
+        public Encoder(ByteArrayOutputStream out)
+        {
+            this.out = out;
+        }
+
+        public void write(Object value) throws IOException
+        {
+            if (value == null)
+            {
+                out.write(NULL);
+            }
+            else if (value instanceof String)
+            {
+                writeString((String) value);
+            }
+            else if (value instanceof Boolean)
+            {
+                out.write((Boolean) value ? TRUE : FALSE);
+            }
+            else if (value instanceof Integer)
+            {
+                out.write(INT);
+                Varints.writeSigned(out, (Integer) value);
+            }
+            else if (value instanceof Long)
+            {
+                out.write(LONG);
+                Varints.writeSigned(out, (Long) value);
+            }
+            else if (value instanceof Short)
+            {
+                out.write(SHORT);
+                Varints.writeSigned(out, (Short) value);
+            }
+            else if (value instanceof Byte)
+            {
+                out.write(BYTE);
+                out.write((Byte) value);
+            }
+            else if (value instanceof Double)
+            {
+                out.write(DOUBLE);
+                writeLong(Double.doubleToLongBits((Double) value));
+            }
+            else if (value instanceof Float)
+            {
+                out.write(FLOAT);
+                Varints.writeUnsigned(out, Float.floatToIntBits((Float) value) & 0xFFFFFFFFL);
+            }
+            else if (value instanceof Date)
+            {
+                out.write(DATE);
+                Varints.writeSigned(out, ((Date) value).getTime());
+            }
+            else if (value instanceof byte[])
+            {
+                out.write(BYTES);
+                Varints.writeUnsigned(out, ((byte[]) value).length);
+                out.write((byte[]) value);
+            }
+            else if (value instanceof Enum<?>)
+            {
+                out.write(ENUM);
+                writeString(((Enum<?>) value).getDeclaringClass().getName());
+                writeString(((Enum<?>) value).name());
+            }
+            else if (value instanceof JsonObject)
+            {
+                out.write(JSON_OBJECT);
+                writeString(value.toString());
+            }
+            else if (value instanceof JsonArray)
+            {
+                out.write(JSON_ARRAY);
+                writeString(value.toString());
+            }
+            else if (value instanceof List<?> || value instanceof Set<?>)
+            {
+                Collection<?> collection = (Collection<?>) value;
+                out.write(value instanceof Set<?> ? SET : LIST);
+                Varints.writeUnsigned(out, collection.size());
+                for (Object element : collection)
+                {
+                    write(element);
+                }
+            }
+            else if (value instanceof Map<?, ?>)
+            {
+                Map<?, ?> map = (Map<?, ?>) value;
+                out.write(MAP);
+                Varints.writeUnsigned(out, map.size());
+                for (Map.Entry<?, ?> entry : map.entrySet())
+                {
+                    write(entry.getKey());
+                    write(entry.getValue());
+                }
+            }
+            else if (hasSchema(value.getClass()))
+            {
+                out.write(OBJECT);
+                writeString(value.getClass().getName());
+                if (described.add(value.getClass()))
+                {
+                    Varints.writeUnsigned(out, fingerprint(schema(value.getClass())));
+                }
+                try
+                {
+                    for (Field field : schema(value.getClass()))
+                    {
+                        write(field.get(value));
+                    }
+                }
+                catch (IllegalAccessException e)
+                {
+                    throw new IllegalStateException(e);
+                }
+            }
+            else if (value instanceof Serializable)
+            {
+                out.write(JAVA);
+                ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+                ObjectOutputStream objects = new ObjectOutputStream(serialized);
+                objects.writeObject(value);
+                objects.close();
+                Varints.writeUnsigned(out, serialized.size());
+                serialized.writeTo(out);
+            }
+            else
+            {
+                throw new IllegalArgumentException("Can not encode " + value.getClass());
+            }
+        }
+
+        private void writeString(String value) throws IOException
+        {
+            Integer index = strings.get(value);
+            if (index != null)
+            {
+                out.write(STRING_REF);
+                Varints.writeUnsigned(out, index);
+                return;
+            }
+            strings.put(value, strings.size());
+            byte[] bytes = value.getBytes("UTF-8");
+            out.write(STRING);
+            Varints.writeUnsigned(out, bytes.length);
+            out.write(bytes);
+        }
+
+        private void writeLong(long value)
+        {
+            for (int shift = 56; shift >= 0; shift -= 8)
+            {
+                out.write((int) (value >>> shift));
+            }
+        }
+    }
+
+    private static class Decoder
+    {
+        private final ByteBuffer in;
+        private final List<String> strings = new ArrayList<String>();
+        private final Set<Class<?>> described = new HashSet<Class<?>>();
+
+        public Decoder(ByteBuffer in)
+        {
+            this.in = in;
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public Object read() throws Exception
+        {
+            int tag = in.get();
+            switch (tag)
+            {
+                case NULL :
+                    return null;
+                case TRUE :
+                    return Boolean.TRUE;
+                case FALSE :
+                    return Boolean.FALSE;
+                case INT :
+                    return (int) Varints.readSigned(in);
+                case LONG :
+                    return Varints.readSigned(in);
+                case SHORT :
+                    return (short) Varints.readSigned(in);
+                case BYTE :
+                    return in.get();
+                case DOUBLE :
+                    return in.getDouble();
+                case FLOAT :
+                    return Float.intBitsToFloat((int) Varints.readUnsigned(in));
+                case STRING :
+                case STRING_REF :
+                    return readString(tag);
+                case DATE :
+                    return new Date(Varints.readSigned(in));
+                case BYTES :
+                    byte[] bytes = new byte[readLength(1)];
+                    in.get(bytes);
+                    return bytes;
+                case ENUM :
+                    Class enumType = load(readString(in.get()));
+                    if (!enumType.isEnum())
+                    {
+                        throw new IllegalArgumentException(enumType + " is not an enum");
+                    }
+                    return Enum.valueOf(enumType, readString(in.get()));
+                case JSON_OBJECT :
+                    return new JsonObject(readString(in.get()));
+                case JSON_ARRAY :
+                    return new JsonArray(readString(in.get()));
+                case LIST :
+                case SET :
+                    int size = readLength(1);
+                    Collection<Object> collection = tag == LIST ? new ArrayList<Object>(size)
+                                                                : new LinkedHashSet<Object>(size * 2);
+                    for (int i = 0; i < size; i++)
+                    {
+                        collection.add(read());
+                    }
+                    return collection;
+                case MAP :
+                    int entries = readLength(2);
+                    Map<Object, Object> map = new LinkedHashMap<Object, Object>(entries * 2);
+                    for (int i = 0; i < entries; i++)
+                    {
+                        map.put(read(), read());
+                    }
+                    return map;
+                case OBJECT :
+                    Class<?> type = readType();
+                    Constructor<?> constructor = type.getDeclaredConstructor();
+                    constructor.setAccessible(true);
+                    Object object = constructor.newInstance();
+                    for (Field field : schema(type))
+                    {
+                        Object value = read();
+                        if (value != null || !field.getType().isPrimitive())
+                        {
+                            field.set(object, value);
+                        }
+                    }
+                    return object;
+                case JAVA :
+                    byte[] serialized = new byte[readLength(1)];
+                    in.get(serialized);
+                    ObjectInputStream objects = new RestrictedObjectInputStream(new ByteArrayInputStream(serialized));
+                    try
+                    {
+                        return objects.readObject();
+                    }
+                    finally
+                    {
+                        objects.close();
+                    }
+                default :
+                    throw new IllegalArgumentException("Unknown tag " + tag + " at " + (in.position() - 1));
+            }
+        }
+
+        /**
+         * Reads a length, checking the rest of the input can hold that many
+         * values of at least the given size, so a forged length can't allocate
+         * more than the input itself
+         */
+        private int readLength(int minimumSize)
+        {
+            int position = in.position();
+            long length = Varints.readUnsigned(in);
+            if (length < 0 || length > in.remaining() / minimumSize)
+            {
+                throw new IllegalArgumentException("Length " + length + " at " + position + " exceeds the "
+                                                   + in.remaining() + " bytes left");
+            }
+            return (int) length;
+        }
+
+        /**
+         * Reads the class of an object, checking its schema hash on its first
+         * occurrence
+         */
+        private Class<?> readType() throws ClassNotFoundException, UnsupportedEncodingException
+        {
+            String name = readString(in.get());
+            if (!inPackage(name, ENCODED_PACKAGES))
+            {
+                throw new IllegalArgumentException("Can not decode " + name);
+            }
+            Class<?> type = load(name);
+            if (!hasSchema(type))
+            {
+                throw new IllegalArgumentException("Can not decode " + name);
+            }
+            if (described.add(type) && Varints.readUnsigned(in) != fingerprint(schema(type)))
+            {
+                throw new IllegalArgumentException("The schema of " + name + " differs from the encoded one");
+            }
+            return type;
+        }
+
+        private String readString(int tag) throws UnsupportedEncodingException
+        {
+            if (tag == STRING_REF)
+            {
+                return strings.get((int) Varints.readUnsigned(in));
+            }
+            if (tag != STRING)
+            {
+                throw new IllegalArgumentException("Expected a string at " + (in.position() - 1));
+            }
+            byte[] bytes = new byte[readLength(1)];
+            in.get(bytes);
+            String value = new String(bytes, "UTF-8");
+            strings.add(value);
+            return value;
+        }
+    }
+
+    /**
+     * Reads Java serialization back, refusing the classes outside of the packages
+     * the encoder falls back to it for
+     */
+    private static class RestrictedObjectInputStream extends ObjectInputStream
+    {
+        public RestrictedObjectInputStream(InputStream in) throws IOException
+        {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass description) throws IOException, ClassNotFoundException
+        {
+            String name = description.getName().replaceFirst("^\\[+L?", "");
+            if (name.length() > 1 && !inPackage(name, SERIALIZED_PACKAGES))
+            {
+                throw new IllegalArgumentException("Can not decode " + description.getName());
+            }
+            return super.resolveClass(description);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.codec;
+
+import java.io.Serializable;
+
+/**
+ * The serialized form of the connector types: their {@link BinaryCodec}
+ * encoding, decoded again when read back. Mule object stores and cluster
+ * replication use Java serialization, which thus writes the compact encoding
+ * rather than the class descriptors and field names of every object.
+ */
+final class EncodedObject implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    private final byte[] bytes;
+
+    EncodedObject(byte[] bytes)
+    {
+        this.bytes = bytes;
+    }
+
+    private Object readResolve()
+    {
+        return BinaryCodec.decode(bytes);
+    }
+}
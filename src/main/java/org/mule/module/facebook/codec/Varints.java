@@ -0,0 +1,64 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.codec;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Variable length encoding of integers: seven bits per byte, least significant
+ * group first, the high bit of each byte telling whether another one follows.
+ * Signed values are zigzag encoded first so small negative numbers stay short.
+ */
+public final class Varints
+{
+    private Varints()
+    {
+    }
+
+    public static void writeUnsigned(OutputStream out, long value) throws IOException
+    {
+        while ((value & ~0x7FL) != 0)
+        {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    public static void writeSigned(OutputStream out, long value) throws IOException
+    {
+        writeUnsigned(out, (value << 1) ^ (value >> 63));
+    }
+
+    public static long readUnsigned(ByteBuffer in)
+    {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7)
+        {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+            {
+                return value;
+            }
+        }
+        throw new BufferUnderflowException();
+    }
+
+    public static long readSigned(ByteBuffer in)
+    {
+        long value = readUnsigned(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
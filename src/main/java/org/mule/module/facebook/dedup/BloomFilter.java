@@ -0,0 +1,175 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.dedup;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A fixed size Bloom filter of strings. The bit positions of a string are derived
+ * from two 64 bit hashes of its characters by double hashing.
+ */
+public class BloomFilter
+{
+    private final long[] bits;
+    private final int numBits;
+    private final int numHashes;
+    private final int capacity;
+    private int count;
+
+    /**
+     * Creates a filter sized for the given number of strings and false positive
+     * rate
+     * 
+     * @param capacity the expected number of strings
+     * @param falsePositiveRate the false positive rate once the filter holds
+     *            capacity strings
+     */
+    public BloomFilter(int capacity, double falsePositiveRate)
+    {
+        if (capacity <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1)
+        {
+            throw new IllegalArgumentException("Invalid capacity " + capacity + " or false positive rate "
+                                               + falsePositiveRate);
+        }
+        long optimalBits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.numBits = (int) Math.max(64, Math.min(optimalBits, Integer.MAX_VALUE - 63));
+        this.numHashes = Math.max(1, (int) Math.round((double) numBits / capacity * Math.log(2)));
+        this.bits = new long[(numBits + 63) / 64];
+        this.capacity = capacity;
+    }
+
+    private BloomFilter(long[] bits, int numBits, int numHashes, int capacity, int count)
+    {
+        this.bits = bits;
+        this.numBits = numBits;
+        this.numHashes = numHashes;
+        this.capacity = capacity;
+        this.count = count;
+    }
+
+    /**
+     * Adds a string to the filter
+     * 
+     * @param value the string
+     * @return true if the string was definitely not in the filter yet, false if it
+     *         may have been
+     */
+    public boolean put(String value)
+    {
+        long hash1 = hash(value, 0x9E3779B97F4A7C15L);
+        long hash2 = hash(value, 0xC2B2AE3D27D4EB4FL) | 1;
+        boolean changed = false;
+        for (int i = 0; i < numHashes; i++)
+        {
+            int index = (int) (((hash1 + i * hash2) & Long.MAX_VALUE) % numBits);
+            long mask = 1L << index;
+            if ((bits[index >>> 6] & mask) == 0)
+            {
+                bits[index >>> 6] |= mask;
+                changed = true;
+            }
+        }
+        if (changed)
+        {
+            count++;
+        }
+        return changed;
+    }
+
+    /**
+     * @param value the string
+     * @return false if the string is definitely not in the filter, true if it may
+     *         be
+     */
+    public boolean mightContain(String value)
+    {
+        long hash1 = hash(value, 0x9E3779B97F4A7C15L);
+        long hash2 = hash(value, 0xC2B2AE3D27D4EB4FL) | 1;
+        for (int i = 0; i < numHashes; i++)
+        {
+            int index = (int) (((hash1 + i * hash2) & Long.MAX_VALUE) % numBits);
+            if ((bits[index >>> 6] & (1L << index)) == 0)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of strings added to the filter
+     */
+    public int getCount()
+    {
+        return count;
+    }
+
+    /**
+     * @return whether the filter holds as many strings as it was sized for
+     */
+    public boolean isFull()
+    {
+        return count >= capacity;
+    }
+
+    /**
+     * @return the size of the filter in bytes
+     */
+    public long getSizeInBytes()
+    {
+        return bits.length * 8L;
+    }
+
+    public void writeTo(DataOutput out) throws IOException
+    {
+        out.writeInt(numBits);
+        out.writeInt(numHashes);
+        out.writeInt(capacity);
+        out.writeInt(count);
+        for (long word : bits)
+        {
+            out.writeLong(word);
+        }
+    }
+
+    public static BloomFilter readFrom(DataInput in) throws IOException
+    {
+        int numBits = in.readInt();
+        int numHashes = in.readInt();
+        int capacity = in.readInt();
+        int count = in.readInt();
+        long[] bits = new long[(numBits + 63) / 64];
+        for (int i = 0; i < bits.length; i++)
+        {
+            bits[i] = in.readLong();
+        }
+        return new BloomFilter(bits, numBits, numHashes, capacity, count);
+    }
+
+    private static long hash(String value, long seed)
+    {
+        long hash = seed ^ value.length();
+        for (int i = 0; i < value.length(); i++)
+        {
+            hash = (hash ^ value.charAt(i)) * 0x100000001B3L;
+            hash ^= hash >>> 29;
+        }
+        // final avalanche of MurmurHash3
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,153 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.dedup;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Remembers which keys have already been processed using two generations of
+ * {@link ScalableBloomFilter}s. Keys are added to the current generation; once it
+ * holds as many keys as the rotation size, the previous generation is discarded
+ * and the current one takes its place. Memory use is thus bounded while every key
+ * is remembered for at least one full generation.
+ * <p/>
+ * Being Bloom filters, a key that was never seen may be reported as seen with
+ * the configured false positive rate, but a seen key is never reported as new.
+ */
+public class Deduplicator
+{
+    private static final int MAGIC = 0x46424446;
+
+    private final int rotationSize;
+    private final double falsePositiveRate;
+    private ScalableBloomFilter current;
+    private ScalableBloomFilter previous;
+    private long duplicates;
+
+    /**
+     * @param rotationSize the number of keys per generation
+     * @param falsePositiveRate the false positive rate of each generation
+     */
+    public Deduplicator(int rotationSize, double falsePositiveRate)
+    {
+        this.rotationSize = rotationSize;
+        this.falsePositiveRate = falsePositiveRate;
+        this.current = newGeneration();
+    }
+
+    /**
+     * Records the given key
+     * 
+     * @param key the key
+     * @return true if it is the first time the key is seen
+     */
+    public synchronized boolean firstSeen(String key)
+    {
+        if (previous != null && previous.mightContain(key))
+        {
+            duplicates++;
+            return false;
+        }
+        if (!current.put(key))
+        {
+            duplicates++;
+            return false;
+        }
+        if (current.getCount() >= rotationSize)
+        {
+            previous = current;
+            current = newGeneration();
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of keys reported as already seen
+     */
+    public synchronized long getDuplicates()
+    {
+        return duplicates;
+    }
+
+    /**
+     * Saves the filters to the given file
+     * 
+     * @param file the file
+     * @throws IOException if the file can't be written
+     */
+    public synchronized void save(File file) throws IOException
+    {
+        File temporary = new File(file.getPath() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)));
+        try
+        {
+            out.writeInt(MAGIC);
+            current.writeTo(out);
+            out.writeBoolean(previous != null);
+            if (previous != null)
+            {
+                previous.writeTo(out);
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+        if (!temporary.renameTo(file))
+        {
+            file.delete();
+            if (!temporary.renameTo(file))
+            {
+                throw new IOException("Could not replace " + file);
+            }
+        }
+    }
+
+    /**
+     * Loads the filters saved in the given file, if it exists
+     * 
+     * @param file the file
+     * @throws IOException if the file can't be read
+     */
+    public synchronized void load(File file) throws IOException
+    {
+        if (!file.exists())
+        {
+            return;
+        }
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try
+        {
+            if (in.readInt() != MAGIC)
+            {
+                throw new IOException(file + " is not a deduplication file");
+            }
+            current = ScalableBloomFilter.readFrom(in);
+            previous = in.readBoolean() ? ScalableBloomFilter.readFrom(in) : null;
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    private ScalableBloomFilter newGeneration()
+    {
+        return new ScalableBloomFilter(Math.max(1024, rotationSize / 4), falsePositiveRate);
+    }
+}
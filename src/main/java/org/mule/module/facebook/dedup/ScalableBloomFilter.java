@@ -0,0 +1,126 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.dedup;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A Bloom filter that grows as strings are added while keeping its overall false
+ * positive rate bounded. When the current filter is full a new one, twice as
+ * large and with half the false positive rate, is added; lookups check all of
+ * them, so the compound rate stays below twice the initial one.
+ */
+public class ScalableBloomFilter
+{
+    private static final int GROWTH = 2;
+    private static final double TIGHTENING = 0.5;
+
+    private final List<BloomFilter> filters = new ArrayList<BloomFilter>();
+    private final int initialCapacity;
+    private final double falsePositiveRate;
+
+    /**
+     * @param initialCapacity the capacity of the first filter
+     * @param falsePositiveRate the overall false positive rate to stay close to
+     */
+    public ScalableBloomFilter(int initialCapacity, double falsePositiveRate)
+    {
+        this.initialCapacity = initialCapacity;
+        this.falsePositiveRate = falsePositiveRate;
+        filters.add(new BloomFilter(initialCapacity, falsePositiveRate * TIGHTENING));
+    }
+
+    /**
+     * Adds a string to the filter
+     * 
+     * @param value the string
+     * @return true if the string was definitely not in the filter yet
+     */
+    public boolean put(String value)
+    {
+        if (mightContain(value))
+        {
+            return false;
+        }
+        BloomFilter current = filters.get(filters.size() - 1);
+        if (current.isFull())
+        {
+            int size = filters.size();
+            long capacity = initialCapacity * (long) Math.pow(GROWTH, size);
+            current = new BloomFilter((int) Math.min(capacity, Integer.MAX_VALUE / 16),
+                falsePositiveRate * Math.pow(TIGHTENING, size + 1));
+            filters.add(current);
+        }
+        return current.put(value);
+    }
+
+    public boolean mightContain(String value)
+    {
+        for (int i = filters.size() - 1; i >= 0; i--)
+        {
+            if (filters.get(i).mightContain(value))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the number of strings added
+     */
+    public long getCount()
+    {
+        long count = 0;
+        for (BloomFilter filter : filters)
+        {
+            count += filter.getCount();
+        }
+        return count;
+    }
+
+    public long getSizeInBytes()
+    {
+        long size = 0;
+        for (BloomFilter filter : filters)
+        {
+            size += filter.getSizeInBytes();
+        }
+        return size;
+    }
+
+    public void writeTo(DataOutput out) throws IOException
+    {
+        out.writeInt(initialCapacity);
+        out.writeDouble(falsePositiveRate);
+        out.writeInt(filters.size());
+        for (BloomFilter filter : filters)
+        {
+            filter.writeTo(out);
+        }
+    }
+
+    public static ScalableBloomFilter readFrom(DataInput in) throws IOException
+    {
+        ScalableBloomFilter filter = new ScalableBloomFilter(in.readInt(), in.readDouble());
+        filter.filters.clear();
+        int size = in.readInt();
+        for (int i = 0; i < size; i++)
+        {
+            filter.filters.add(BloomFilter.readFrom(in));
+        }
+        return filter;
+    }
+}
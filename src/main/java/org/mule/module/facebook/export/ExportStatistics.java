@@ -0,0 +1,80 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.export;
+
+import java.io.Serializable;
+
+/**
+ * Counters of an export
+ */
+public class ExportStatistics implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    private final long items;
+    private final long pages;
+    private final long bytes;
+    private final long elapsedMillis;
+
+    public ExportStatistics(long items, long pages, long bytes, long elapsedMillis)
+    {
+        this.items = items;
+        this.pages = pages;
+        this.bytes = bytes;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * @return the number of items written
+     */
+    public long getItems()
+    {
+        return items;
+    }
+
+    /**
+     * @return the number of pages read
+     */
+    public long getPages()
+    {
+        return pages;
+    }
+
+    /**
+     * @return the number of bytes written, after compression
+     */
+    public long getBytes()
+    {
+        return bytes;
+    }
+
+    public long getElapsedMillis()
+    {
+        return elapsedMillis;
+    }
+
+    public double getItemsPerSecond()
+    {
+        return elapsedMillis == 0 ? items : items * 1000.0 / elapsedMillis;
+    }
+
+    public double getBytesPerSecond()
+    {
+        return elapsedMillis == 0 ? bytes : bytes * 1000.0 / elapsedMillis;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "ExportStatistics[items=" + items + " pages=" + pages + " bytes=" + bytes + " elapsedMillis="
+               + elapsedMillis + "]";
+    }
+}
@@ -0,0 +1,164 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.export;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.codehaus.jackson.map.ObjectMapper;
+
+/**
+ * Writes the items of connection pages as newline delimited JSON, one item per
+ * line. Pages are read with a streaming parser straight from the response, so
+ * only one item at a time is held in memory whatever the size of the export.
+ */
+public class NdjsonExporter
+{
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int NEWLINE = '\n';
+
+    private final CountingOutputStream counter;
+    private final OutputStream out;
+    private final long started = System.currentTimeMillis();
+    private long items;
+    private long pages;
+
+    /**
+     * @param out the stream to write to
+     * @param gzip whether to compress the output
+     * @throws IOException if the gzip header can not be written
+     */
+    public NdjsonExporter(OutputStream out, boolean gzip) throws IOException
+    {
+        this.counter = new CountingOutputStream(out);
+        this.out = gzip ? new GZIPOutputStream(counter, 64 * 1024) : counter;
+    }
+
+    /**
+     * Writes the items of a page
+     * 
+     * @param page the response holding the page, closed once read
+     * @return the link to the next page, or null if there is none or the page is
+     *         empty
+     * @throws IOException if the page can not be read or written
+     */
+    public String writePage(InputStream page) throws IOException
+    {
+        JsonParser parser = MAPPER.getJsonFactory().createJsonParser(page);
+        long written = 0;
+        String next = null;
+        try
+        {
+            if (parser.nextToken() != JsonToken.START_OBJECT)
+            {
+                throw new IOException("Expected a connection page but got " + parser.getCurrentToken());
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME)
+            {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("data".equals(field) && value == JsonToken.START_ARRAY)
+                {
+                    while (parser.nextToken() != JsonToken.END_ARRAY)
+                    {
+                        JsonNode item = parser.readValueAsTree();
+                        out.write(MAPPER.writeValueAsBytes(item));
+                        out.write(NEWLINE);
+                        written++;
+                    }
+                }
+                else if ("paging".equals(field) && value == JsonToken.START_OBJECT)
+                {
+                    JsonNode paging = parser.readValueAsTree();
+                    next = paging.path("next").getTextValue();
+                }
+                else
+                {
+                    parser.skipChildren();
+                }
+            }
+        }
+        finally
+        {
+            parser.close();
+            page.close();
+        }
+        items += written;
+        pages++;
+        return written == 0 ? null : next;
+    }
+
+    /**
+     * @return the counters so far
+     */
+    public ExportStatistics getStatistics()
+    {
+        return new ExportStatistics(items, pages, counter.count, System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Finishes the output, leaving the underlying stream open
+     * 
+     * @return the final counters
+     * @throws IOException if the output can not be written
+     */
+    public ExportStatistics finish() throws IOException
+    {
+        if (out instanceof GZIPOutputStream)
+        {
+            ((GZIPOutputStream) out).finish();
+        }
+        out.flush();
+        return getStatistics();
+    }
+
+    /**
+     * Finishes the output and closes it
+     * 
+     * @return the final counters
+     * @throws IOException if the output can not be closed
+     */
+    public ExportStatistics close() throws IOException
+    {
+        out.close();
+        return getStatistics();
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream
+    {
+        private long count;
+
+        public CountingOutputStream(OutputStream out)
+        {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException
+        {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException
+        {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.graph;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.mule.module.facebook.codec.Varints;
+
+/**
+ * A directed graph in compressed sparse row form: the targets of the edges of
+ * every node in one int array, sorted by source, and the offset of the first edge
+ * of each node in another. Nodes are Graph ids interned in an {@link IdIndex}, so
+ * an edge costs four bytes.
+ */
+public class CsrGraph
+{
+    private static final int MAGIC = 0x46424731;
+
+    private final IdIndex ids;
+    private final int[] offsets;
+    private final int[] targets;
+
+    public CsrGraph(IdIndex ids, int[] offsets, int[] targets)
+    {
+        this.ids = ids;
+        this.offsets = offsets;
+        this.targets = targets;
+    }
+
+    public int getNodeCount()
+    {
+        return offsets.length - 1;
+    }
+
+    public int getEdgeCount()
+    {
+        return targets.length;
+    }
+
+    /**
+     * @param id the id of a node
+     * @return the ids of the nodes it has an edge to, empty if it is unknown
+     */
+    public List<String> getNeighbours(String id)
+    {
+        int node = ids.indexOf(id);
+        List<String> neighbours = new ArrayList<String>();
+        if (node >= 0 && node < getNodeCount())
+        {
+            for (int i = offsets[node]; i < offsets[node + 1]; i++)
+            {
+                neighbours.add(ids.get(targets[i]));
+            }
+        }
+        return neighbours;
+    }
+
+    /**
+     * @param id the id of a node
+     * @return the number of edges from the node
+     */
+    public int getDegree(String id)
+    {
+        int node = ids.indexOf(id);
+        return node >= 0 && node < getNodeCount() ? offsets[node + 1] - offsets[node] : 0;
+    }
+
+    /**
+     * Writes the graph: the ids, numeric ones as varints, then the degree of every
+     * node and the delta encoded targets of its edges, as varints
+     * 
+     * @param file the file to write to
+     * @throws IOException if the file can not be written
+     */
+    public void writeTo(File file) throws IOException
+    {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 64 * 1024));
+        try
+        {
+            int nodes = getNodeCount();
+            out.writeInt(MAGIC);
+            Varints.writeUnsigned(out, nodes);
+            Varints.writeUnsigned(out, targets.length);
+            for (int node = 0; node < nodes; node++)
+            {
+                String id = ids.get(node);
+                long number = IdIndex.toNumber(id);
+                if (number >= 0)
+                {
+                    Varints.writeUnsigned(out, number << 1);
+                }
+                else
+                {
+                    byte[] bytes = id.getBytes("UTF-8");
+                    Varints.writeUnsigned(out, ((long) bytes.length << 1) | 1);
+                    out.write(bytes);
+                }
+            }
+            for (int node = 0; node < nodes; node++)
+            {
+                Varints.writeUnsigned(out, offsets[node + 1] - offsets[node]);
+                int previous = 0;
+                for (int i = offsets[node]; i < offsets[node + 1]; i++)
+                {
+                    Varints.writeUnsigned(out, targets[i] - previous);
+                    previous = targets[i];
+                }
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    /**
+     * @param file a file written by {@link #writeTo(File)}
+     * @return the graph
+     * @throws IOException if the file can not be read
+     */
+    public static CsrGraph readFrom(File file) throws IOException
+    {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        ByteBuffer in;
+        try
+        {
+            in = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+        }
+        finally
+        {
+            raf.close();
+        }
+        if (in.getInt() != MAGIC)
+        {
+            throw new IOException(file + " is not a graph file");
+        }
+        int nodes = (int) Varints.readUnsigned(in);
+        int edges = (int) Varints.readUnsigned(in);
+        IdIndex ids = new IdIndex();
+        for (int node = 0; node < nodes; node++)
+        {
+            long value = Varints.readUnsigned(in);
+            if ((value & 1) == 0)
+            {
+                ids.intern(Long.toString(value >>> 1));
+            }
+            else
+            {
+                byte[] bytes = new byte[(int) (value >>> 1)];
+                in.get(bytes);
+                ids.intern(new String(bytes, "UTF-8"));
+            }
+        }
+        int[] offsets = new int[nodes + 1];
+        int[] targets = new int[edges];
+        for (int node = 0; node < nodes; node++)
+        {
+            int degree = (int) Varints.readUnsigned(in);
+            offsets[node + 1] = offsets[node] + degree;
+            int previous = 0;
+            for (int i = offsets[node]; i < offsets[node + 1]; i++)
+            {
+                previous += (int) Varints.readUnsigned(in);
+                targets[i] = previous;
+            }
+        }
+        return new CsrGraph(ids, offsets, targets);
+    }
+
+    /**
+     * Collects edges in primitive arrays and sorts them into a {@link CsrGraph}
+     */
+    public static class Builder
+    {
+        private final IdIndex ids = new IdIndex();
+        private int[] sources = new int[1024];
+        private int[] destinations = new int[1024];
+        private int size;
+
+        /**
+         * Adds a node without edges, unless it already has some
+         * 
+         * @param id the id of the node
+         */
+        public synchronized void addNode(String id)
+        {
+            ids.intern(id);
+        }
+
+        public synchronized void addEdge(String from, String to)
+        {
+            if (size == sources.length)
+            {
+                sources = Arrays.copyOf(sources, size * 2);
+                destinations = Arrays.copyOf(destinations, size * 2);
+            }
+            sources[size] = ids.intern(from);
+            destinations[size] = ids.intern(to);
+            size++;
+        }
+
+        /**
+         * @return the graph of the edges added, duplicated edges removed
+         */
+        public synchronized CsrGraph build()
+        {
+            int nodes = ids.size();
+            int[] offsets = new int[nodes + 1];
+            for (int i = 0; i < size; i++)
+            {
+                offsets[sources[i] + 1]++;
+            }
+            for (int node = 0; node < nodes; node++)
+            {
+                offsets[node + 1] += offsets[node];
+            }
+            int[] targets = new int[size];
+            int[] next = Arrays.copyOf(offsets, nodes);
+            for (int i = 0; i < size; i++)
+            {
+                targets[next[sources[i]]++] = destinations[i];
+            }
+
+            int edges = 0;
+            int start = 0;
+            for (int node = 0; node < nodes; node++)
+            {
+                int end = offsets[node + 1];
+                Arrays.sort(targets, start, end);
+                offsets[node] = edges;
+                for (int i = start; i < end; i++)
+                {
+                    if (i == start || targets[i] != targets[i - 1])
+                    {
+                        targets[edges++] = targets[i];
+                    }
+                }
+                start = end;
+            }
+            offsets[nodes] = edges;
+            return new CsrGraph(ids, offsets, Arrays.copyOf(targets, edges));
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.graph;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.mule.module.facebook.dedup.BloomFilter;
+
+/**
+ * Crawls the friend graph breadth first from seed users, reading the friends of
+ * a bounded number of users in parallel, down to a maximum depth. Only the
+ * friends of the users there is an access token for are read, each with the
+ * user's own token; the others are added as nodes without edges. The crawl stops
+ * at its deadline and returns what it has read by then. Visited users are
+ * remembered in a Bloom filter, so a user may on rare occasions be wrongly taken
+ * as already visited.
+ */
+public class FriendGraphCrawler
+{
+    private static final Log LOGGER = LogFactory.getLog(FriendGraphCrawler.class);
+
+    private final FriendSource source;
+    private final int parallelism;
+    private final int maxDepth;
+    private final int maxUsers;
+
+    /**
+     * @param source where to read the friends from
+     * @param parallelism the number of users whose friends are read at once
+     * @param maxDepth the depth of the crawl: 0 only reads the friends of the seeds
+     * @param maxUsers the maximum number of users whose friends are read
+     */
+    public FriendGraphCrawler(FriendSource source, int parallelism, int maxDepth, int maxUsers)
+    {
+        this.source = source;
+        this.parallelism = parallelism;
+        this.maxDepth = maxDepth;
+        this.maxUsers = maxUsers;
+    }
+
+    /**
+     * @param seeds the users to start from
+     * @param accessTokens the access tokens of the users, by user id
+     * @param deadline the instant the crawl must be done by, in milliseconds since
+     *            the epoch, {@link Long#MAX_VALUE} for none
+     * @return the graph, with an edge from each crawled user to each of its friends
+     * @throws InterruptedException if interrupted while crawling
+     */
+    public CsrGraph crawl(List<String> seeds, Map<String, String> accessTokens, long deadline)
+        throws InterruptedException
+    {
+        CsrGraph.Builder builder = new CsrGraph.Builder();
+        BloomFilter visited = new BloomFilter(Math.max(maxUsers, 1024), 0.001);
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        int crawled = 0;
+        try
+        {
+            List<String> level = new ArrayList<String>();
+            for (String seed : seeds)
+            {
+                if (visited.put(seed))
+                {
+                    level.add(seed);
+                }
+            }
+            for (int depth = 0; depth <= maxDepth && !level.isEmpty(); depth++)
+            {
+                List<String> users = new ArrayList<String>();
+                List<Future<List<String>>> futures = new ArrayList<Future<List<String>>>();
+                for (final String user : level)
+                {
+                    builder.addNode(user);
+                    final String accessToken = accessTokens.get(user);
+                    if (accessToken == null || crawled == maxUsers)
+                    {
+                        continue;
+                    }
+                    crawled++;
+                    users.add(user);
+                    futures.add(executor.submit(new Callable<List<String>>()
+                    {
+                        public List<String> call() throws Exception
+                        {
+                            return source.getFriends(user, accessToken);
+                        }
+                    }));
+                }
+                List<String> nextLevel = new ArrayList<String>();
+                for (int i = 0; i < futures.size(); i++)
+                {
+                    List<String> friends;
+                    try
+                    {
+                        friends = friends(futures.get(i), deadline);
+                    }
+                    catch (TimeoutException e)
+                    {
+                        LOGGER.warn("The deadline of the crawl was reached after reading the friends of " + crawled
+                                    + " users, returning the graph read so far");
+                        return builder.build();
+                    }
+                    for (String friend : friends)
+                    {
+                        builder.addEdge(users.get(i), friend);
+                        if (visited.put(friend))
+                        {
+                            nextLevel.add(friend);
+                        }
+                    }
+                }
+                level = nextLevel;
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+        return builder.build();
+    }
+
+    private static List<String> friends(Future<List<String>> future, long deadline)
+        throws InterruptedException, TimeoutException
+    {
+        try
+        {
+            if (deadline == Long.MAX_VALUE)
+            {
+                return future.get();
+            }
+            return future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        }
+        catch (ExecutionException e)
+        {
+            LOGGER.warn("Could not read the friends of a user", e.getCause());
+            return Collections.emptyList();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.graph;
+
+import java.util.List;
+
+/**
+ * Reads the friends of a user
+ */
+public interface FriendSource
+{
+    /**
+     * @param user the id of the user
+     * @param accessToken the access token to read them with
+     * @return the ids of the friends of the user
+     */
+    List<String> getFriends(String user, String accessToken);
+}
@@ -0,0 +1,171 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.graph;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Assigns dense int indexes to Graph ids. Numeric ids, which most are, are kept
+ * as longs in an open addressing table; the others in a map.
+ */
+public class IdIndex
+{
+    private static final int NOT_NUMERIC = -1;
+
+    private long[] keys = new long[64];
+    private int[] slots = new int[64];
+    private long[] numbers = new long[16];
+    private final Map<String, Integer> others = new HashMap<String, Integer>();
+    private final Map<Integer, String> otherIds = new HashMap<Integer, String>();
+    private int size;
+
+    /**
+     * @param id the id
+     * @return the index of the id, assigning the next one if it has none yet
+     */
+    public synchronized int intern(String id)
+    {
+        long number = toNumber(id);
+        int index = number == NOT_NUMERIC ? indexOfOther(id) : indexOfNumber(number);
+        if (index >= 0)
+        {
+            return index;
+        }
+        index = size++;
+        if (index == numbers.length)
+        {
+            numbers = Arrays.copyOf(numbers, index * 2);
+        }
+        numbers[index] = number;
+        if (number == NOT_NUMERIC)
+        {
+            others.put(id, index);
+            otherIds.put(index, id);
+        }
+        else
+        {
+            if (size * 2 > keys.length)
+            {
+                rehash();
+            }
+            insert(number, index);
+        }
+        return index;
+    }
+
+    /**
+     * @param id the id
+     * @return the index of the id, or -1 if it has none
+     */
+    public synchronized int indexOf(String id)
+    {
+        long number = toNumber(id);
+        return number == NOT_NUMERIC ? indexOfOther(id) : indexOfNumber(number);
+    }
+
+    /**
+     * @param index an index
+     * @return the id with that index
+     */
+    public synchronized String get(int index)
+    {
+        if (index < 0 || index >= size)
+        {
+            throw new IndexOutOfBoundsException("No id with index " + index);
+        }
+        long number = numbers[index];
+        return number == NOT_NUMERIC ? otherIds.get(index) : Long.toString(number);
+    }
+
+    public synchronized int size()
+    {
+        return size;
+    }
+
+    /**
+     * @param id an id
+     * @return the id as a long if it is the canonical form of a non negative long,
+     *         -1 otherwise
+     */
+    public static long toNumber(String id)
+    {
+        int length = id.length();
+        if (length == 0 || length > 18 || (id.charAt(0) == '0' && length > 1))
+        {
+            return NOT_NUMERIC;
+        }
+        long number = 0;
+        for (int i = 0; i < length; i++)
+        {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9')
+            {
+                return NOT_NUMERIC;
+            }
+            number = number * 10 + (c - '0');
+        }
+        return number;
+    }
+
+    private int indexOfOther(String id)
+    {
+        Integer index = others.get(id);
+        return index == null ? -1 : index;
+    }
+
+    private int indexOfNumber(long number)
+    {
+        int mask = keys.length - 1;
+        for (int slot = hash(number) & mask; slots[slot] != 0; slot = (slot + 1) & mask)
+        {
+            if (keys[slot] == number)
+            {
+                return slots[slot] - 1;
+            }
+        }
+        return -1;
+    }
+
+    private void insert(long number, int index)
+    {
+        int mask = keys.length - 1;
+        int slot = hash(number) & mask;
+        while (slots[slot] != 0)
+        {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = number;
+        slots[slot] = index + 1;
+    }
+
+    private void rehash()
+    {
+        long[] oldKeys = keys;
+        int[] oldSlots = slots;
+        keys = new long[oldKeys.length * 2];
+        slots = new int[oldSlots.length * 2];
+        for (int i = 0; i < oldKeys.length; i++)
+        {
+            if (oldSlots[i] != 0)
+            {
+                insert(oldKeys[i], oldSlots[i] - 1);
+            }
+        }
+    }
+
+    private static int hash(long number)
+    {
+        long h = number * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,177 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.http;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientResponse;
+
+/**
+ * Pays the one-off costs of talking to the Graph API before the first real
+ * request does: DNS resolution, TLS handshakes and the opening of the pooled
+ * connections. The handshakes go through the JVM default SSL context, whose
+ * session cache keeps the sessions they establish for later requests to
+ * resume; its settings are shared by every application of the JVM, so they are
+ * left as they are. The warm-up runs in the background, so a slow or
+ * unreachable Graph API does not hold up the start of the connector.
+ */
+public class ConnectionWarmer
+{
+    private static final Log LOGGER = LogFactory.getLog(ConnectionWarmer.class);
+
+    /**
+     * How long the whole warm-up may take, in milliseconds
+     */
+    private static final long WARM_UP_TIMEOUT = 30000;
+
+    private final Client client;
+    private final URI uri;
+
+    public ConnectionWarmer(Client client, URI uri)
+    {
+        this.client = client;
+        this.uri = uri;
+    }
+
+    /**
+     * Warms up the given number of connections on a daemon thread, returning at
+     * once
+     * 
+     * @param connections the number of connections to open concurrently
+     */
+    public void warmUpInBackground(final int connections)
+    {
+        if (connections <= 0)
+        {
+            return;
+        }
+        Thread thread = new Thread(new Runnable()
+        {
+            public void run()
+            {
+                warmUp(connections);
+            }
+        }, "facebook-connection-warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Resolves the Graph API host and opens the given number of connections to
+     * it. Failures are logged and never propagated: a cold connector is still a
+     * working connector.
+     * 
+     * @param connections the number of connections to open concurrently
+     */
+    public void warmUp(int connections)
+    {
+        if (connections <= 0)
+        {
+            return;
+        }
+        if (resolve())
+        {
+            openConnections(connections);
+        }
+    }
+
+    /**
+     * Returns how many of the requested warm-up connections the transport can
+     * keep open for later requests: opening more only adds sockets that are
+     * closed as soon as the warm-up is over. The POOLED transport keeps up to
+     * its pool size; other transports are not warmed up, since their connections
+     * are not pooled by the client.
+     * 
+     * @param transport the transport of the client, null meaning URL_CONNECTION
+     * @param maxConnections the pool size of the POOLED transport
+     * @param requested the number of connections asked for
+     * @return the number of connections worth warming up
+     */
+    public static int usableConnections(HttpTransport transport, int maxConnections, int requested)
+    {
+        if (transport != HttpTransport.POOLED)
+        {
+            return 0;
+        }
+        return Math.min(requested, maxConnections);
+    }
+
+    private boolean resolve()
+    {
+        try
+        {
+            InetAddress[] addresses = InetAddress.getAllByName(uri.getHost());
+            if (LOGGER.isDebugEnabled())
+            {
+                LOGGER.debug("Resolved " + uri.getHost() + " to " + addresses.length + " addresses");
+            }
+            return true;
+        }
+        catch (UnknownHostException e)
+        {
+            LOGGER.warn("Could not resolve " + uri.getHost() + ", skipping connection warm-up");
+            return false;
+        }
+    }
+
+    private void openConnections(int connections)
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(connections);
+        try
+        {
+            List<Future<Integer>> results = new ArrayList<Future<Integer>>(connections);
+            for (int i = 0; i < connections; i++)
+            {
+                results.add(executor.submit(new Callable<Integer>()
+                {
+                    public Integer call() throws Exception
+                    {
+                        ClientResponse response = client.resource(uri).head();
+                        response.close();
+                        return response.getStatus();
+                    }
+                }));
+            }
+            int opened = 0;
+            long deadline = System.currentTimeMillis() + WARM_UP_TIMEOUT;
+            for (Future<Integer> result : results)
+            {
+                try
+                {
+                    result.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                    opened++;
+                }
+                catch (Exception e)
+                {
+                    LOGGER.warn("Could not open a warm-up connection to " + uri, e);
+                }
+            }
+            LOGGER.info("Opened " + opened + " warm-up connections to " + uri);
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.http;
+
+/**
+ * Thrown when a request to the Graph API is about to be sent but the time budget
+ * of the Mule event that triggered it has already been spent.
+ */
+public class DeadlineExceededException extends RuntimeException
+{
+    private static final long serialVersionUID = 1L;
+
+    public DeadlineExceededException(String message)
+    {
+        super(message);
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.http;
+
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
+
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.config.ClientConfig;
+import com.sun.jersey.api.client.config.DefaultClientConfig;
+import com.sun.jersey.api.client.filter.LoggingFilter;
+import com.sun.jersey.client.apache.ApacheHttpClient;
+import com.sun.jersey.client.apache.config.DefaultApacheHttpClientConfig;
+
+/**
+ * Builds the Jersey {@link Client} used by the connector for a given
+ * {@link HttpTransport}. Whatever the transport, the returned client exposes the
+ * same API so every processor behaves identically.
+ */
+public final class FacebookClientFactory
+{
+    private FacebookClientFactory()
+    {
+    }
+
+    /**
+     * Creates a new client
+     * 
+     * @param transport the transport to use
+     * @param maxConnections the maximum number of connections to keep open to a
+     *            single host. Only used by pooled transports.
+     * @param connectTimeout the connect timeout in milliseconds, zero meaning
+     *            infinite
+     * @param readTimeout the read timeout in milliseconds, zero meaning infinite
+     * @return a new client
+     */
+    public static Client createClient(HttpTransport transport, int maxConnections, int connectTimeout, int readTimeout)
+    {
+        Client client;
+        switch (transport)
+        {
+            case POOLED :
+                client = createPooledClient(maxConnections, connectTimeout);
+                break;
+            default :
+                client = Client.create(new DefaultClientConfig());
+        }
+        client.setConnectTimeout(connectTimeout);
+        client.setReadTimeout(readTimeout);
+        client.addFilter(new LoggingFilter());
+        return client;
+    }
+
+    /**
+     * The Apache client created by Jersey holds a multi threaded connection
+     * manager, whose pool is sized here: Jersey 1.6 has no configuration property
+     * for it
+     */
+    private static Client createPooledClient(int maxConnections, int connectTimeout)
+    {
+        ClientConfig config = new DefaultApacheHttpClientConfig();
+        ApacheHttpClient client = ApacheHttpClient.create(config);
+        HttpConnectionManagerParams params = client.getClientHandler().getHttpClient().getHttpConnectionManager().getParams();
+        params.setDefaultMaxConnectionsPerHost(maxConnections);
+        params.setMaxTotalConnections(maxConnections);
+        params.setStaleCheckingEnabled(true);
+        params.setTcpNoDelay(true);
+        params.setConnectionTimeout(connectTimeout);
+        return client;
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.http;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.mule.modules.utils.MuleSoftException;
+
+/**
+ * Reads the object and the access token of Graph API uris, so the state kept
+ * for a read, such as cached responses, checkpoints or watermarks, can be scoped
+ * by object and by token without the token itself ending up in a store.
+ */
+public final class GraphUris
+{
+    private static final String ACCESS_TOKEN = "access_token=";
+
+    private GraphUris()
+    {
+    }
+
+    /**
+     * @param uri the uri of a read or write
+     * @return the id of the object it reads or writes, the first segment of its
+     *         path
+     */
+    public static String objectId(URI uri)
+    {
+        String path = uri.getRawPath();
+        int end = path.indexOf('/', 1);
+        return end < 0 ? path.substring(1) : path.substring(1, end);
+    }
+
+    /**
+     * @param uri the uri of a read or write
+     * @return the hash of its access token, or an empty string if it has none
+     */
+    public static String tokenHash(URI uri)
+    {
+        String query = uri.getRawQuery();
+        if (query != null)
+        {
+            for (String parameter : query.split("&"))
+            {
+                if (parameter.startsWith(ACCESS_TOKEN))
+                {
+                    return hash(parameter.substring(ACCESS_TOKEN.length()));
+                }
+            }
+        }
+        return "";
+    }
+
+    /**
+     * @param token an access token
+     * @return a short hash of it, so tokens never end up in a shared store
+     */
+    public static String hash(String token)
+    {
+        try
+        {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(token.getBytes("UTF-8"));
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < 8; i++)
+            {
+                hex.append(Character.forDigit((digest[i] >> 4) & 0xF, 16)).append(Character.forDigit(digest[i] & 0xF, 16));
+            }
+            return hex.toString();
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw MuleSoftException.soften(e);
+        }
+        catch (UnsupportedEncodingException e)
+        {
+            throw MuleSoftException.soften(e);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.http;
+
+/**
+ * The HTTP transports the connector can use to talk to the Graph API.
+ */
+public enum HttpTransport
+{
+    /**
+     * The JDK {@link java.net.HttpURLConnection} based transport. Every in-flight
+     * request holds its own socket.
+     */
+    URL_CONNECTION,
+
+    /**
+     * An Apache HttpClient based transport that keeps a bounded pool of persistent
+     * connections per host and shares them between all the concurrent requests
+     * issued by the connector.
+     */
+    POOLED
+}
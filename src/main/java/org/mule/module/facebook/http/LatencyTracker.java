@@ -0,0 +1,81 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.http;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the latencies of the most recent requests in a fixed size ring buffer and
+ * answers percentile queries over them. The percentile is recomputed every
+ * {@link #REFRESH_INTERVAL} samples rather than on every query.
+ */
+public class LatencyTracker
+{
+    private static final int REFRESH_INTERVAL = 32;
+
+    private final long[] samples;
+    private final int percentile;
+    private int count;
+    private int next;
+    private long cachedPercentile;
+
+    /**
+     * @param size the number of recent samples to keep
+     * @param percentile the percentile to track, between 1 and 100
+     */
+    public LatencyTracker(int size, int percentile)
+    {
+        if (percentile < 1 || percentile > 100)
+        {
+            throw new IllegalArgumentException("Percentile must be between 1 and 100: " + percentile);
+        }
+        this.samples = new long[size];
+        this.percentile = percentile;
+    }
+
+    public synchronized void record(long latency)
+    {
+        samples[next] = latency;
+        next = (next + 1) % samples.length;
+        if (count < samples.length)
+        {
+            count++;
+        }
+        if (count == 1 || next % REFRESH_INTERVAL == 0)
+        {
+            cachedPercentile = compute();
+        }
+    }
+
+    /**
+     * @return the number of samples currently held
+     */
+    public synchronized int getCount()
+    {
+        return count;
+    }
+
+    /**
+     * @return the tracked percentile of the held samples, zero if there are none
+     */
+    public synchronized long getPercentile()
+    {
+        return cachedPercentile;
+    }
+
+    private long compute()
+    {
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * count) - 1;
+        return sorted[Math.max(0, index)];
+    }
+}
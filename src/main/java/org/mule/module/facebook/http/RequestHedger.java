@@ -0,0 +1,241 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.http;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.mule.modules.utils.MuleSoftException;
+
+import com.sun.jersey.api.client.WebResource;
+
+/**
+ * Sends idempotent GET requests to the Graph API and, when a response takes
+ * longer than the tracked latency percentile, sends a duplicate of the request
+ * and returns whichever response arrives first.
+ * <p/>
+ * Hedges are capped by a budget expressed as a percentage of the requests sent,
+ * so the extra load on the Graph API stays bounded even when it is slow across
+ * the board. A request that cannot be hedged, because too few latencies were
+ * observed yet or the budget is spent, runs on the calling thread; only the
+ * requests that may be hedged go through the executor, since a blocking read
+ * on the calling thread could not be abandoned when its hedge answers first.
+ */
+public class RequestHedger
+{
+    private static final int LATENCY_SAMPLES = 1024;
+
+    /**
+     * Hedging starts once this many latencies have been observed
+     */
+    private static final int MIN_SAMPLES = 20;
+
+    private final LatencyTracker latencies;
+    private final long minDelay;
+    private final int budget;
+    private final ExecutorService executor;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+
+    /**
+     * @param percentile the latency percentile after which a request is hedged
+     * @param minDelay the minimum delay in milliseconds before hedging a request
+     * @param budget the maximum percentage of requests that can be hedged
+     */
+    public RequestHedger(int percentile, long minDelay, int budget)
+    {
+        this.latencies = new LatencyTracker(LATENCY_SAMPLES, percentile);
+        this.minDelay = minDelay;
+        this.budget = budget;
+        this.executor = Executors.newCachedThreadPool(new ThreadFactory()
+        {
+            private final AtomicInteger count = new AtomicInteger();
+
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable, "facebook-hedged-request-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Gets the given resource as a string
+     * 
+     * @param resource the resource
+     * @return the body of the first response that arrives
+     */
+    public String get(WebResource resource)
+    {
+        requests.incrementAndGet();
+        if (!canHedge())
+        {
+            return timedGet(resource);
+        }
+        CompletionService<String> completion = new ExecutorCompletionService<String>(executor);
+        Future<String> primary = completion.submit(new TimedGet(resource));
+        Future<String> hedge = null;
+        try
+        {
+            Future<String> first = completion.poll(delay(), TimeUnit.MILLISECONDS);
+            if (first == null && acquireHedge())
+            {
+                hedge = completion.submit(new TimedGet(resource));
+            }
+            if (first == null)
+            {
+                first = completion.take();
+            }
+            try
+            {
+                String result = first.get();
+                if (first == hedge)
+                {
+                    hedgeWins.incrementAndGet();
+                }
+                return result;
+            }
+            catch (ExecutionException e)
+            {
+                if (hedge == null)
+                {
+                    throw e;
+                }
+                // the other request may still succeed
+                return completion.take().get();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw MuleSoftException.soften(e);
+        }
+        catch (ExecutionException e)
+        {
+            throw unwrap(e);
+        }
+        finally
+        {
+            primary.cancel(true);
+            if (hedge != null)
+            {
+                hedge.cancel(true);
+            }
+        }
+    }
+
+    public void dispose()
+    {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return the number of requests sent through this hedger
+     */
+    public long getRequests()
+    {
+        return requests.get();
+    }
+
+    /**
+     * @return the number of duplicate requests sent
+     */
+    public long getHedges()
+    {
+        return hedges.get();
+    }
+
+    /**
+     * @return the number of times a duplicate request answered first
+     */
+    public long getHedgeWins()
+    {
+        return hedgeWins.get();
+    }
+
+    private long delay()
+    {
+        if (latencies.getCount() < MIN_SAMPLES)
+        {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(minDelay, latencies.getPercentile());
+    }
+
+    private boolean canHedge()
+    {
+        return latencies.getCount() >= MIN_SAMPLES && (hedges.get() + 1) * 100 <= requests.get() * budget;
+    }
+
+    private boolean acquireHedge()
+    {
+        while (true)
+        {
+            long current = hedges.get();
+            if ((current + 1) * 100 > requests.get() * budget)
+            {
+                return false;
+            }
+            if (hedges.compareAndSet(current, current + 1))
+            {
+                return true;
+            }
+        }
+    }
+
+    private String timedGet(WebResource resource)
+    {
+        long start = System.currentTimeMillis();
+        String result = resource.get(String.class);
+        latencies.record(System.currentTimeMillis() - start);
+        return result;
+    }
+
+    private static RuntimeException unwrap(ExecutionException e)
+    {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException)
+        {
+            return (RuntimeException) cause;
+        }
+        if (cause instanceof Error)
+        {
+            throw (Error) cause;
+        }
+        return MuleSoftException.soften((Exception) cause);
+    }
+
+    private class TimedGet implements Callable<String>
+    {
+        private final WebResource resource;
+
+        public TimedGet(WebResource resource)
+        {
+            this.resource = resource;
+        }
+
+        public String call() throws Exception
+        {
+            return timedGet(resource);
+        }
+    }
+}
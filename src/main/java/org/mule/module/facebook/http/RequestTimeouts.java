@@ -0,0 +1,194 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.http;
+
+import org.mule.api.MuleEvent;
+import org.mule.api.MuleMessage;
+import org.mule.api.transport.PropertyScope;
+
+import com.sun.jersey.api.client.WebResource;
+import com.sun.jersey.api.client.config.ClientConfig;
+
+/**
+ * Computes the connect and read timeouts of every request sent to the Graph API.
+ * <p/>
+ * The configured timeouts can be overridden for a single processor by setting the
+ * {@link #CONNECT_TIMEOUT_PROPERTY} and {@link #READ_TIMEOUT_PROPERTY}
+ * invocation properties on the event before calling it. The
+ * {@link #DEADLINE_PROPERTY} invocation property holds the instant, in
+ * milliseconds since the epoch, by which the event must be done with the Graph
+ * API. Since it travels with the event, every request issued on its behalf
+ * (retries, further pages, fan-out calls) is bounded by the remaining budget and
+ * none is sent once it has been spent. Events without a deadline get one of the
+ * configured request timeout when their first request is sent.
+ */
+public class RequestTimeouts
+{
+    public static final String CONNECT_TIMEOUT_PROPERTY = "facebook.connectTimeout";
+    public static final String READ_TIMEOUT_PROPERTY = "facebook.readTimeout";
+    public static final String DEADLINE_PROPERTY = "facebook.deadline";
+
+    private int connectTimeout;
+    private int readTimeout;
+    private long requestTimeout;
+
+    /**
+     * @param connectTimeout the connect timeout in milliseconds, zero meaning
+     *            infinite
+     * @param readTimeout the read timeout in milliseconds, zero meaning infinite
+     * @param requestTimeout the time budget given to events that don't carry a
+     *            deadline, zero meaning no budget
+     */
+    public RequestTimeouts(int connectTimeout, int readTimeout, long requestTimeout)
+    {
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        this.requestTimeout = requestTimeout;
+    }
+
+    /**
+     * Sets the timeouts for the current event on the given resource
+     * 
+     * @param resource the resource about to be requested
+     * @throws DeadlineExceededException if the deadline of the current event has
+     *             already passed
+     */
+    public void apply(WebResource resource)
+    {
+        MuleMessage message = currentMessage();
+        int connect = intProperty(message, CONNECT_TIMEOUT_PROPERTY, connectTimeout);
+        int read = intProperty(message, READ_TIMEOUT_PROPERTY, readTimeout);
+
+        if (message != null && requestTimeout > 0 && message.getProperty(DEADLINE_PROPERTY, PropertyScope.INVOCATION) == null)
+        {
+            startDeadline(requestTimeout);
+        }
+        long remaining = remaining(message);
+        if (remaining != Long.MAX_VALUE)
+        {
+            connect = bound(connect, remaining);
+            read = bound(read, remaining);
+        }
+        resource.setProperty(ClientConfig.PROPERTY_CONNECT_TIMEOUT, connect);
+        resource.setProperty(ClientConfig.PROPERTY_READ_TIMEOUT, read);
+    }
+
+    /**
+     * Gives the current event the given time budget
+     * 
+     * @param budget the budget in milliseconds
+     */
+    public void startDeadline(long budget)
+    {
+        MuleMessage message = currentMessage();
+        if (message != null)
+        {
+            message.setProperty(DEADLINE_PROPERTY, System.currentTimeMillis() + budget, PropertyScope.INVOCATION);
+        }
+    }
+
+    /**
+     * @return the milliseconds left to the deadline of the current event or
+     *         {@link Long#MAX_VALUE} if it has none
+     * @throws DeadlineExceededException if the deadline has already passed
+     */
+    public long remaining()
+    {
+        return remaining(currentMessage());
+    }
+
+    private long remaining(MuleMessage message)
+    {
+        if (message == null)
+        {
+            return Long.MAX_VALUE;
+        }
+        Object deadline = message.getProperty(DEADLINE_PROPERTY, PropertyScope.INVOCATION);
+        if (deadline == null)
+        {
+            return requestTimeout <= 0 ? Long.MAX_VALUE : requestTimeout;
+        }
+        long remaining = toLong(deadline) - System.currentTimeMillis();
+        if (remaining <= 0)
+        {
+            throw new DeadlineExceededException("The deadline of the event was exceeded by " + -remaining + " ms");
+        }
+        return remaining;
+    }
+
+    private static int bound(int timeout, long remaining)
+    {
+        int bound = (int) Math.min(remaining, Integer.MAX_VALUE);
+        return timeout <= 0 ? bound : Math.min(timeout, bound);
+    }
+
+    private static int intProperty(MuleMessage message, String name, int defaultValue)
+    {
+        if (message == null)
+        {
+            return defaultValue;
+        }
+        Object value = message.getProperty(name, PropertyScope.INVOCATION);
+        return value == null ? defaultValue : (int) toLong(value);
+    }
+
+    private static long toLong(Object value)
+    {
+        if (value instanceof Number)
+        {
+            return ((Number) value).longValue();
+        }
+        return Long.parseLong(value.toString().trim());
+    }
+
+    /**
+     * DevKit 3.3 does not hand the event to the processors, so it is taken from
+     * the request context Mule keeps for the current thread
+     * 
+     * @return the message of the current event, or null if there is none
+     */
+    @SuppressWarnings("deprecation")
+    protected MuleMessage currentMessage()
+    {
+        MuleEvent event = org.mule.RequestContext.getEvent();
+        return event == null ? null : event.getMessage();
+    }
+
+    public int getConnectTimeout()
+    {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(int connectTimeout)
+    {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public int getReadTimeout()
+    {
+        return readTimeout;
+    }
+
+    public void setReadTimeout(int readTimeout)
+    {
+        this.readTimeout = readTimeout;
+    }
+
+    public long getRequestTimeout()
+    {
+        return requestTimeout;
+    }
+
+    public void setRequestTimeout(long requestTimeout)
+    {
+        this.requestTimeout = requestTimeout;
+    }
+}
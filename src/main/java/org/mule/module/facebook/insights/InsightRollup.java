@@ -0,0 +1,64 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.insights;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rolls up insight values by metric and period as they arrive, keeping only
+ * primitive aggregates and samples instead of the insights themselves
+ */
+public class InsightRollup implements InsightVisitor
+{
+    private final RollupPeriod period;
+    private final int periods;
+    private final int samples;
+    private final Map<String, MetricRollup> metrics = new LinkedHashMap<String, MetricRollup>();
+
+    /**
+     * @param period the period to roll up by
+     * @param periods the number of periods kept per metric
+     * @param samples the number of values kept per metric for the percentiles
+     */
+    public InsightRollup(RollupPeriod period, int periods, int samples)
+    {
+        this.period = period;
+        this.periods = periods;
+        this.samples = samples;
+    }
+
+    public synchronized void value(String metric, long time, double value)
+    {
+        MetricRollup rollup = metrics.get(metric);
+        if (rollup == null)
+        {
+            rollup = new MetricRollup(metric, period, periods, samples);
+            metrics.put(metric, rollup);
+        }
+        rollup.add(time, value);
+    }
+
+    /**
+     * @return the aggregates of every metric, by metric then oldest period first
+     */
+    public synchronized List<RollupBucket> getBuckets()
+    {
+        List<RollupBucket> buckets = new ArrayList<RollupBucket>();
+        for (MetricRollup rollup : metrics.values())
+        {
+            buckets.addAll(rollup.getBuckets());
+        }
+        return buckets;
+    }
+}
@@ -0,0 +1,51 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.insights;
+
+/**
+ * The values of one metric, in primitive arrays
+ */
+public class InsightSeries
+{
+    private final String metric;
+    private final long[] times;
+    private final double[] values;
+
+    public InsightSeries(String metric, long[] times, double[] values)
+    {
+        this.metric = metric;
+        this.times = times;
+        this.values = values;
+    }
+
+    public String getMetric()
+    {
+        return metric;
+    }
+
+    /**
+     * @return the end times of the values, in seconds since the epoch
+     */
+    public long[] getTimes()
+    {
+        return times;
+    }
+
+    public double[] getValues()
+    {
+        return values;
+    }
+
+    public int size()
+    {
+        return times.length;
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.insights;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.codehaus.jackson.JsonNode;
+
+import com.restfb.util.DateUtils;
+
+/**
+ * Walks the values of insights as returned by the Graph API, straight from their
+ * JSON so no restfb {@link com.restfb.types.Insight} nor boxed value is created.
+ * The metric of an insight is its name and period, such as
+ * application_active_users/day. Breakdown values, which are objects of counts by
+ * key, become one metric per key, such as application_active_users/day/US.
+ */
+public final class InsightValues
+{
+    private InsightValues()
+    {
+    }
+
+    /**
+     * @param insights the insights, such as the items of an insights connection
+     * @param visitor the visitor to give every numeric value to
+     */
+    public static void visit(Iterable<JsonNode> insights, InsightVisitor visitor)
+    {
+        for (JsonNode insight : insights)
+        {
+            String metric = metric(insight);
+            for (JsonNode value : insight.path("values"))
+            {
+                Date endTime = DateUtils.toDateFromLongFormat(value.path("end_time").getTextValue());
+                if (endTime == null)
+                {
+                    continue;
+                }
+                long time = endTime.getTime() / 1000;
+                JsonNode number = value.path("value");
+                if (number.isNumber())
+                {
+                    visitor.value(metric, time, number.getDoubleValue());
+                }
+                else if (number.isObject())
+                {
+                    for (Iterator<Map.Entry<String, JsonNode>> it = number.getFields(); it.hasNext();)
+                    {
+                        Map.Entry<String, JsonNode> field = it.next();
+                        if (field.getValue().isNumber())
+                        {
+                            visitor.value(metric + "/" + field.getKey(), time, field.getValue().getDoubleValue());
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static String metric(JsonNode insight)
+    {
+        String name = insight.path("name").getTextValue();
+        String period = insight.path("period").getTextValue();
+        return period == null ? name : name + "/" + period;
+    }
+}
@@ -0,0 +1,25 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.insights;
+
+/**
+ * Receives the values of insights one at a time
+ */
+public interface InsightVisitor
+{
+    /**
+     * @param metric the metric: the name and period of the insight, followed by
+     *            the key for breakdown values
+     * @param time the end time of the value, in seconds since the epoch
+     * @param value the value
+     */
+    void value(String metric, long time, double value);
+}
@@ -0,0 +1,171 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.insights;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.mule.module.facebook.codec.Varints;
+
+/**
+ * Reads the files written by {@link InsightsFileWriter}. The file is memory
+ * mapped and the blocks of the other metrics are skipped without being
+ * decompressed, so reading a metric only costs its own blocks.
+ */
+public class InsightsFileReader
+{
+    private final ByteBuffer buffer;
+    private final List<String> dictionary;
+    private final int blocksEnd;
+
+    /**
+     * @param file the file to read
+     * @throws IOException if the file can not be read or is not an insights file
+     */
+    public InsightsFileReader(File file) throws IOException
+    {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try
+        {
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+        }
+        finally
+        {
+            raf.close();
+        }
+        int length = buffer.limit();
+        if (length < 16 || !hasMagic(0) || !hasMagic(length - 4))
+        {
+            throw new IOException(file + " is not an insights file");
+        }
+        blocksEnd = (int) buffer.getLong(length - 12);
+        ByteBuffer footer = buffer.duplicate();
+        footer.position(blocksEnd);
+        int size = (int) Varints.readUnsigned(footer);
+        List<String> names = new ArrayList<String>(size);
+        for (int i = 0; i < size; i++)
+        {
+            byte[] name = new byte[(int) Varints.readUnsigned(footer)];
+            footer.get(name);
+            names.add(new String(name, "UTF-8"));
+        }
+        dictionary = Collections.unmodifiableList(names);
+    }
+
+    /**
+     * @return the metrics in the file
+     */
+    public List<String> getMetrics()
+    {
+        return dictionary;
+    }
+
+    /**
+     * @param metric the metric
+     * @return its values in the order they were written, empty if the metric is
+     *         not in the file
+     */
+    public InsightSeries read(String metric)
+    {
+        int index = dictionary.indexOf(metric);
+        long[] times = new long[0];
+        double[] values = new double[0];
+        int size = 0;
+        ByteBuffer blocks = buffer.duplicate();
+        blocks.position(InsightsFileWriter.MAGIC.length);
+        Inflater inflater = new Inflater();
+        try
+        {
+            while (blocks.position() < blocksEnd)
+            {
+                int blockMetric = (int) Varints.readUnsigned(blocks);
+                int count = (int) Varints.readUnsigned(blocks);
+                int compressedLength = (int) Varints.readUnsigned(blocks);
+                if (blockMetric != index)
+                {
+                    blocks.position(blocks.position() + compressedLength);
+                    continue;
+                }
+                byte[] compressed = new byte[compressedLength];
+                blocks.get(compressed);
+                ByteBuffer block = inflate(inflater, compressed, count * 18);
+
+                if (size + count > times.length)
+                {
+                    times = Arrays.copyOf(times, Math.max(size + count, times.length * 2));
+                    values = Arrays.copyOf(values, times.length);
+                }
+                long time = 0;
+                for (int i = 0; i < count; i++)
+                {
+                    time += Varints.readSigned(block);
+                    times[size + i] = time;
+                }
+                for (int i = 0; i < count; i++)
+                {
+                    values[size + i] = Double.longBitsToDouble(block.getLong());
+                }
+                size += count;
+            }
+        }
+        finally
+        {
+            inflater.end();
+        }
+        return new InsightSeries(metric, Arrays.copyOf(times, size), Arrays.copyOf(values, size));
+    }
+
+    private static ByteBuffer inflate(Inflater inflater, byte[] compressed, int maxLength)
+    {
+        inflater.reset();
+        inflater.setInput(compressed);
+        byte[] raw = new byte[maxLength];
+        try
+        {
+            int length = 0;
+            while (!inflater.finished() && length < raw.length)
+            {
+                int inflated = inflater.inflate(raw, length, raw.length - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                {
+                    break;
+                }
+                length += inflated;
+            }
+            return ByteBuffer.wrap(raw, 0, length);
+        }
+        catch (DataFormatException e)
+        {
+            throw new IllegalStateException("Corrupted insights block", e);
+        }
+    }
+
+    private boolean hasMagic(int offset)
+    {
+        for (int i = 0; i < InsightsFileWriter.MAGIC.length; i++)
+        {
+            if (buffer.get(offset + i) != InsightsFileWriter.MAGIC[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
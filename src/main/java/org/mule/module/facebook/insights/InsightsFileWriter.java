@@ -0,0 +1,202 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.insights;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import org.mule.module.facebook.codec.Varints;
+
+/**
+ * Writes insight values in a columnar file read by {@link InsightsFileReader}.
+ * Values are buffered per metric in primitive arrays and written as blocks of
+ * one metric each: the delta encoded end times as varints followed by the
+ * values as doubles, the whole deflated. Metric names are written once, in a
+ * dictionary at the end of the file, and blocks refer to them by index.
+ * <p/>
+ * Layout: the magic, the blocks, each made of the metric index, the value
+ * count, the compressed length and the compressed bytes, then the dictionary,
+ * the offset of the dictionary as a long and the magic again.
+ */
+public class InsightsFileWriter implements InsightVisitor
+{
+    static final byte[] MAGIC = {'F', 'B', 'I', '1'};
+
+    private final CountingOutputStream counter;
+    private final DataOutputStream out;
+    private final int blockSize;
+    private final Map<String, Column> columns = new HashMap<String, Column>();
+    private final List<String> dictionary = new ArrayList<String>();
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private long count;
+
+    /**
+     * @param out the stream to write to, closed by {@link #close()}
+     * @param blockSize the number of values of a metric per block
+     * @throws IOException if the header can not be written
+     */
+    public InsightsFileWriter(OutputStream out, int blockSize) throws IOException
+    {
+        this.counter = new CountingOutputStream(out);
+        this.out = new DataOutputStream(counter);
+        this.blockSize = blockSize;
+        this.out.write(MAGIC);
+    }
+
+    public void value(String metric, long time, double value)
+    {
+        Column column = columns.get(metric);
+        if (column == null)
+        {
+            column = new Column(dictionary.size(), blockSize);
+            columns.put(metric, column);
+            dictionary.add(metric);
+        }
+        column.times[column.size] = time;
+        column.values[column.size] = value;
+        column.size++;
+        count++;
+        if (column.size == blockSize)
+        {
+            try
+            {
+                flush(column);
+            }
+            catch (IOException e)
+            {
+                throw new IllegalStateException("Could not write the insights block of " + metric, e);
+            }
+        }
+    }
+
+    /**
+     * @return the number of values written so far
+     */
+    public long getCount()
+    {
+        return count;
+    }
+
+    /**
+     * @return the number of bytes written so far
+     */
+    public long getBytes()
+    {
+        return counter.count;
+    }
+
+    /**
+     * Writes the pending blocks and the dictionary, then closes the stream
+     * 
+     * @throws IOException if the file can not be written
+     */
+    public void close() throws IOException
+    {
+        try
+        {
+            for (String metric : dictionary)
+            {
+                flush(columns.get(metric));
+            }
+            long dictionaryOffset = counter.count;
+            Varints.writeUnsigned(out, dictionary.size());
+            for (String metric : dictionary)
+            {
+                byte[] name = metric.getBytes("UTF-8");
+                Varints.writeUnsigned(out, name.length);
+                out.write(name);
+            }
+            out.writeLong(dictionaryOffset);
+            out.write(MAGIC);
+        }
+        finally
+        {
+            deflater.end();
+            out.close();
+        }
+    }
+
+    private void flush(Column column) throws IOException
+    {
+        if (column.size == 0)
+        {
+            return;
+        }
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(column.size * 4);
+        deflater.reset();
+        DataOutputStream block = new DataOutputStream(new DeflaterOutputStream(compressed, deflater, 8192));
+        long previous = 0;
+        for (int i = 0; i < column.size; i++)
+        {
+            Varints.writeSigned(block, column.times[i] - previous);
+            previous = column.times[i];
+        }
+        for (int i = 0; i < column.size; i++)
+        {
+            block.writeLong(Double.doubleToLongBits(column.values[i]));
+        }
+        block.close();
+
+        Varints.writeUnsigned(out, column.index);
+        Varints.writeUnsigned(out, column.size);
+        Varints.writeUnsigned(out, compressed.size());
+        compressed.writeTo(out);
+        column.size = 0;
+    }
+
+    private static class Column
+    {
+        private final int index;
+        private final long[] times;
+        private final double[] values;
+        private int size;
+
+        public Column(int index, int blockSize)
+        {
+            this.index = index;
+            this.times = new long[blockSize];
+            this.values = new double[blockSize];
+        }
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream
+    {
+        private long count;
+
+        public CountingOutputStream(OutputStream out)
+        {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException
+        {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException
+        {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.insights;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Rolls up the values of one metric by period in primitive ring buffers: the
+ * count and sum of each of the latest periods, and the latest values with their
+ * times for the percentiles. Once a period falls out of the buffer it is
+ * forgotten, along with the values for it that arrive later; the percentiles
+ * of a period are computed from the values still in the value buffer. A value
+ * with the same time as one still held, or as the latest value of its period,
+ * replaces it, so overlapping fetches are not counted twice as long as the
+ * value buffer covers them. Any other value is counted, even when it is older
+ * than the latest value of its period, as backfilled insights and pages read
+ * out of order are; it only enters a full value buffer if it is the latest
+ * value of its period.
+ */
+public class MetricRollup
+{
+    private static final double[] PERCENTILES = {0, 50, 90, 99, 100};
+
+    private final String metric;
+    private final RollupPeriod period;
+
+    private final long[] starts;
+    private final long[] counts;
+    private final double[] sums;
+    /** time and value of the latest value of each period */
+    private final long[] lastTimes;
+    private final double[] lastValues;
+    private int newest = -1;
+    private int filled;
+
+    private final long[] times;
+    private final double[] values;
+    private int size;
+    private int head;
+
+    /**
+     * @param metric the metric
+     * @param period the period to roll up by
+     * @param periods the number of periods kept
+     * @param samples the number of values kept for the percentiles
+     */
+    public MetricRollup(String metric, RollupPeriod period, int periods, int samples)
+    {
+        this.metric = metric;
+        this.period = period;
+        this.starts = new long[periods];
+        this.counts = new long[periods];
+        this.sums = new double[periods];
+        this.lastTimes = new long[periods];
+        this.lastValues = new double[periods];
+        this.times = new long[samples];
+        this.values = new double[samples];
+    }
+
+    /**
+     * Adds a value. Values are assigned to the period holding the second before
+     * their time, since insights are stamped with the end of what they cover.
+     * 
+     * @param time the end time of the value, in seconds since the epoch
+     * @param value the value
+     */
+    public void add(long time, double value)
+    {
+        int bucket = bucket(period.start(time - 1));
+        if (bucket < 0)
+        {
+            return;
+        }
+        int sample = findSample(time);
+        if (sample >= 0 || time == lastTimes[bucket])
+        {
+            sums[bucket] += value - (sample >= 0 ? values[sample] : lastValues[bucket]);
+            if (sample >= 0)
+            {
+                values[sample] = value;
+            }
+            if (time == lastTimes[bucket])
+            {
+                lastValues[bucket] = value;
+            }
+            return;
+        }
+        boolean latest = time > lastTimes[bucket];
+        if (latest)
+        {
+            lastTimes[bucket] = time;
+            lastValues[bucket] = value;
+        }
+        if (latest || size < times.length)
+        {
+            times[head] = time;
+            values[head] = value;
+            head = (head + 1) % times.length;
+            size = Math.min(size + 1, times.length);
+        }
+        sums[bucket] += value;
+        counts[bucket]++;
+    }
+
+    /**
+     * @return the aggregates of the periods held, oldest first
+     */
+    public List<RollupBucket> getBuckets()
+    {
+        List<RollupBucket> buckets = new ArrayList<RollupBucket>();
+        if (newest < 0)
+        {
+            return buckets;
+        }
+        for (int i = filled - 1; i >= 0; i--)
+        {
+            int bucket = (newest - i + starts.length) % starts.length;
+            if (counts[bucket] > 0)
+            {
+                long start = starts[bucket];
+                buckets.add(new RollupBucket(metric, period, new Date(start * 1000), counts[bucket], sums[bucket],
+                    percentiles(start, period.next(start))));
+            }
+        }
+        return buckets;
+    }
+
+    /**
+     * @return the slot of the period starting at the given time, advancing the
+     *         buffer for a newer period, or -1 if the period is older than the
+     *         ones held
+     */
+    private int bucket(long start)
+    {
+        if (newest < 0)
+        {
+            newest = 0;
+            filled = 1;
+            starts[0] = start;
+            return 0;
+        }
+        if (start > starts[newest])
+        {
+            long next = period.next(starts[newest]);
+            while (next <= start)
+            {
+                newest = (newest + 1) % starts.length;
+                starts[newest] = next;
+                counts[newest] = 0;
+                sums[newest] = 0;
+                lastTimes[newest] = 0;
+                filled = Math.min(filled + 1, starts.length);
+                next = period.next(next);
+            }
+            return newest;
+        }
+        for (int i = 0; i < filled; i++)
+        {
+            int bucket = (newest - i + starts.length) % starts.length;
+            if (starts[bucket] <= start)
+            {
+                return starts[bucket] == start ? bucket : -1;
+            }
+        }
+        return -1;
+    }
+
+    private int findSample(long time)
+    {
+        for (int i = 1; i <= size; i++)
+        {
+            int sample = (head - i + times.length) % times.length;
+            if (times[sample] == time)
+            {
+                return sample;
+            }
+        }
+        return -1;
+    }
+
+    private double[] percentiles(long start, long end)
+    {
+        double[] selected = new double[size];
+        int count = 0;
+        for (int i = 0; i < size; i++)
+        {
+            long time = times[i] - 1;
+            if (time >= start && time < end)
+            {
+                selected[count++] = values[i];
+            }
+        }
+        double[] result = new double[PERCENTILES.length];
+        if (count == 0)
+        {
+            Arrays.fill(result, Double.NaN);
+            return result;
+        }
+        Arrays.sort(selected, 0, count);
+        for (int i = 0; i < PERCENTILES.length; i++)
+        {
+            int rank = (int) Math.ceil(PERCENTILES[i] / 100 * count);
+            result[i] = selected[Math.max(0, rank - 1)];
+        }
+        return result;
+    }
+}
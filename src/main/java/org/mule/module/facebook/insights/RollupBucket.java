@@ -0,0 +1,108 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.insights;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * The aggregates of a metric over one period
+ */
+public class RollupBucket implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    private final String metric;
+    private final RollupPeriod period;
+    private final Date start;
+    private final long count;
+    private final double sum;
+    private final double min;
+    private final double median;
+    private final double p90;
+    private final double p99;
+    private final double max;
+
+    public RollupBucket(String metric, RollupPeriod period, Date start, long count, double sum, double[] percentiles)
+    {
+        this.metric = metric;
+        this.period = period;
+        this.start = start;
+        this.count = count;
+        this.sum = sum;
+        this.min = percentiles[0];
+        this.median = percentiles[1];
+        this.p90 = percentiles[2];
+        this.p99 = percentiles[3];
+        this.max = percentiles[4];
+    }
+
+    public String getMetric()
+    {
+        return metric;
+    }
+
+    public RollupPeriod getPeriod()
+    {
+        return period;
+    }
+
+    public Date getStart()
+    {
+        return start;
+    }
+
+    public long getCount()
+    {
+        return count;
+    }
+
+    public double getSum()
+    {
+        return sum;
+    }
+
+    public double getAverage()
+    {
+        return count == 0 ? 0 : sum / count;
+    }
+
+    public double getMin()
+    {
+        return min;
+    }
+
+    public double getMedian()
+    {
+        return median;
+    }
+
+    public double getP90()
+    {
+        return p90;
+    }
+
+    public double getP99()
+    {
+        return p99;
+    }
+
+    public double getMax()
+    {
+        return max;
+    }
+
+    @Override
+    public String toString()
+    {
+        return metric + "@" + start + "[count=" + count + " sum=" + sum + "]";
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.insights;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * The periods insight values can be rolled up by. Periods start at midnight UTC,
+ * weeks on Mondays.
+ */
+public enum RollupPeriod
+{
+    DAY, WEEK, MONTH;
+
+    private static final long SECONDS_PER_DAY = 86400;
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    /**
+     * @param seconds a time in seconds since the epoch
+     * @return the start of the period holding it
+     */
+    public long start(long seconds)
+    {
+        long day = floorDiv(seconds, SECONDS_PER_DAY);
+        switch (this)
+        {
+            case DAY :
+                return day * SECONDS_PER_DAY;
+            case WEEK :
+                // the epoch was a Thursday
+                return (floorDiv(day + 3, 7) * 7 - 3) * SECONDS_PER_DAY;
+            default :
+                Calendar calendar = Calendar.getInstance(UTC);
+                calendar.setTimeInMillis(day * SECONDS_PER_DAY * 1000);
+                calendar.set(Calendar.DAY_OF_MONTH, 1);
+                return calendar.getTimeInMillis() / 1000;
+        }
+    }
+
+    /**
+     * @param start the start of a period
+     * @return the start of the following one
+     */
+    public long next(long start)
+    {
+        switch (this)
+        {
+            case DAY :
+                return start + SECONDS_PER_DAY;
+            case WEEK :
+                return start + 7 * SECONDS_PER_DAY;
+            default :
+                Calendar calendar = Calendar.getInstance(UTC);
+                calendar.setTimeInMillis(start * 1000);
+                calendar.add(Calendar.MONTH, 1);
+                return calendar.getTimeInMillis() / 1000;
+        }
+    }
+
+    private static long floorDiv(long value, long divisor)
+    {
+        long quotient = value / divisor;
+        return value % divisor < 0 ? quotient - 1 : quotient;
+    }
+}
@@ -0,0 +1,152 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.intern;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.mule.module.facebook.graph.IdIndex;
+
+/**
+ * Makes identical Graph ids share a single String instance. Ids are looked up in
+ * an {@link IdIndex}, where numeric ids are keyed by their long value, and the
+ * first instance seen of each is kept. Decoded results are walked reflectively:
+ * the id of every restfb or connector type reachable from them, including the
+ * from and to fields and the elements of their lists, is replaced by its
+ * canonical instance.
+ */
+public class IdInterner
+{
+    private static final Map<Class<?>, Field[]> FIELDS = new ConcurrentHashMap<Class<?>, Field[]>();
+
+    private final IdIndex index = new IdIndex();
+    private String[] canonical = new String[64];
+
+    /**
+     * @param id an id
+     * @return the canonical instance of the id
+     */
+    public synchronized String intern(String id)
+    {
+        int i = index.intern(id);
+        if (i >= canonical.length)
+        {
+            canonical = Arrays.copyOf(canonical, Math.max(i + 1, canonical.length * 2));
+        }
+        if (canonical[i] == null)
+        {
+            canonical[i] = id;
+        }
+        return canonical[i];
+    }
+
+    /**
+     * @return the number of distinct ids seen
+     */
+    public synchronized int size()
+    {
+        return index.size();
+    }
+
+    /**
+     * Replaces the ids of the given decoded result by their canonical instances
+     * 
+     * @param decoded a decoded object or collection of them
+     */
+    public void internAll(Object decoded)
+    {
+        walk(decoded, new IdentityHashMap<Object, Boolean>());
+    }
+
+    private void walk(Object object, IdentityHashMap<Object, Boolean> visited)
+    {
+        if (object == null || visited.put(object, Boolean.TRUE) != null)
+        {
+            return;
+        }
+        if (object instanceof Collection<?>)
+        {
+            for (Object element : (Collection<?>) object)
+            {
+                walk(element, visited);
+            }
+            return;
+        }
+        if (!isDecodedType(object.getClass()))
+        {
+            return;
+        }
+        try
+        {
+            for (Field field : fields(object.getClass()))
+            {
+                Object value = field.get(object);
+                if (value instanceof String)
+                {
+                    field.set(object, intern((String) value));
+                }
+                else
+                {
+                    walk(value, visited);
+                }
+            }
+        }
+        catch (IllegalAccessException e)
+        {
+            throw new IllegalStateException("Could not intern the ids of " + object.getClass(), e);
+        }
+    }
+
+    private static boolean isDecodedType(Class<?> type)
+    {
+        String name = type.getName();
+        return name.startsWith("com.restfb.types.") || name.startsWith("org.mule.module.facebook.types.");
+    }
+
+    /**
+     * @return the id fields and the fields that may hold decoded objects
+     */
+    private static Field[] fields(Class<?> type)
+    {
+        Field[] fields = FIELDS.get(type);
+        if (fields == null)
+        {
+            List<Field> selected = new ArrayList<Field>();
+            for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass())
+            {
+                for (Field field : current.getDeclaredFields())
+                {
+                    if (Modifier.isStatic(field.getModifiers()) || Modifier.isFinal(field.getModifiers()))
+                    {
+                        continue;
+                    }
+                    Class<?> fieldType = field.getType();
+                    if ((fieldType == String.class && field.getName().equals("id"))
+                        || Collection.class.isAssignableFrom(fieldType) || isDecodedType(fieldType))
+                    {
+                        field.setAccessible(true);
+                        selected.add(field);
+                    }
+                }
+            }
+            fields = selected.toArray(new Field[selected.size()]);
+            FIELDS.put(type, fields);
+        }
+        return fields;
+    }
+}
@@ -0,0 +1,148 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.lazy;
+
+import java.io.IOException;
+
+import org.codehaus.jackson.map.ObjectMapper;
+
+/**
+ * Finds the boundaries of JSON values in a UTF-8 buffer without decoding them:
+ * strings are skipped up to their closing quote and objects and arrays up to
+ * their matching bracket.
+ */
+final class JsonScanner
+{
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private JsonScanner()
+    {
+    }
+
+    static int skipWhitespace(byte[] json, int position)
+    {
+        while (position < json.length
+               && (json[position] == ' ' || json[position] == '\n' || json[position] == '\r' || json[position] == '\t'))
+        {
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * @return the position right after the value starting at the given one
+     */
+    static int skipValue(byte[] json, int position)
+    {
+        byte first = at(json, position);
+        if (first == '"')
+        {
+            return skipString(json, position);
+        }
+        if (first == '{' || first == '[')
+        {
+            int depth = 0;
+            while (true)
+            {
+                byte b = at(json, position);
+                if (b == '"')
+                {
+                    position = skipString(json, position);
+                    continue;
+                }
+                if (b == '{' || b == '[')
+                {
+                    depth++;
+                }
+                else if (b == '}' || b == ']')
+                {
+                    depth--;
+                    if (depth == 0)
+                    {
+                        return position + 1;
+                    }
+                }
+                position++;
+            }
+        }
+        while (position < json.length && json[position] != ',' && json[position] != '}' && json[position] != ']'
+               && json[position] != ' ' && json[position] != '\n' && json[position] != '\r' && json[position] != '\t')
+        {
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * @return the position right after the string starting at the given one
+     */
+    static int skipString(byte[] json, int position)
+    {
+        position++;
+        while (at(json, position) != '"')
+        {
+            position += json[position] == '\\' ? 2 : 1;
+        }
+        return position + 1;
+    }
+
+    /**
+     * @return the byte at the given position
+     * @throws IllegalArgumentException if the JSON ends before it
+     */
+    static byte at(byte[] json, int position)
+    {
+        if (position >= json.length)
+        {
+            throw new IllegalArgumentException("Truncated JSON: expected more input at " + position);
+        }
+        return json[position];
+    }
+
+    static void expect(byte[] json, int position, char expected)
+    {
+        if (position >= json.length || json[position] != expected)
+        {
+            throw new IllegalArgumentException("Expected '" + expected + "' at " + position);
+        }
+    }
+
+    /**
+     * Decodes a scalar: a string, number, boolean or null
+     */
+    static Object decodeScalar(byte[] json, int start, int end)
+    {
+        try
+        {
+            return MAPPER.readValue(json, start, end - start, Object.class);
+        }
+        catch (IOException e)
+        {
+            throw new IllegalArgumentException("Invalid JSON value at " + start, e);
+        }
+    }
+
+    /**
+     * Decodes any value, objects and arrays lazily
+     */
+    static Object decode(byte[] json, int start, int end)
+    {
+        switch (at(json, start))
+        {
+            case '{' :
+                return new LazyJsonObject(json, start, end);
+            case '[' :
+                return new LazyJsonArray(json, start, end);
+            default :
+                return decodeScalar(json, start, end);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.lazy;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
+
+/**
+ * A JSON array decoded on demand: it indexes the offsets of its elements on first
+ * access and only decodes an element when it is read. Like
+ * {@link LazyJsonObject}, it is serialized as the bytes of its JSON text.
+ */
+public class LazyJsonArray extends AbstractList<Object> implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+    private static final Object NOT_DECODED = new Object();
+
+    private final byte[] json;
+    private final int start;
+    private final int end;
+    /** start and end of every element */
+    private transient int[] index;
+    private transient Object[] values;
+    private transient int size;
+
+    LazyJsonArray(byte[] json, int start, int end)
+    {
+        this.json = json;
+        this.start = start;
+        this.end = end;
+    }
+
+    @Override
+    public synchronized Object get(int element)
+    {
+        index();
+        if (element < 0 || element >= size)
+        {
+            throw new IndexOutOfBoundsException("Index " + element + ", size " + size);
+        }
+        if (values[element] == NOT_DECODED)
+        {
+            values[element] = JsonScanner.decode(json, index[element * 2], index[element * 2 + 1]);
+        }
+        return values[element];
+    }
+
+    @Override
+    public synchronized int size()
+    {
+        index();
+        return size;
+    }
+
+    /**
+     * @return whether every element is an object, checked without decoding any
+     */
+    public synchronized boolean containsOnlyObjects()
+    {
+        index();
+        for (int i = 0; i < size; i++)
+        {
+            if (JsonScanner.at(json, index[i * 2]) != '{')
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void index()
+    {
+        if (index != null)
+        {
+            return;
+        }
+        int[] offsets = new int[32];
+        int count = 0;
+        int position = JsonScanner.skipWhitespace(json, start + 1);
+        while (JsonScanner.at(json, position) != ']')
+        {
+            if (count * 2 == offsets.length)
+            {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            int valueEnd = JsonScanner.skipValue(json, position);
+            offsets[count * 2] = position;
+            offsets[count * 2 + 1] = valueEnd;
+            count++;
+            position = JsonScanner.skipWhitespace(json, valueEnd);
+            if (JsonScanner.at(json, position) == ',')
+            {
+                position = JsonScanner.skipWhitespace(json, position + 1);
+            }
+        }
+        values = new Object[count];
+        Arrays.fill(values, NOT_DECODED);
+        size = count;
+        index = offsets;
+    }
+
+    private Object writeReplace()
+    {
+        return new SerializedJson(Arrays.copyOfRange(json, start, end));
+    }
+}
@@ -0,0 +1,290 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.lazy;
+
+import java.io.Serializable;
+import java.io.UnsupportedEncodingException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.mule.modules.utils.MuleSoftException;
+
+import com.restfb.DefaultJsonMapper;
+
+/**
+ * A JSON object decoded on demand. It only holds the response buffer and an
+ * index of the offsets of its fields, built on first access; the value of a field
+ * is only decoded when it is read, nested objects and arrays lazily in turn. Being
+ * a map, its fields can be read by Mule expressions like those of any other map
+ * payload, such as #[payload.message]. {@link #as(Class)} decodes it into a restfb
+ * type when a flow needs one. It is serialized as the bytes of its own JSON text
+ * only, so it can be kept in an object store or sent across a cluster.
+ */
+public class LazyJsonObject extends AbstractMap<String, Object> implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+    private static final Object NOT_DECODED = new Object();
+
+    private final byte[] json;
+    private final int start;
+    private final int end;
+    /** key start, key end, value start, value end of every field */
+    private transient int[] index;
+    private transient Object[] values;
+    private transient int size;
+
+    LazyJsonObject(byte[] json, int start, int end)
+    {
+        this.json = json;
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * @param json a JSON object
+     * @return the object
+     * @throws IllegalArgumentException if the JSON is not an object or is
+     *             truncated
+     */
+    public static LazyJsonObject parse(String json)
+    {
+        return parse(utf8(json));
+    }
+
+    /**
+     * @param bytes a JSON object encoded in UTF-8, kept as the buffer of the
+     *            object rather than copied
+     * @return the object
+     * @throws IllegalArgumentException if the JSON is not an object or is
+     *             truncated
+     */
+    public static LazyJsonObject parse(byte[] bytes)
+    {
+        int start = JsonScanner.skipWhitespace(bytes, 0);
+        JsonScanner.expect(bytes, start, '{');
+        return new LazyJsonObject(bytes, start, JsonScanner.skipValue(bytes, start));
+    }
+
+    /**
+     * Decodes the whole object into the given type
+     * 
+     * @param type a restfb or connector type
+     * @return the decoded object
+     */
+    public <T> T as(Class<T> type)
+    {
+        return new DefaultJsonMapper().toJavaObject(toString(), type);
+    }
+
+    @Override
+    public Object get(Object key)
+    {
+        int field = find(key);
+        return field < 0 ? null : value(field);
+    }
+
+    @Override
+    public boolean containsKey(Object key)
+    {
+        return find(key) >= 0;
+    }
+
+    @Override
+    public int size()
+    {
+        index();
+        return size;
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet()
+    {
+        return new AbstractSet<Map.Entry<String, Object>>()
+        {
+            @Override
+            public Iterator<Map.Entry<String, Object>> iterator()
+            {
+                return new Iterator<Map.Entry<String, Object>>()
+                {
+                    private int field;
+
+                    public boolean hasNext()
+                    {
+                        return field < size();
+                    }
+
+                    public Map.Entry<String, Object> next()
+                    {
+                        if (!hasNext())
+                        {
+                            throw new NoSuchElementException();
+                        }
+                        int current = field++;
+                        return new SimpleImmutableEntry<String, Object>(key(current), value(current));
+                    }
+
+                    public void remove()
+                    {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+
+            @Override
+            public int size()
+            {
+                return LazyJsonObject.this.size();
+            }
+        };
+    }
+
+    /**
+     * @return the JSON text of the object
+     */
+    @Override
+    public String toString()
+    {
+        try
+        {
+            return new String(json, start, end - start, "UTF-8");
+        }
+        catch (UnsupportedEncodingException e)
+        {
+            throw MuleSoftException.soften(e);
+        }
+    }
+
+    private synchronized void index()
+    {
+        if (index != null)
+        {
+            return;
+        }
+        int[] offsets = new int[32];
+        int count = 0;
+        int position = JsonScanner.skipWhitespace(json, start + 1);
+        while (JsonScanner.at(json, position) != '}')
+        {
+            if (count * 4 == offsets.length)
+            {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            JsonScanner.expect(json, position, '"');
+            int keyEnd = JsonScanner.skipString(json, position);
+            int valueStart = JsonScanner.skipWhitespace(json, keyEnd);
+            JsonScanner.expect(json, valueStart, ':');
+            valueStart = JsonScanner.skipWhitespace(json, valueStart + 1);
+            int valueEnd = JsonScanner.skipValue(json, valueStart);
+            offsets[count * 4] = position + 1;
+            offsets[count * 4 + 1] = keyEnd - 1;
+            offsets[count * 4 + 2] = valueStart;
+            offsets[count * 4 + 3] = valueEnd;
+            count++;
+            position = JsonScanner.skipWhitespace(json, valueEnd);
+            if (JsonScanner.at(json, position) == ',')
+            {
+                position = JsonScanner.skipWhitespace(json, position + 1);
+            }
+        }
+        values = new Object[count];
+        Arrays.fill(values, NOT_DECODED);
+        size = count;
+        index = offsets;
+    }
+
+    private int find(Object key)
+    {
+        if (!(key instanceof String))
+        {
+            return -1;
+        }
+        index();
+        byte[] wanted = utf8((String) key);
+        for (int field = 0; field < size; field++)
+        {
+            int keyStart = index[field * 4];
+            int keyEnd = index[field * 4 + 1];
+            if (keyEnd - keyStart == wanted.length && regionMatches(wanted, keyStart))
+            {
+                return field;
+            }
+            if (containsEscape(keyStart, keyEnd) && key.equals(key(field)))
+            {
+                return field;
+            }
+        }
+        return -1;
+    }
+
+    private boolean regionMatches(byte[] wanted, int offset)
+    {
+        for (int i = 0; i < wanted.length; i++)
+        {
+            if (json[offset + i] != wanted[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean containsEscape(int from, int to)
+    {
+        for (int i = from; i < to; i++)
+        {
+            if (json[i] == '\\')
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String key(int field)
+    {
+        return (String) JsonScanner.decodeScalar(json, index[field * 4] - 1, index[field * 4 + 1] + 1);
+    }
+
+    private synchronized Object value(int field)
+    {
+        if (values[field] == NOT_DECODED)
+        {
+            values[field] = JsonScanner.decode(json, index[field * 4 + 2], index[field * 4 + 3]);
+        }
+        return values[field];
+    }
+
+    private Object writeReplace()
+    {
+        return new SerializedJson(Arrays.copyOfRange(json, start, end));
+    }
+
+    /**
+     * @param value a string
+     * @return its UTF-8 encoding
+     */
+    public static byte[] utf8(String value)
+    {
+        try
+        {
+            return value.getBytes("UTF-8");
+        }
+        catch (UnsupportedEncodingException e)
+        {
+            throw MuleSoftException.soften(e);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.lazy;
+
+import java.io.Serializable;
+
+/**
+ * The serialized form of a {@link LazyJsonObject} or {@link LazyJsonArray}: the
+ * bytes of its JSON text, indexed again on first access once read back
+ */
+final class SerializedJson implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    private final byte[] json;
+
+    SerializedJson(byte[] json)
+    {
+        this.json = json;
+    }
+
+    private Object readResolve()
+    {
+        return JsonScanner.decode(json, 0, json.length);
+    }
+}
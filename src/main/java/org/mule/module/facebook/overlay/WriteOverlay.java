@@ -0,0 +1,360 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.overlay;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.node.ArrayNode;
+import org.codehaus.jackson.node.ObjectNode;
+import org.mule.module.facebook.cache.SearchNormalizer;
+import org.mule.module.facebook.http.GraphUris;
+import org.mule.modules.utils.MuleSoftException;
+
+import com.restfb.util.DateUtils;
+
+/**
+ * Remembers the objects the connector published for a short while and adds them
+ * to the reads of the connection they were published to, such as the feed of a
+ * page or the comments of a post, until Graph returns them itself.
+ * <p/>
+ * Objects published visible to all, such as comments, which anyone who may read
+ * their post sees, are added to every read of their connection, whatever its
+ * access token, and to reads made without one. The others are only added to
+ * reads made with the access token that published them, since who else sees
+ * them depends on the privacy settings of their author.
+ * <p/>
+ * Objects are only added to the first page of reads whose time window is not
+ * over, since Graph would not return them in the others either: reads with an
+ * offset, or with an until that is a timestamp or a relative time before now,
+ * such as the yesterday the connector defaults to, are left as they are.
+ */
+public class WriteOverlay
+{
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final long ttl;
+    private final Map<String, List<Written>> connections = new ConcurrentHashMap<String, List<Written>>();
+
+    /**
+     * An object published by the connector
+     */
+    private static class Written
+    {
+        private final String id;
+        private final String token;
+        private final boolean visibleToAll;
+        private final ObjectNode item;
+        private final long expires;
+
+        private Written(String id, String token, boolean visibleToAll, ObjectNode item, long expires)
+        {
+            this.id = id;
+            this.token = token;
+            this.visibleToAll = visibleToAll;
+            this.item = item;
+            this.expires = expires;
+        }
+
+        private boolean isVisibleTo(String token)
+        {
+            return visibleToAll || this.token.equals(token);
+        }
+    }
+
+    /**
+     * @param ttl how long a published object is added to reads, in milliseconds
+     */
+    public WriteOverlay(long ttl)
+    {
+        this.ttl = ttl;
+    }
+
+    /**
+     * @return a new item for an object published now
+     */
+    public static ObjectNode item(String id)
+    {
+        SimpleDateFormat format = new SimpleDateFormat(DateUtils.FACEBOOK_LONG_DATE_FORMAT);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        ObjectNode item = MAPPER.createObjectNode();
+        item.put("id", id);
+        item.put("created_time", format.format(new Date()));
+        return item;
+    }
+
+    /**
+     * @param response the response of a publish request
+     * @return the id of the published object, or null if it has none
+     */
+    public static String id(String response)
+    {
+        try
+        {
+            JsonNode id = MAPPER.readTree(response).path("id");
+            return id.isTextual() || id.isNumber() ? id.asText() : null;
+        }
+        catch (IOException e)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * @param accessToken the access token the object was published with
+     * @param target the id of the object it was published to
+     * @param connection the connection of the target it was published to
+     * @param item the published object, with at least its id
+     * @param visibleToAll whether it is added to the reads made with any access
+     *            token or none, or only to those made with the one it was
+     *            published with
+     */
+    public void add(String accessToken, String target, String connection, ObjectNode item, boolean visibleToAll)
+    {
+        Written written = new Written(item.path("id").asText(), GraphUris.hash(accessToken), visibleToAll, item,
+            System.currentTimeMillis() + ttl);
+        String key = target + "/" + connection;
+        synchronized (connections)
+        {
+            prune(System.currentTimeMillis());
+            List<Written> list = connections.get(key);
+            if (list == null)
+            {
+                list = new LinkedList<Written>();
+                connections.put(key, list);
+            }
+            list.add(0, written);
+        }
+    }
+
+    /**
+     * Forgets a published object, because it was deleted
+     * 
+     * @param id the id of the object
+     */
+    public void remove(String id)
+    {
+        synchronized (connections)
+        {
+            for (Iterator<List<Written>> lists = connections.values().iterator(); lists.hasNext();)
+            {
+                List<Written> list = lists.next();
+                for (Iterator<Written> written = list.iterator(); written.hasNext();)
+                {
+                    if (written.next().id.equals(id))
+                    {
+                        written.remove();
+                    }
+                }
+                if (list.isEmpty())
+                {
+                    lists.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the objects published to the connection read that are not in its
+     * response yet, newest first; those already in it are forgotten
+     * 
+     * @param uri the uri of the read
+     * @param json its response
+     * @return the response with the published objects
+     */
+    public String merge(URI uri, String json)
+    {
+        String[] segments = uri.getRawPath().replaceAll("^/+", "").split("/");
+        if (segments.length != 2 || connections.isEmpty() || !readsNewest(uri))
+        {
+            return json;
+        }
+        List<Written> pending = pending(segments[0] + "/" + segments[1], GraphUris.tokenHash(uri));
+        if (pending.isEmpty())
+        {
+            return json;
+        }
+        try
+        {
+            JsonNode root = MAPPER.readTree(json);
+            JsonNode data = root.path("data");
+            if (!data.isArray())
+            {
+                return json;
+            }
+            Set<String> returned = new HashSet<String>();
+            for (JsonNode item : data)
+            {
+                returned.add(item.path("id").asText());
+            }
+            ArrayNode merged = MAPPER.createArrayNode();
+            for (Written written : pending)
+            {
+                if (returned.contains(written.id))
+                {
+                    remove(written.id);
+                }
+                else
+                {
+                    merged.add(written.item);
+                }
+            }
+            if (merged.size() == 0)
+            {
+                return json;
+            }
+            merged.addAll((ArrayNode) data);
+            ((ObjectNode) root).put("data", merged);
+            return MAPPER.writeValueAsString(root);
+        }
+        catch (IOException e)
+        {
+            throw MuleSoftException.soften(e);
+        }
+    }
+
+    /**
+     * @return the live objects published to the connection that the token may see
+     */
+    private List<Written> pending(String key, String token)
+    {
+        List<Written> pending = new ArrayList<Written>();
+        long now = System.currentTimeMillis();
+        synchronized (connections)
+        {
+            List<Written> list = connections.get(key);
+            if (list == null)
+            {
+                return pending;
+            }
+            for (Iterator<Written> iterator = list.iterator(); iterator.hasNext();)
+            {
+                Written written = iterator.next();
+                if (now >= written.expires)
+                {
+                    iterator.remove();
+                }
+                else if (written.isVisibleTo(token))
+                {
+                    pending.add(written);
+                }
+            }
+            if (list.isEmpty())
+            {
+                connections.remove(key);
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * Forgets the expired objects of every connection, including those that are
+     * never read again
+     */
+    private void prune(long now)
+    {
+        for (Iterator<List<Written>> lists = connections.values().iterator(); lists.hasNext();)
+        {
+            List<Written> list = lists.next();
+            for (Iterator<Written> written = list.iterator(); written.hasNext();)
+            {
+                if (now >= written.next().expires)
+                {
+                    written.remove();
+                }
+            }
+            if (list.isEmpty())
+            {
+                lists.remove();
+            }
+        }
+    }
+
+    /**
+     * @return whether the read is of the first page of a window that includes now
+     */
+    private static boolean readsNewest(URI uri)
+    {
+        String offset = parameter(uri, "offset");
+        if (offset != null && offset.matches("\\d+") && Long.parseLong(offset) > 0)
+        {
+            return false;
+        }
+        String until = parameter(uri, "until");
+        if (until == null)
+        {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        String normalized = SearchNormalizer.query(until);
+        if (normalized.equals("yesterday") || normalized.equals("today"))
+        {
+            return false;
+        }
+        String snapped = SearchNormalizer.snap(until, now, 1000);
+        return !snapped.matches("\\d+") || Long.parseLong(snapped) * 1000 >= now - 1000;
+    }
+
+    private static String parameter(URI uri, String name)
+    {
+        String query = uri.getRawQuery();
+        if (query == null)
+        {
+            return null;
+        }
+        try
+        {
+            for (String parameter : query.split("&"))
+            {
+                if (parameter.startsWith(name + "="))
+                {
+                    return URLDecoder.decode(parameter.substring(name.length() + 1), "UTF-8");
+                }
+            }
+            return null;
+        }
+        catch (UnsupportedEncodingException e)
+        {
+            throw MuleSoftException.soften(e);
+        }
+    }
+
+    /**
+     * @return the number of published objects remembered
+     */
+    public int size()
+    {
+        int size = 0;
+        synchronized (connections)
+        {
+            for (List<Written> list : connections.values())
+            {
+                size += list.size();
+            }
+        }
+        return size;
+    }
+}
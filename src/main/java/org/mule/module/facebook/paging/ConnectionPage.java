@@ -0,0 +1,102 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.paging;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.mule.modules.utils.MuleSoftException;
+
+/**
+ * A page of a Graph API connection, such as a wall or a list of comments, as
+ * returned by the API: the raw items in its data array and the links to the
+ * neighbouring pages. Items are kept as JSON trees so callers can look at a few
+ * fields of each before deciding whether to decode it into a restfb type.
+ */
+public class ConnectionPage
+{
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final List<JsonNode> items;
+    private final String next;
+    private final String previous;
+
+    public ConnectionPage(List<JsonNode> items, String next, String previous)
+    {
+        this.items = items;
+        this.next = next;
+        this.previous = previous;
+    }
+
+    /**
+     * Parses a connection response
+     * 
+     * @param json the response
+     * @return the page
+     */
+    public static ConnectionPage parse(String json)
+    {
+        JsonNode root;
+        try
+        {
+            root = MAPPER.readTree(json);
+        }
+        catch (IOException e)
+        {
+            throw MuleSoftException.soften(e);
+        }
+        JsonNode data = root.isArray() ? root : root.path("data");
+        List<JsonNode> items = new ArrayList<JsonNode>(data.size());
+        for (Iterator<JsonNode> elements = data.getElements(); elements.hasNext();)
+        {
+            items.add(elements.next());
+        }
+        JsonNode paging = root.path("paging");
+        return new ConnectionPage(items, paging.path("next").getTextValue(), paging.path("previous").getTextValue());
+    }
+
+    /**
+     * @return the items of the page, in the order returned by the API
+     */
+    public List<JsonNode> getItems()
+    {
+        return Collections.unmodifiableList(items);
+    }
+
+    /**
+     * @return the url of the next (older) page, or null if this is the last one
+     */
+    public String getNext()
+    {
+        return next;
+    }
+
+    /**
+     * @return the url of the previous (newer) page, or null if there is none
+     */
+    public String getPrevious()
+    {
+        return previous;
+    }
+
+    /**
+     * @return whether the page has no items
+     */
+    public boolean isEmpty()
+    {
+        return items.isEmpty();
+    }
+}
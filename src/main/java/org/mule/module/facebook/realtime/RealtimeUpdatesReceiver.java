@@ -0,0 +1,267 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.realtime;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.codehaus.jackson.map.ObjectMapper;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Hosts the callback of a Graph API Real-time Updates subscription on a local
+ * HTTP endpoint.
+ * <p/>
+ * GET requests are the subscription verification handshake: the hub.challenge is
+ * echoed back when hub.verify_token matches. POST requests are change
+ * notifications: their X-Hub-Signature is validated against the application
+ * secret and each entry is handed to the {@link UpdateListener}. Bodies larger
+ * than {@link #MAX_BODY} bytes are rejected before being read, so unauthenticated
+ * clients can't exhaust the memory.
+ * <p/>
+ * A notification is acknowledged once all of its entries have been handled. If
+ * the listener fails on one of them, the notification is answered with a 500 and
+ * Facebook delivers it again whole: the entries handled before the failure are
+ * then handed to the listener a second time.
+ */
+public class RealtimeUpdatesReceiver implements HttpHandler
+{
+    private static final Log LOGGER = LogFactory.getLog(RealtimeUpdatesReceiver.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String SIGNATURE_HEADER = "X-Hub-Signature";
+
+    /**
+     * The largest notification body accepted, in bytes
+     */
+    public static final int MAX_BODY = 1024 * 1024;
+
+    private final String path;
+    private final String verifyToken;
+    private final SignatureValidator signatures;
+    private final UpdateListener listener;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * @param path the path of the callback
+     * @param verifyToken the token given when creating the subscription
+     * @param appSecret the application secret, used to validate notifications
+     * @param listener the listener of the notifications
+     */
+    public RealtimeUpdatesReceiver(String path, String verifyToken, String appSecret, UpdateListener listener)
+    {
+        this.path = path;
+        this.verifyToken = verifyToken;
+        this.signatures = new SignatureValidator(appSecret);
+        this.listener = listener;
+    }
+
+    /**
+     * Starts listening on the given port
+     * 
+     * @param port the port
+     * @param threads the number of threads handling notifications
+     * @throws IOException if the port can't be bound
+     */
+    public void start(int port, int threads) throws IOException
+    {
+        executor = Executors.newFixedThreadPool(threads);
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext(path, this);
+        server.setExecutor(executor);
+        server.start();
+        LOGGER.info("Listening for Facebook real-time updates on port " + getPort() + " at " + path);
+    }
+
+    /**
+     * @return the port the receiver listens on
+     */
+    public int getPort()
+    {
+        return server.getAddress().getPort();
+    }
+
+    public void stop()
+    {
+        if (server != null)
+        {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+        }
+    }
+
+    public void handle(HttpExchange exchange) throws IOException
+    {
+        try
+        {
+            if ("GET".equalsIgnoreCase(exchange.getRequestMethod()))
+            {
+                verify(exchange);
+            }
+            else if ("POST".equalsIgnoreCase(exchange.getRequestMethod()))
+            {
+                notify(exchange);
+            }
+            else
+            {
+                respond(exchange, 405, "");
+            }
+        }
+        finally
+        {
+            exchange.close();
+        }
+    }
+
+    private void verify(HttpExchange exchange) throws IOException
+    {
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        if ("subscribe".equals(query.get("hub.mode")) && verifyToken.equals(query.get("hub.verify_token")))
+        {
+            String challenge = query.get("hub.challenge");
+            respond(exchange, 200, challenge == null ? "" : challenge);
+        }
+        else
+        {
+            LOGGER.warn("Rejected a real-time updates subscription verification with an invalid token");
+            respond(exchange, 403, "");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void notify(HttpExchange exchange) throws IOException
+    {
+        String length = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (length != null && isTooLong(length))
+        {
+            LOGGER.warn("Rejected a real-time update of " + length + " bytes");
+            respond(exchange, 413, "");
+            return;
+        }
+        byte[] body = read(exchange.getRequestBody(), MAX_BODY);
+        if (body == null)
+        {
+            LOGGER.warn("Rejected a real-time update larger than " + MAX_BODY + " bytes");
+            respond(exchange, 413, "");
+            return;
+        }
+        if (!signatures.isValid(body, exchange.getRequestHeaders().getFirst(SIGNATURE_HEADER)))
+        {
+            LOGGER.warn("Rejected a real-time update with an invalid signature");
+            respond(exchange, 403, "");
+            return;
+        }
+        try
+        {
+            Map<String, Object> notification = MAPPER.readValue(body, Map.class);
+            String object = (String) notification.get("object");
+            List<Map<String, Object>> entries = (List<Map<String, Object>>) notification.get("entry");
+            if (entries != null)
+            {
+                for (Map<String, Object> entry : entries)
+                {
+                    listener.onUpdate(object, entry);
+                }
+            }
+            respond(exchange, 200, "");
+        }
+        catch (Exception e)
+        {
+            LOGGER.error("Could not handle a real-time update", e);
+            respond(exchange, 500, "");
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException
+    {
+        byte[] bytes = body.getBytes("UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0)
+        {
+            OutputStream out = exchange.getResponseBody();
+            out.write(bytes);
+            out.close();
+        }
+    }
+
+    private static boolean isTooLong(String length)
+    {
+        try
+        {
+            return Long.parseLong(length.trim()) > MAX_BODY;
+        }
+        catch (NumberFormatException e)
+        {
+            return true;
+        }
+    }
+
+    /**
+     * @return the bytes of the stream, or null if there are more than max
+     */
+    private static byte[] read(InputStream in, int max) throws IOException
+    {
+        try
+        {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1)
+            {
+                if (out.size() + read > max)
+                {
+                    return null;
+                }
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    private static Map<String, String> parseQuery(String query) throws UnsupportedEncodingException
+    {
+        Map<String, String> parameters = new HashMap<String, String>();
+        if (query == null)
+        {
+            return parameters;
+        }
+        for (String pair : query.split("&"))
+        {
+            int separator = pair.indexOf('=');
+            if (separator > 0)
+            {
+                parameters.put(URLDecoder.decode(pair.substring(0, separator), "UTF-8"),
+                    URLDecoder.decode(pair.substring(separator + 1), "UTF-8"));
+            }
+        }
+        return parameters;
+    }
+}
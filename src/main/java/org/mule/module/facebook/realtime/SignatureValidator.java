@@ -0,0 +1,96 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.realtime;
+
+import java.io.UnsupportedEncodingException;
+import java.security.GeneralSecurityException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.mule.modules.utils.MuleSoftException;
+
+/**
+ * Validates the X-Hub-Signature header Facebook sends with every Real-time
+ * Updates notification: the hex encoded HMAC-SHA1 of the request body keyed with
+ * the application secret, prefixed by "sha1=".
+ */
+public class SignatureValidator
+{
+    private static final String ALGORITHM = "HmacSHA1";
+    private static final String PREFIX = "sha1=";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final SecretKeySpec key;
+
+    public SignatureValidator(String appSecret)
+    {
+        try
+        {
+            this.key = new SecretKeySpec(appSecret.getBytes("UTF-8"), ALGORITHM);
+        }
+        catch (UnsupportedEncodingException e)
+        {
+            throw MuleSoftException.soften(e);
+        }
+    }
+
+    /**
+     * @param body the raw request body
+     * @param signature the value of the X-Hub-Signature header, may be null
+     * @return whether the signature matches the body
+     */
+    public boolean isValid(byte[] body, String signature)
+    {
+        if (signature == null || !signature.startsWith(PREFIX))
+        {
+            return false;
+        }
+        String expected = sign(body);
+        String actual = signature.substring(PREFIX.length()).toLowerCase();
+        if (expected.length() != actual.length())
+        {
+            return false;
+        }
+        // constant time comparison, so the signature can't be guessed byte by byte
+        int difference = 0;
+        for (int i = 0; i < expected.length(); i++)
+        {
+            difference |= expected.charAt(i) ^ actual.charAt(i);
+        }
+        return difference == 0;
+    }
+
+    /**
+     * @param body the request body
+     * @return the hex encoded signature of the body
+     */
+    public String sign(byte[] body)
+    {
+        try
+        {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            byte[] digest = mac.doFinal(body);
+            char[] hex = new char[digest.length * 2];
+            for (int i = 0; i < digest.length; i++)
+            {
+                hex[i * 2] = HEX[(digest[i] >> 4) & 0xf];
+                hex[i * 2 + 1] = HEX[digest[i] & 0xf];
+            }
+            return new String(hex);
+        }
+        catch (GeneralSecurityException e)
+        {
+            throw MuleSoftException.soften(e);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.realtime;
+
+import java.util.Map;
+
+/**
+ * Receives the change notifications of the Real-time Updates receiver
+ */
+public interface UpdateListener
+{
+    /**
+     * Called once per changed object
+     * 
+     * @param object the type of the subscription: user, page, permissions...
+     * @param change the entry of the notification: the id of the changed object,
+     *            the time of the change and the changed fields
+     * @throws Exception if the change could not be handled, in which case Facebook
+     *             is asked to send the notification again
+     */
+    void onUpdate(String object, Map<String, Object> change) throws Exception;
+}
@@ -0,0 +1,218 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.source;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.codehaus.jackson.JsonNode;
+import org.mule.module.facebook.checkpoint.CheckpointStore;
+import org.mule.module.facebook.http.GraphUris;
+
+import com.restfb.util.DateUtils;
+
+/**
+ * Keeps, for each polled target, the timestamp of the newest item already
+ * emitted so the next poll only asks for what came after it. Graph timestamps
+ * have a one second resolution, so the ids emitted at the watermark second are
+ * remembered too: items sharing that second are neither lost nor emitted twice.
+ * When given a {@link CheckpointStore}, the watermarks are saved to it as they
+ * advance and restored from it, so polling resumes where it left off after a
+ * restart.
+ */
+public class WatermarkTracker
+{
+    private static final String KEY_PREFIX = "watermark:";
+
+    private final Map<String, Watermark> watermarks = new ConcurrentHashMap<String, Watermark>();
+    private volatile CheckpointStore store;
+
+    /**
+     * @param store the store the watermarks are saved to, may be null
+     */
+    public void setStore(CheckpointStore store)
+    {
+        this.store = store;
+        watermarks.clear();
+    }
+
+    /**
+     * Builds the key of a polled target. Sources polling the same target with
+     * another token, starting point or timestamp field see other posts, so they
+     * get a watermark of their own.
+     * 
+     * @param accessToken the access token the target is polled with
+     * @param target the id of the user, page or group
+     * @param connection the polled connection
+     * @param since the starting point of the first poll
+     * @param field the timestamp field the watermark follows
+     * @return the key of the polled target
+     */
+    public static String key(String accessToken, String target, String connection, String since, String field)
+    {
+        return GraphUris.hash(accessToken) + "/" + target + "/" + connection + "/" + field + "/" + since;
+    }
+
+    /**
+     * @param key the polled target
+     * @return the watermark of the target in seconds since the epoch, or null if
+     *         nothing has been emitted for it yet
+     */
+    public Long getSince(String key)
+    {
+        Watermark watermark = get(key);
+        return watermark == null ? null : watermark.seconds;
+    }
+
+    /**
+     * Selects the items that are newer than the watermark of the target
+     * 
+     * @param key the polled target
+     * @param items the items returned by the API
+     * @param field the timestamp field the watermark follows
+     * @return the new items, oldest first
+     */
+    public List<JsonNode> select(String key, List<JsonNode> items, final String field)
+    {
+        Watermark watermark = get(key);
+        List<JsonNode> selected = new ArrayList<JsonNode>();
+        for (JsonNode item : items)
+        {
+            long seconds = seconds(item, field);
+            if (watermark == null || seconds > watermark.seconds
+                || (seconds == watermark.seconds && !watermark.ids.contains(item.path("id").getTextValue())))
+            {
+                selected.add(item);
+            }
+        }
+        Collections.sort(selected, new Comparator<JsonNode>()
+        {
+            public int compare(JsonNode first, JsonNode second)
+            {
+                long difference = seconds(first, field) - seconds(second, field);
+                return difference < 0 ? -1 : (difference > 0 ? 1 : 0);
+            }
+        });
+        return selected;
+    }
+
+    /**
+     * Records that the given item has been emitted
+     * 
+     * @param key the polled target
+     * @param item the emitted item
+     * @param field the timestamp field the watermark follows
+     */
+    public void advance(String key, JsonNode item, String field)
+    {
+        long seconds = seconds(item, field);
+        Watermark watermark = get(key);
+        if (watermark == null || seconds > watermark.seconds)
+        {
+            watermark = new Watermark(seconds);
+        }
+        else if (seconds < watermark.seconds)
+        {
+            return;
+        }
+        else
+        {
+            watermark = new Watermark(watermark);
+        }
+        watermark.ids.add(item.path("id").getTextValue());
+        put(key, watermark);
+    }
+
+    /**
+     * @param key the polled target
+     * @return the current watermark of the target, or null
+     */
+    public Watermark get(String key)
+    {
+        Watermark watermark = watermarks.get(key);
+        if (watermark == null && store != null)
+        {
+            watermark = (Watermark) store.retrieve(KEY_PREFIX + key);
+            if (watermark != null)
+            {
+                watermarks.put(key, watermark);
+            }
+        }
+        return watermark;
+    }
+
+    /**
+     * Sets the watermark of a target, saving it to the store if there is one
+     * 
+     * @param key the polled target
+     * @param watermark the watermark
+     */
+    public void put(String key, Watermark watermark)
+    {
+        watermarks.put(key, watermark);
+        if (store != null)
+        {
+            store.store(KEY_PREFIX + key, watermark);
+        }
+    }
+
+    private static long seconds(JsonNode item, String field)
+    {
+        String time = item.path(field).getTextValue();
+        if (time == null)
+        {
+            time = item.path("created_time").getTextValue();
+        }
+        Date date = DateUtils.toDateFromLongFormat(time);
+        return date == null ? 0 : date.getTime() / 1000;
+    }
+
+    /**
+     * The timestamp of the newest emitted item and the ids emitted at that second
+     */
+    public static class Watermark implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final long seconds;
+        private final Set<String> ids;
+
+        public Watermark(long seconds)
+        {
+            this.seconds = seconds;
+            this.ids = new HashSet<String>();
+        }
+
+        private Watermark(Watermark other)
+        {
+            this.seconds = other.seconds;
+            this.ids = new HashSet<String>(other.ids);
+        }
+
+        public long getSeconds()
+        {
+            return seconds;
+        }
+
+        public Set<String> getIds()
+        {
+            return Collections.unmodifiableSet(ids);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.sync;
+
+/**
+ * The kind of change a {@link PostDelta} describes
+ */
+public enum DeltaType
+{
+    INSERT, UPDATE, DELETE
+}
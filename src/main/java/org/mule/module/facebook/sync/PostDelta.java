@@ -0,0 +1,83 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.sync;
+
+import java.io.Serializable;
+import java.util.List;
+
+import com.restfb.types.Comment;
+import com.restfb.types.Post;
+import com.restfb.types.Post.Likes;
+
+/**
+ * A change of a post since the previous synchronization. Inserted and updated
+ * posts come with their current comments and likes, deleted ones only with their
+ * id.
+ */
+public class PostDelta implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    private final DeltaType type;
+    private final String id;
+    private final Post post;
+    private final List<Comment> comments;
+    private final Likes likes;
+
+    public PostDelta(DeltaType type, String id, Post post, List<Comment> comments, Likes likes)
+    {
+        this.type = type;
+        this.id = id;
+        this.post = post;
+        this.comments = comments;
+        this.likes = likes;
+    }
+
+    public DeltaType getType()
+    {
+        return type;
+    }
+
+    public String getId()
+    {
+        return id;
+    }
+
+    /**
+     * @return the post, null for a deletion
+     */
+    public Post getPost()
+    {
+        return post;
+    }
+
+    /**
+     * @return the comments of the post, null for a deletion
+     */
+    public List<Comment> getComments()
+    {
+        return comments;
+    }
+
+    /**
+     * @return the likes of the post, null for a deletion
+     */
+    public Likes getLikes()
+    {
+        return likes;
+    }
+
+    @Override
+    public String toString()
+    {
+        return type + " " + id;
+    }
+}
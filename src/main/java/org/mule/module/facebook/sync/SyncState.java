@@ -0,0 +1,200 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.sync;
+
+import java.io.Serializable;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.codehaus.jackson.JsonNode;
+import org.mule.module.facebook.http.GraphUris;
+import org.mule.modules.utils.MuleSoftException;
+
+import com.restfb.util.DateUtils;
+
+/**
+ * What the previous synchronization of a page saw of each of its posts: its
+ * creation and update times and a hash of its content, which covers the counts
+ * and first items of its comments and likes. Comparing a new listing of the
+ * posts against it tells which posts were inserted, updated or deleted.
+ * <p/>
+ * Deletions can only be detected within the window the listing covers, so only
+ * the known posts created after the oldest listed post are considered deleted
+ * when they are missing from it. The posts created before it have left the
+ * window and are forgotten, so the state does not grow with the age of the page.
+ */
+public class SyncState implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    private final Map<String, Digest> digests = new HashMap<String, Digest>();
+
+    /**
+     * @param accessToken the access token the page is synchronized with
+     * @param page the id of the page
+     * @return the key of the state of the page in the checkpoint store
+     */
+    public static String key(String accessToken, String page)
+    {
+        return "sync:" + GraphUris.hash(accessToken) + "/" + page + "/posts";
+    }
+
+    /**
+     * @return a copy of the state, which can be updated without changing this one
+     */
+    public SyncState copy()
+    {
+        SyncState copy = new SyncState();
+        copy.digests.putAll(digests);
+        return copy;
+    }
+
+    /**
+     * Compares the given listing against the state and updates it
+     * 
+     * @param items the complete listing of the posts of the window
+     * @return the changes, as deltas without content
+     */
+    public List<Change> update(List<JsonNode> items)
+    {
+        List<Change> changes = new ArrayList<Change>();
+        Set<String> listed = new HashSet<String>();
+        long oldest = Long.MAX_VALUE;
+        for (JsonNode item : items)
+        {
+            String id = item.path("id").getTextValue();
+            if (id == null || !listed.add(id))
+            {
+                continue;
+            }
+            Digest digest = new Digest(seconds(item, "created_time"), seconds(item, "updated_time"), hash(item));
+            oldest = Math.min(oldest, digest.created);
+            Digest previous = digests.put(id, digest);
+            if (previous == null)
+            {
+                changes.add(new Change(DeltaType.INSERT, id, item));
+            }
+            else if (previous.updated != digest.updated || !Arrays.equals(previous.hash, digest.hash))
+            {
+                changes.add(new Change(DeltaType.UPDATE, id, item));
+            }
+        }
+        for (Iterator<Map.Entry<String, Digest>> it = digests.entrySet().iterator(); it.hasNext();)
+        {
+            Map.Entry<String, Digest> entry = it.next();
+            if (listed.contains(entry.getKey()))
+            {
+                continue;
+            }
+            if (entry.getValue().created >= oldest)
+            {
+                changes.add(new Change(DeltaType.DELETE, entry.getKey(), null));
+                it.remove();
+            }
+            else if (!listed.isEmpty())
+            {
+                it.remove();
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * @return the number of posts known
+     */
+    public int size()
+    {
+        return digests.size();
+    }
+
+    private static long seconds(JsonNode item, String field)
+    {
+        Date date = DateUtils.toDateFromLongFormat(item.path(field).getTextValue());
+        return date == null ? 0 : date.getTime() / 1000;
+    }
+
+    private static byte[] hash(JsonNode item)
+    {
+        try
+        {
+            return MessageDigest.getInstance("MD5").digest(item.toString().getBytes("UTF-8"));
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw MuleSoftException.soften(e);
+        }
+        catch (UnsupportedEncodingException e)
+        {
+            throw MuleSoftException.soften(e);
+        }
+    }
+
+    private static class Digest implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final long created;
+        private final long updated;
+        private final byte[] hash;
+
+        public Digest(long created, long updated, byte[] hash)
+        {
+            this.created = created;
+            this.updated = updated;
+            this.hash = hash;
+        }
+    }
+
+    /**
+     * A change found by {@link SyncState#update(List)}
+     */
+    public static class Change
+    {
+        private final DeltaType type;
+        private final String id;
+        private final JsonNode item;
+
+        public Change(DeltaType type, String id, JsonNode item)
+        {
+            this.type = type;
+            this.id = id;
+            this.item = item;
+        }
+
+        public DeltaType getType()
+        {
+            return type;
+        }
+
+        public String getId()
+        {
+            return id;
+        }
+
+        /**
+         * @return the listed post, null for a deletion
+         */
+        public JsonNode getItem()
+        {
+            return item;
+        }
+    }
+}
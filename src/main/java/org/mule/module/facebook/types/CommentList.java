@@ -13,6 +13,8 @@
 import java.io.Serializable;
 import java.util.List;
 
+import org.mule.module.facebook.codec.BinaryCodec;
+
 import com.restfb.Facebook;
 import com.restfb.types.Comment;
  
@@ -20,5 +22,12 @@ public class CommentList implements Serializable
 {
     @Facebook
     private List<Comment> data;
-}
 
+    /**
+     * Serializes the object as its compact binary encoding
+     */
+    private Object writeReplace()
+    {
+        return BinaryCodec.replacement(this);
+    }
+}
@@ -10,6 +10,8 @@
 
  package org.mule.module.facebook.types;
 
+import org.mule.module.facebook.codec.BinaryCodec;
+
 import com.restfb.Facebook;
 import com.restfb.types.NamedFacebookType;
 import com.restfb.types.Post.Comments;
@@ -67,4 +69,11 @@ public class GetApplicationTaggedResponseType extends NamedFacebookType
         return comments;
     }
 
+    /**
+     * Serializes the object as its compact binary encoding
+     */
+    private Object writeReplace()
+    {
+        return BinaryCodec.replacement(this);
+    }
 }
\ No newline at end of file
@@ -10,6 +10,8 @@
 
  package org.mule.module.facebook.types;
 
+import org.mule.module.facebook.codec.BinaryCodec;
+
 import com.restfb.Facebook;
 import com.restfb.types.CategorizedFacebookType;
  
@@ -26,4 +28,12 @@ public class GetUserAccountResponseType extends CategorizedFacebookType
     {
         return accessToken;
     }
+
+    /**
+     * Serializes the object as its compact binary encoding
+     */
+    private Object writeReplace()
+    {
+        return BinaryCodec.replacement(this);
+    }
 }
\ No newline at end of file
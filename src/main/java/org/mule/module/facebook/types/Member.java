@@ -13,6 +13,8 @@
 /* * Copyright (c) 2012 Zauber S.A. -- All rights reserved */
  package org.mule.module.facebook.types;
 
+import org.mule.module.facebook.codec.BinaryCodec;
+
 import com.restfb.types.NamedFacebookType;
  
 /**
@@ -36,4 +38,11 @@ public class Member extends NamedFacebookType
         this.administrator = administrator;
     }
 
+    /**
+     * Serializes the object as its compact binary encoding
+     */
+    private Object writeReplace()
+    {
+        return BinaryCodec.replacement(this);
+    }
 }
\ No newline at end of file
@@ -13,6 +13,8 @@
 import java.io.Serializable;
 import java.util.List;
 
+import org.mule.module.facebook.codec.BinaryCodec;
+
 import com.restfb.Facebook;
 import com.restfb.types.NamedFacebookType;
  
@@ -28,4 +30,12 @@ public class NamedFacebookTypeList implements Serializable
     {
         return data;
     }
+
+    /**
+     * Serializes the object as its compact binary encoding
+     */
+    private Object writeReplace()
+    {
+        return BinaryCodec.replacement(this);
+    }
 }
\ No newline at end of file
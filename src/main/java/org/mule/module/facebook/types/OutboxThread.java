@@ -10,6 +10,8 @@
 
  package org.mule.module.facebook.types;
 
+import org.mule.module.facebook.codec.BinaryCodec;
+
 import com.restfb.Facebook;
  
 public class OutboxThread extends Thread
@@ -23,5 +25,12 @@ public class OutboxThread extends Thread
     {
         return message;
     }
-}
 
+    /**
+     * Serializes the object as its compact binary encoding
+     */
+    private Object writeReplace()
+    {
+        return BinaryCodec.replacement(this);
+    }
+}
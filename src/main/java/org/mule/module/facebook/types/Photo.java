@@ -18,6 +18,8 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
+import org.mule.module.facebook.codec.BinaryCodec;
+
 import com.restfb.Facebook;
 import com.restfb.types.CategorizedFacebookType;
 import com.restfb.types.Comment;
@@ -331,4 +333,11 @@ public class Photo extends NamedFacebookType {
   public List<Image> getImages() {
     return unmodifiableList(images);
   }
+
+  /**
+   * Serializes the photo as its compact binary encoding
+   */
+  private Object writeReplace() {
+    return BinaryCodec.replacement(this);
+  }
 }
\ No newline at end of file
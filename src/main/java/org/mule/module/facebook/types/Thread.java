@@ -12,7 +12,11 @@
 
 import java.util.Date;
 
+import org.mule.module.facebook.codec.BinaryCodec;
+
+import com.restfb.DefaultJsonMapper;
 import com.restfb.Facebook;
+import com.restfb.JsonMapper;
 import com.restfb.types.FacebookType;
 import com.restfb.types.NamedFacebookType;
 import com.restfb.util.DateUtils;
@@ -26,8 +30,13 @@ public class Thread extends FacebookType
     @Facebook
     private NamedFacebookType from;
     
-    @Facebook
-    private NamedFacebookTypeList to;
+    /**
+     * The recipients, kept as raw JSON until first accessed
+     */
+    @Facebook("to")
+    private String rawTo;
+
+    private transient NamedFacebookTypeList to;
     
     @Facebook("updated_time")
     private String updatedTime;
@@ -38,8 +47,13 @@ public class Thread extends FacebookType
     @Facebook
     private Integer unseen;
     
-    @Facebook
-    private CommentList comments;
+    /**
+     * The messages, kept as raw JSON until first accessed
+     */
+    @Facebook("comments")
+    private String rawComments;
+
+    private transient CommentList comments;
     
     public NamedFacebookType getFrom()
     {
@@ -48,6 +62,10 @@ public class Thread extends FacebookType
     
     public NamedFacebookTypeList getTo()
     {
+        if (to == null && rawTo != null)
+        {
+            to = decode(rawTo, NamedFacebookTypeList.class);
+        }
         return to;
     }
     
@@ -68,7 +86,24 @@ public class Thread extends FacebookType
 
     public CommentList getComments()
     {
+        if (comments == null && rawComments != null)
+        {
+            comments = decode(rawComments, CommentList.class);
+        }
         return comments;
     }
 
+    private static <T> T decode(String json, Class<T> type)
+    {
+        JsonMapper mapper = new DefaultJsonMapper();
+        return mapper.toJavaObject(json, type);
+    }
+
+    /**
+     * Serializes the object as its compact binary encoding
+     */
+    private Object writeReplace()
+    {
+        return BinaryCodec.replacement(this);
+    }
 }
\ No newline at end of file
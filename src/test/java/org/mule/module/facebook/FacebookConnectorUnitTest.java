@@ -14,11 +14,23 @@ import static org.junit.Assert.*;
 import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
 import java.net.URI;
+import java.util.List;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
+import org.mule.RequestContext;
+import org.mule.api.MuleEvent;
+import org.mule.api.MuleMessage;
+import org.mule.api.transport.PropertyScope;
+import org.mule.module.facebook.http.RequestTimeouts;
+import org.mule.module.facebook.insights.RollupBucket;
+import org.mule.module.facebook.insights.RollupPeriod;
 import org.mule.module.facebook.types.Photo;
 
 import com.restfb.exception.FacebookJsonMappingException;
@@ -34,6 +46,7 @@ import com.restfb.types.User;
 import com.restfb.types.Video;
 import com.sun.jersey.api.client.Client;
 import com.sun.jersey.api.client.WebResource;
+import com.sun.jersey.api.client.config.ClientConfig;
 
 /**
  * Test Driver for the connector
@@ -176,6 +189,94 @@ public class FacebookConnectorUnitTest
         assertNotNull(res);
     }
     
+    @Test
+    public void testDefaultTimeoutsAreAppliedBeforeStart() throws Exception
+    {
+        connector.getUser("", "");
+        Mockito.verify(resource).setProperty(ClientConfig.PROPERTY_CONNECT_TIMEOUT, 10000);
+        Mockito.verify(resource).setProperty(ClientConfig.PROPERTY_READ_TIMEOUT, 60000);
+    }
+    
+    @Test
+    public void testConfiguredTimeoutsAreApplied() throws Exception
+    {
+        connector.setConnectTimeout(1500);
+        connector.setReadTimeout(2500);
+        connector.getUser("", "");
+        Mockito.verify(resource).setProperty(ClientConfig.PROPERTY_CONNECT_TIMEOUT, 1500);
+        Mockito.verify(resource).setProperty(ClientConfig.PROPERTY_READ_TIMEOUT, 2500);
+    }
+    
+    @Test
+    public void testTimeoutsOfTheEventAreApplied() throws Exception
+    {
+        connector.setConnectTimeout(1500);
+        connector.setReadTimeout(60000);
+        MuleMessage message = mock(MuleMessage.class);
+        when(message.getProperty(RequestTimeouts.CONNECT_TIMEOUT_PROPERTY, PropertyScope.INVOCATION)).thenReturn(700);
+        when(message.getProperty(RequestTimeouts.DEADLINE_PROPERTY, PropertyScope.INVOCATION)).thenReturn(
+            System.currentTimeMillis() + 5000);
+        MuleEvent event = mock(MuleEvent.class);
+        when(event.getMessage()).thenReturn(message);
+        RequestContext.setEvent(event);
+        try
+        {
+            connector.getUser("", "");
+        }
+        finally
+        {
+            RequestContext.clear();
+        }
+        Mockito.verify(resource).setProperty(ClientConfig.PROPERTY_CONNECT_TIMEOUT, 700);
+        ArgumentCaptor<Object> read = ArgumentCaptor.forClass(Object.class);
+        Mockito.verify(resource).setProperty(eq(ClientConfig.PROPERTY_READ_TIMEOUT), read.capture());
+        int timeout = (Integer) read.getValue();
+        assertTrue(timeout > 0 && timeout <= 5000);
+    }
+    
+    @Test
+    public void testFailedExportLeavesNoFile() throws Exception
+    {
+        String page = "{\"data\":[{\"id\":\"1\"}],\"paging\":{\"next\":\"https://graph.facebook.com/1/feed?until=1\"}}";
+        when(resource.queryParam(anyString(), anyString())).thenReturn(resource);
+        when(resource.get(InputStream.class)).thenReturn(new ByteArrayInputStream(page.getBytes("UTF-8")))
+            .thenThrow(new IllegalStateException("down"));
+        File file = File.createTempFile("export", ".ndjson");
+        file.delete();
+        try
+        {
+            connector.exportConnection("", "1", "feed", "", "", file.getPath(), null, true);
+            fail();
+        }
+        catch (IllegalStateException e)
+        {
+            assertEquals("down", e.getMessage());
+        }
+        assertFalse(file.exists());
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+    }
+    
+    @Test
+    public void testRollupsOfDifferentSizesAreKeptApart() throws Exception
+    {
+        when(resource.queryParam(anyString(), anyString())).thenReturn(resource);
+        when(resource.get(String.class)).thenReturn("{\"data\":[{\"name\":\"m\",\"period\":\"day\",\"values\":["
+            + "{\"value\":1,\"end_time\":\"2012-05-01T07:00:00+0000\"},"
+            + "{\"value\":2,\"end_time\":\"2012-05-02T07:00:00+0000\"},"
+            + "{\"value\":3,\"end_time\":\"2012-05-03T07:00:00+0000\"},"
+            + "{\"value\":4,\"end_time\":\"2012-05-04T07:00:00+0000\"}]}]}");
+
+        List<RollupBucket> two = connector.rollupApplicationInsights("", "1", "", "", RollupPeriod.DAY, 2, 10);
+        assertEquals(2, two.size());
+        assertEquals(3, two.get(0).getSum(), 0);
+        List<RollupBucket> four = connector.rollupApplicationInsights("", "1", "", "", RollupPeriod.DAY, 4, 1);
+        assertEquals(4, four.size());
+        assertEquals(1, four.get(0).getSum(), 0);
+        two = connector.rollupApplicationInsights("", "1", "", "", RollupPeriod.DAY, 2, 10);
+        assertEquals(2, two.size());
+        assertEquals(1, two.get(1).getCount());
+    }
+    
     @Test
     public void testGetVideo() throws Exception
     {
@@ -0,0 +1,91 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.cache;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+
+import org.junit.Test;
+
+public class CacheSnapshotterTest
+{
+    @Test
+    public void testLiveResponsesAreRestored() throws Exception
+    {
+        File file = File.createTempFile("facebook-cache", ".snapshot");
+        try
+        {
+            InMemoryResponseCache reads = new InMemoryResponseCache(10);
+            InMemoryResponseCache searches = new InMemoryResponseCache(10);
+            reads.put("/1", CachedResponse.of("{\"id\":\"1\"}", 1000, 100));
+            reads.put("/2", CachedResponse.of("{\"id\":\"2\"}", 1000, 1000));
+            reads.put("/3", CachedResponse.of("{\"id\":\"3\"}", 1000, 10));
+            searches.put("/search?q=mule", CachedResponse.of("{\"data\":[]}", 1000, 100));
+            CacheSnapshotter snapshotter = new CacheSnapshotter(file);
+            snapshotter.add("reads", reads, 50);
+            snapshotter.add("searches", searches, 0);
+            snapshotter.save();
+
+            InMemoryResponseCache restoredReads = new InMemoryResponseCache(10);
+            InMemoryResponseCache restoredSearches = new InMemoryResponseCache(10);
+            CacheSnapshotter restorer = new CacheSnapshotter(file);
+            restorer.add("reads", restoredReads, 50);
+            restorer.add("searches", restoredSearches, 0);
+            assertEquals(2, restorer.restore(1120));
+
+            assertEquals("{\"id\":\"1\"}", restoredReads.get("/1").getJson());
+            assertEquals(1100, restoredReads.get("/1").getExpires());
+            assertEquals("{\"id\":\"2\"}", restoredReads.get("/2").getJson());
+            assertNull(restoredReads.get("/3"));
+            assertEquals(0, restoredSearches.size());
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testDamagedSnapshotsAreIgnored() throws Exception
+    {
+        File file = File.createTempFile("facebook-cache", ".snapshot");
+        try
+        {
+            InMemoryResponseCache reads = new InMemoryResponseCache(10);
+            reads.put("/1", CachedResponse.of("{\"id\":\"1\"}", 1000, 100));
+            reads.put("/2", CachedResponse.of("{\"id\":\"2\"}", 1000, 100));
+            CacheSnapshotter snapshotter = new CacheSnapshotter(file);
+            snapshotter.add("reads", reads, 0);
+            snapshotter.save();
+            RandomAccessFile truncated = new RandomAccessFile(file, "rw");
+            truncated.setLength(truncated.length() - 3);
+            truncated.close();
+
+            InMemoryResponseCache restored = new InMemoryResponseCache(10);
+            CacheSnapshotter restorer = new CacheSnapshotter(file);
+            restorer.add("reads", restored, 0);
+            assertEquals(1, restorer.restore(1000));
+            assertNotNull(restored.get("/1"));
+
+            FileOutputStream out = new FileOutputStream(file);
+            out.write("not a snapshot".getBytes());
+            out.close();
+            assertEquals(0, restorer.restore(1000));
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.cache;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+
+import org.junit.Test;
+
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.UniformInterfaceException;
+import com.sun.jersey.core.header.InBoundHeaders;
+
+public class NegativeCacheTest
+{
+    private static final String UNKNOWN = "{\"error\":{\"message\":\"Object with ID '1_2' does not exist\",\"type\":\"GraphMethodException\",\"code\":100}}";
+    private static final String UNSUPPORTED = "{\"error\":{\"message\":\"Unsupported get request.\",\"type\":\"GraphMethodException\",\"code\":100}}";
+    private static final String INVALID = "{\"error\":{\"message\":\"(#100) Invalid parameter\",\"type\":\"OAuthException\",\"code\":100}}";
+    private static final String PERMISSION = "{\"error\":{\"message\":\"(#200) Requires extended permission: read_stream\",\"type\":\"OAuthException\",\"code\":200}}";
+    private static final String EXPIRED = "{\"error\":{\"message\":\"Session has expired\",\"type\":\"OAuthException\",\"code\":190}}";
+
+    private final Client client = new Client();
+
+    @Test
+    public void testMissingObjectsFailWithoutRequest()
+    {
+        NegativeCache cache = new NegativeCache(50, 10, client.getMessageBodyWorkers());
+        URI uri = URI.create("https://graph.facebook.com/1_2?metadata=0&access_token=abc");
+        cache.check(uri);
+
+        UniformInterfaceException rethrown = cache.record(uri, failure(400, UNKNOWN));
+        assertEquals(UNKNOWN, rethrown.getResponse().getEntity(String.class));
+        try
+        {
+            cache.check(URI.create("https://graph.facebook.com/1_2/comments?access_token=abc"));
+            fail();
+        }
+        catch (UniformInterfaceException e)
+        {
+            assertEquals(400, e.getResponse().getStatus());
+            assertEquals(UNKNOWN, e.getResponse().getEntity(String.class));
+        }
+        assertEquals(1, cache.getHits());
+
+        cache.check(URI.create("https://graph.facebook.com/1_2?metadata=0&access_token=def"));
+    }
+
+    @Test
+    public void testPermissionErrorsOnlyFailTheSamePath()
+    {
+        NegativeCache cache = new NegativeCache(1000, 10, client.getMessageBodyWorkers());
+        cache.record(URI.create("https://graph.facebook.com/1/feed?since=0&access_token=abc"), failure(400, PERMISSION));
+        cache.record(URI.create("https://graph.facebook.com/1/notes?access_token=abc"), failure(403, ""));
+        cache.check(URI.create("https://graph.facebook.com/1?access_token=abc"));
+        cache.check(URI.create("https://graph.facebook.com/1/photos?access_token=abc"));
+        for (String connection : new String[]{"feed", "notes"})
+        {
+            try
+            {
+                cache.check(URI.create("https://graph.facebook.com/1/" + connection + "?access_token=abc"));
+                fail(connection);
+            }
+            catch (UniformInterfaceException e)
+            {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidRequestsAreNotRemembered()
+    {
+        NegativeCache cache = new NegativeCache(1000, 10, client.getMessageBodyWorkers());
+        cache.record(URI.create("https://graph.facebook.com/1/likes?access_token=abc"), failure(400, UNSUPPORTED));
+        cache.record(URI.create("https://graph.facebook.com/search?q=x&type=bogus&access_token=abc"), failure(400, INVALID));
+        cache.check(URI.create("https://graph.facebook.com/1/likes?access_token=abc"));
+        cache.check(URI.create("https://graph.facebook.com/search?q=x&type=post&access_token=abc"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testFailuresExpire() throws Exception
+    {
+        NegativeCache cache = new NegativeCache(20, 10, client.getMessageBodyWorkers());
+        URI uri = URI.create("https://graph.facebook.com/1_2?access_token=abc");
+        cache.record(uri, failure(404, ""));
+        assertEquals(1, cache.size());
+        Thread.sleep(30);
+        cache.check(uri);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testTransientFailuresAreNotRemembered()
+    {
+        NegativeCache cache = new NegativeCache(1000, 10, client.getMessageBodyWorkers());
+        URI uri = URI.create("https://graph.facebook.com/1_2?access_token=abc");
+        cache.record(uri, failure(400, EXPIRED));
+        cache.record(uri, failure(500, ""));
+        cache.check(uri);
+        assertEquals(0, cache.size());
+    }
+
+    private UniformInterfaceException failure(int status, String body)
+    {
+        return new UniformInterfaceException(new ClientResponse(status, new InBoundHeaders(),
+            new ByteArrayInputStream(body.getBytes()), client.getMessageBodyWorkers()));
+    }
+}
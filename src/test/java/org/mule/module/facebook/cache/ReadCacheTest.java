@@ -0,0 +1,176 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.cache;
+
+import static org.junit.Assert.*;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class ReadCacheTest
+{
+    private static final URI URI_1 = URI.create("https://graph.facebook.com/1?metadata=0&access_token=abc");
+    private static final URI URI_2 = URI.create("https://graph.facebook.com/1?access_token=abc&metadata=0");
+
+    @Test
+    public void testResponsesAreServedUntilTheyExpire() throws Exception
+    {
+        InMemoryResponseCache responses = new InMemoryResponseCache(10);
+        ReadCache cache = new ReadCache(responses, 50);
+        CountingLoader loader = new CountingLoader();
+
+        assertEquals("{\"id\":\"1\",\"n\":1}", cache.read(URI_1, loader));
+        assertEquals("{\"id\":\"1\",\"n\":1}", cache.read(URI_2, loader));
+        assertEquals(1, loader.loads.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        Thread.sleep(60);
+        assertEquals("{\"id\":\"1\",\"n\":2}", cache.read(URI_1, loader));
+        assertEquals(1, responses.size());
+    }
+
+    @Test
+    public void testStaleResponsesAreServedWhileRefreshed() throws Exception
+    {
+        ReadCache cache = new ReadCache(new InMemoryResponseCache(10), 20, 1000, 1);
+        CountingLoader loader = new CountingLoader();
+        try
+        {
+            assertEquals("{\"id\":\"1\",\"n\":1}", cache.read(URI_1, loader));
+            Thread.sleep(30);
+            assertEquals("{\"id\":\"1\",\"n\":1}", cache.read(URI_1, loader));
+            assertEquals(1, cache.getStaleHits());
+            for (int i = 0; i < 100 && loader.loads.get() < 2; i++)
+            {
+                Thread.sleep(10);
+            }
+            Thread.sleep(10);
+            assertEquals("{\"id\":\"1\",\"n\":2}", cache.read(URI_1, loader));
+        }
+        finally
+        {
+            cache.dispose();
+        }
+    }
+
+    @Test
+    public void testStaleResponsesAreServedWhenTheReadFails() throws Exception
+    {
+        ReadCache cache = new ReadCache(new InMemoryResponseCache(10), 20, 40, 1);
+        try
+        {
+            cache.read(URI_1, new CountingLoader());
+            Thread.sleep(30);
+            ReadCache.Loader failing = new ReadCache.Loader()
+            {
+                public String load()
+                {
+                    throw new IllegalStateException("down");
+                }
+            };
+            assertEquals("{\"id\":\"1\",\"n\":1}", cache.read(URI_2, failing));
+            Thread.sleep(40);
+            try
+            {
+                cache.read(URI_1, failing);
+                fail();
+            }
+            catch (IllegalStateException e)
+            {
+                assertEquals("down", e.getMessage());
+            }
+        }
+        finally
+        {
+            cache.dispose();
+        }
+    }
+
+    @Test
+    public void testWritesInvalidateReads() throws Exception
+    {
+        ReadCache cache = new ReadCache(new InMemoryResponseCache(10), 1000);
+        CountingLoader loader = new CountingLoader();
+        URI comments = URI.create("https://graph.facebook.com/1_2/comments?access_token=abc");
+        URI feed = URI.create("https://graph.facebook.com/1/feed?limit=25&access_token=abc");
+        URI other = URI.create("https://graph.facebook.com/3?access_token=abc");
+        cache.read(comments, loader);
+        cache.read(feed, loader);
+        cache.read(other, loader);
+        assertEquals(3, loader.loads.get());
+
+        Thread.sleep(2);
+        cache.invalidate("1_2");
+        Thread.sleep(2);
+        assertEquals("{\"id\":\"1\",\"n\":4}", cache.read(comments, loader));
+        assertEquals("{\"id\":\"1\",\"n\":5}", cache.read(feed, loader));
+        assertEquals("{\"id\":\"1\",\"n\":3}", cache.read(other, loader));
+        assertEquals("{\"id\":\"1\",\"n\":4}", cache.read(comments, loader));
+    }
+
+    @Test
+    public void testDeletedCommentsInvalidateTheCommentsOfTheirPost() throws Exception
+    {
+        ReadCache cache = new ReadCache(new InMemoryResponseCache(10), 1000);
+        CountingLoader loader = new CountingLoader();
+        URI comments = URI.create("https://graph.facebook.com/1_2/comments?access_token=abc");
+        URI feed = URI.create("https://graph.facebook.com/1/feed?access_token=abc");
+        URI other = URI.create("https://graph.facebook.com/1_3/comments?access_token=abc");
+        cache.read(comments, loader);
+        cache.read(feed, loader);
+        cache.read(other, loader);
+        assertEquals(3, loader.loads.get());
+
+        Thread.sleep(2);
+        cache.invalidate("1_2_4");
+        Thread.sleep(2);
+        assertEquals("{\"id\":\"1\",\"n\":4}", cache.read(comments, loader));
+        assertEquals("{\"id\":\"1\",\"n\":5}", cache.read(feed, loader));
+        assertEquals("{\"id\":\"1\",\"n\":3}", cache.read(other, loader));
+    }
+
+    @Test
+    public void testKeys()
+    {
+        assertEquals(ReadCache.key(URI_1), ReadCache.key(URI_2));
+        assertFalse(ReadCache.key(URI_1).contains("abc"));
+        assertFalse(ReadCache.key(URI_1).equals(
+            ReadCache.key(URI.create("https://graph.facebook.com/1?metadata=0&access_token=def"))));
+        assertEquals("/1/picture", ReadCache.key(URI.create("https://graph.facebook.com/1/picture")));
+    }
+
+    @Test
+    public void testCompression()
+    {
+        StringBuilder json = new StringBuilder("{\"data\":[");
+        for (int i = 0; i < 100; i++)
+        {
+            json.append(i == 0 ? "" : ",").append("{\"id\":\"1_").append(i).append("\",\"message\":\"héllo\"}");
+        }
+        String response = json.append("]}").toString();
+        CachedResponse cached = CachedResponse.of(response, 0, 1000);
+        assertEquals(response, cached.getJson());
+        assertTrue(cached.getBody().length * 4 < response.length());
+    }
+
+    private static class CountingLoader implements ReadCache.Loader
+    {
+        private final AtomicInteger loads = new AtomicInteger();
+
+        public String load()
+        {
+            return "{\"id\":\"1\",\"n\":" + loads.incrementAndGet() + "}";
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.cache;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class SearchNormalizerTest
+{
+    private static final long HOUR = 3600000L;
+    private static final long DAY = 24 * HOUR;
+    // 2012-03-15T10:20:00Z
+    private static final long NOW = 1331806800000L;
+
+    @Test
+    public void testQueries()
+    {
+        assertEquals("mule esb", SearchNormalizer.query("  Mule \t ESB "));
+        assertNull(SearchNormalizer.query(null));
+    }
+
+    @Test
+    public void testRelativeTimesAreSnapped()
+    {
+        long start = (NOW - NOW % HOUR) / 1000;
+        assertEquals(String.valueOf(start), SearchNormalizer.snap("now", NOW, HOUR));
+        assertEquals(String.valueOf(start), SearchNormalizer.snap("now", NOW + 30 * 60000, HOUR));
+        assertEquals(String.valueOf(start - 7 * DAY / 1000), SearchNormalizer.snap("last week", NOW, HOUR));
+        assertEquals(String.valueOf(start - 7 * DAY / 1000), SearchNormalizer.snap("Last  Week", NOW, HOUR));
+        assertEquals(String.valueOf(start - 3 * HOUR / 1000), SearchNormalizer.snap("3 hours ago", NOW, HOUR));
+        assertEquals(String.valueOf(start - 2 * DAY / 1000), SearchNormalizer.snap("-2 days", NOW, HOUR));
+        assertEquals(String.valueOf(start + DAY / 1000), SearchNormalizer.snap("a day", NOW, HOUR));
+        // 2012-02-15T00:00:00Z
+        assertEquals("1329264000", SearchNormalizer.snap("1 month ago", NOW, DAY));
+    }
+
+    @Test
+    public void testUntilIsSnappedToTheEndOfItsBucket()
+    {
+        long end = (NOW - NOW % HOUR + HOUR) / 1000;
+        assertEquals(String.valueOf(end), SearchNormalizer.snapUp("now", NOW, HOUR));
+        assertEquals(String.valueOf(end), SearchNormalizer.snapUp("now", NOW + 30 * 60000, HOUR));
+        assertEquals(String.valueOf(end - 3 * HOUR / 1000), SearchNormalizer.snapUp("3 hours ago", NOW, HOUR));
+        assertEquals(String.valueOf(NOW / 1000), SearchNormalizer.snapUp("now", NOW, 60000));
+        assertEquals("yesterday", SearchNormalizer.snapUp("yesterday", NOW, HOUR));
+    }
+
+    @Test
+    public void testOtherTimesAreKept()
+    {
+        assertEquals("yesterday", SearchNormalizer.snap("yesterday", NOW, HOUR));
+        assertEquals("1331806800", SearchNormalizer.snap("1331806800", NOW, HOUR));
+        assertEquals("2012-03-01", SearchNormalizer.snap("2012-03-01", NOW, HOUR));
+        assertNull(SearchNormalizer.snap(null, NOW, HOUR));
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.cache;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TieredResponseCacheTest
+{
+    @Test
+    public void testOffHeapResponsesSpanBlocks()
+    {
+        OffHeapResponseCache cache = new OffHeapResponseCache(4096, 64);
+        String json = randomJson(300);
+        CachedResponse response = CachedResponse.of(json, 1000, 500);
+        cache.put("/1", response);
+
+        CachedResponse read = cache.get("/1");
+        assertEquals(json, read.getJson());
+        assertEquals(1000, read.getCreated());
+        assertEquals(1500, read.getExpires());
+        assertEquals(24 + response.getBody().length, cache.getUsedBytes());
+
+        cache.remove("/1");
+        assertNull(cache.get("/1"));
+        assertEquals(0, cache.getUsedBytes());
+    }
+
+    @Test
+    public void testOffHeapCapacityEvictsLeastRecentlyUsed()
+    {
+        OffHeapResponseCache cache = new OffHeapResponseCache(10 * 64, 64);
+        assertEquals(640, cache.getCapacity());
+        CachedResponse response = CachedResponse.of(randomJson(150), 0, 1000);
+        int blocks = (24 + response.getBody().length + 63) / 64;
+        int fitting = 10 / blocks;
+        for (int i = 0; i < fitting; i++)
+        {
+            cache.put("/" + i, response);
+        }
+        cache.get("/0");
+        cache.put("/new", response);
+        assertEquals(fitting, cache.size());
+        assertNotNull(cache.get("/0"));
+        assertNull(cache.get("/1"));
+        assertTrue(cache.getUsedBytes() <= cache.getCapacity());
+
+        cache.put("/huge", CachedResponse.of(randomJson(5000), 0, 1000));
+        assertNull(cache.get("/huge"));
+        assertEquals(fitting, cache.size());
+    }
+
+    @Test
+    public void testResponsesMoveBetweenTiers()
+    {
+        TieredResponseCache cache = new TieredResponseCache(2, new OffHeapResponseCache(64 * 1024, 256));
+        for (int i = 1; i <= 4; i++)
+        {
+            cache.put("/" + i, CachedResponse.of("{\"id\":\"" + i + "\"}", 0, 1000));
+        }
+        assertEquals(2, cache.getHotSize());
+        assertEquals(2, cache.getCold().size());
+
+        assertEquals("{\"id\":\"1\"}", cache.get("/1").getJson());
+        assertEquals(2, cache.getHotSize());
+        assertNull(cache.getCold().get("/1"));
+        assertNotNull(cache.getCold().get("/3"));
+        assertEquals(4, cache.size());
+        assertEquals("/1", cache.entries().keySet().toArray()[3]);
+
+        cache.remove("/2");
+        assertNull(cache.get("/2"));
+        assertEquals(3, cache.size());
+    }
+
+    /**
+     * Random content, which does not deflate much
+     */
+    private static String randomJson(int length)
+    {
+        Random random = new Random(length);
+        StringBuilder json = new StringBuilder("{\"message\":\"");
+        for (int i = 0; i < length; i++)
+        {
+            json.append((char) ('a' + random.nextInt(26)));
+        }
+        return json.append("\"}").toString();
+    }
+}
@@ -0,0 +1,128 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.checkpoint;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.ObjectOutputStream;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class ConnectionCheckpointsTest
+{
+    private static final String PAGE = "{\"data\":["
+        + "{\"id\":\"1\",\"created_time\":\"2012-05-01T10:00:00+0000\"},"
+        + "{\"id\":\"2\",\"created_time\":\"2012-05-02T10:00:00+0000\"}],"
+        + "\"paging\":{\"next\":\"https://graph.facebook.com/123/feed?access_token=abc&limit=25&until=1335866400"
+        + "&__paging_token=10_20\"}}";
+
+    private static final String LAST_PAGE = "{\"data\":["
+        + "{\"id\":\"0\",\"created_time\":\"2012-04-30T10:00:00+0000\"}],"
+        + "\"paging\":{}}";
+
+    @Test
+    public void testOnlyConnectionReadsAreCheckpointed()
+    {
+        ConnectionCheckpoints checkpoints = new ConnectionCheckpoints(new FileCheckpointStore(temporaryFile()));
+        assertEquals("checkpoint:/123/feed",
+            checkpoints.key(URI.create("https://graph.facebook.com/123/feed?since=last+week&until=yesterday")));
+        assertEquals(ConnectionCheckpoints.key("abc", "123", "feed"),
+            checkpoints.key(URI.create("https://graph.facebook.com/123/feed?access_token=abc&since=last+week")));
+        assertFalse(checkpoints.key(URI.create("https://graph.facebook.com/123/feed?access_token=abc&since=last+week"))
+            .equals(checkpoints.key(URI.create("https://graph.facebook.com/123/feed?access_token=def&since=last+week"))));
+        assertNull(checkpoints.key(URI.create("https://graph.facebook.com/123?metadata=0")));
+        assertNull(checkpoints.key(URI.create("https://graph.facebook.com/123/picture?type=small")));
+    }
+
+    @Test
+    public void testResumeFromCheckpointAfterRestart()
+    {
+        File file = temporaryFile();
+        URI uri = URI.create("https://graph.facebook.com/123/feed?access_token=abc&since=last+week");
+        ConnectionCheckpoints checkpoints = new ConnectionCheckpoints(new FileCheckpointStore(file));
+        String key = checkpoints.key(uri);
+        assertSame(uri, checkpoints.resume(uri, key));
+        checkpoints.record(key, PAGE);
+
+        checkpoints = new ConnectionCheckpoints(new FileCheckpointStore(file));
+        Checkpoint checkpoint = checkpoints.get(key);
+        assertEquals(0L, checkpoint.getTimestamp());
+        assertEquals("until=1335866400&__paging_token=10_20", checkpoint.getCursor());
+        URI resumed = checkpoints.resume(URI.create("https://graph.facebook.com/123/feed?access_token=def&since=last+week"), key);
+        assertTrue(resumed.getQuery().contains("access_token=def"));
+        assertTrue(resumed.getRawQuery().contains("since=last+week"));
+        assertTrue(resumed.getQuery().contains("until=1335866400"));
+        assertTrue(resumed.getQuery().contains("__paging_token=10_20"));
+        assertFalse(resumed.getQuery().contains("access_token=abc"));
+        checkpoints.record(key, LAST_PAGE);
+
+        checkpoints = new ConnectionCheckpoints(new FileCheckpointStore(file));
+        checkpoint = checkpoints.get(key);
+        assertEquals(1335952800L, checkpoint.getTimestamp());
+        assertNull(checkpoint.getCursor());
+        resumed = checkpoints.resume(uri, key);
+        assertTrue(resumed.getQuery().contains("since=1335952801"));
+        assertTrue(resumed.getQuery().contains("access_token=abc"));
+    }
+
+    @Test
+    public void testCheckpointOnlyAdvancesOnceEveryPageIsRead()
+    {
+        ConnectionCheckpoints checkpoints = new ConnectionCheckpoints(new FileCheckpointStore(temporaryFile()));
+        checkpoints.record("checkpoint:/123/feed", PAGE);
+        checkpoints.record("checkpoint:/123/feed", LAST_PAGE);
+        checkpoints.record("checkpoint:/123/feed", PAGE);
+        Checkpoint checkpoint = checkpoints.get("checkpoint:/123/feed");
+        assertEquals(1335952800L, checkpoint.getTimestamp());
+        assertNotNull(checkpoint.getCursor());
+    }
+
+    @Test
+    public void testEmptyPageKeepsCheckpoint()
+    {
+        ConnectionCheckpoints checkpoints = new ConnectionCheckpoints(new FileCheckpointStore(temporaryFile()));
+        checkpoints.record("checkpoint:/123/feed", PAGE);
+        checkpoints.record("checkpoint:/123/feed", "{\"data\":[]}");
+        assertEquals(1335952800L, checkpoints.get("checkpoint:/123/feed").getTimestamp());
+    }
+
+    @Test
+    public void testCursorNeverHoldsTheAccessToken()
+    {
+        assertEquals("after=MTA=", ConnectionCheckpoints.cursor(
+            URI.create("https://graph.facebook.com/123/comments?access_token=abc&limit=25&after=MTA=")));
+        assertNull(ConnectionCheckpoints.cursor(URI.create("https://graph.facebook.com/123/comments?access_token=abc")));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testFileOnlyReadsCheckpointClasses() throws Exception
+    {
+        File file = temporaryFile();
+        ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(file));
+        Map<String, Object> values = new HashMap<String, Object>();
+        values.put("checkpoint:/123/feed", new File("/"));
+        out.writeObject(values);
+        out.close();
+        new FileCheckpointStore(file).retrieve("checkpoint:/123/feed");
+    }
+
+    private static File temporaryFile()
+    {
+        File file = new File(System.getProperty("java.io.tmpdir"), "checkpoints-" + System.nanoTime() + ".ser");
+        file.deleteOnExit();
+        return file;
+    }
+}
@@ -0,0 +1,190 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.codec;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.mule.module.facebook.types.Member;
+import org.mule.module.facebook.types.Thread;
+
+import com.restfb.DefaultJsonMapper;
+import com.restfb.types.Insight;
+import com.restfb.types.Post;
+
+public class BinaryCodecTest
+{
+    private static final String POSTS = "{\"data\":["
+                                        + "{\"id\":\"1_1\",\"message\":\"hello\",\"from\":{\"id\":\"100000604250905\",\"name\":\"John\"},"
+                                        + "\"likes\":{\"count\":3,\"data\":[{\"id\":\"42\",\"name\":\"Jane\"}]},"
+                                        + "\"created_time\":\"2012-05-01T10:00:00+0000\"},"
+                                        + "{\"id\":\"1_2\",\"message\":\"world\",\"from\":{\"id\":\"100000604250905\",\"name\":\"John\"},"
+                                        + "\"created_time\":\"2012-05-02T10:00:00+0000\"}]}";
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRestfbTypes() throws Exception
+    {
+        List<Post> posts = new DefaultJsonMapper().toJavaList(POSTS, Post.class);
+        byte[] encoded = BinaryCodec.encode(posts);
+        List<Post> decoded = (List<Post>) BinaryCodec.decode(encoded);
+
+        assertEquals(2, decoded.size());
+        assertEquals("hello", decoded.get(0).getMessage());
+        assertEquals("John", decoded.get(1).getFrom().getName());
+        assertEquals(Long.valueOf(3), decoded.get(0).getLikes().getCount());
+        assertEquals("Jane", decoded.get(0).getLikes().getData().get(0).getName());
+        assertEquals(posts.get(0).getCreatedTime(), decoded.get(0).getCreatedTime());
+
+        ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(serialized);
+        out.writeObject(new ArrayList<Post>(posts));
+        out.close();
+        assertTrue(encoded.length * 3 < serialized.size());
+    }
+
+    @Test
+    public void testConnectorTypes()
+    {
+        Thread thread = new DefaultJsonMapper().toJavaObject(
+            "{\"id\":\"1\",\"unread\":2,\"to\":{\"data\":[{\"id\":\"42\",\"name\":\"Jane\"}]}}", Thread.class);
+        Thread decoded = (Thread) BinaryCodec.decode(BinaryCodec.encode(thread));
+        assertEquals(Integer.valueOf(2), decoded.getUnread());
+        assertEquals("Jane", decoded.getTo().getData().get(0).getName());
+
+        Member member = new DefaultJsonMapper().toJavaObject("{\"id\":\"1\",\"name\":\"John\"}", Member.class);
+        member.setAdministrator(true);
+        assertTrue(((Member) BinaryCodec.decode(BinaryCodec.encode(member))).getAdministrator());
+    }
+
+    @Test
+    public void testInsightValues()
+    {
+        Insight insight = new DefaultJsonMapper().toJavaObject("{\"id\":\"1\",\"name\":\"users\",\"values\":"
+                                                               + "[{\"value\":12,\"end_time\":\"2012-05-01T07:00:00+0000\"}]}",
+            Insight.class);
+        Insight decoded = (Insight) BinaryCodec.decode(BinaryCodec.encode(insight));
+        assertEquals(12, decoded.getValues().get(0).getInt("value"));
+    }
+
+    @Test
+    public void testScalars()
+    {
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put("int", -5);
+        map.put("long", Long.MIN_VALUE);
+        map.put("double", 2.5);
+        map.put("date", new Date(1335866400000L));
+        map.put("null", null);
+        map.put("bytes", new byte[]{1, 2});
+        map.put("serializable", new StringBuilder("x").toString());
+        @SuppressWarnings("unchecked")
+        Map<String, Object> decoded = (Map<String, Object>) BinaryCodec.decode(BinaryCodec.encode(map));
+        assertEquals(-5, decoded.get("int"));
+        assertEquals(Long.MIN_VALUE, decoded.get("long"));
+        assertEquals(2.5, decoded.get("double"));
+        assertEquals(new Date(1335866400000L), decoded.get("date"));
+        assertTrue(decoded.containsKey("null"));
+        assertArrayEquals(new byte[]{1, 2}, (byte[]) decoded.get("bytes"));
+    }
+
+    @Test
+    public void testOnlyKnownTypesAreDecoded() throws Exception
+    {
+        Member member = new DefaultJsonMapper().toJavaObject("{\"id\":\"1\",\"name\":\"John\"}", Member.class);
+        byte[] encoded = BinaryCodec.encode(member);
+        assertRejected(replace(encoded, "types.Member", "typez.Member"), "Can not decode");
+
+        encoded = BinaryCodec.encode(member);
+        int fingerprint = indexOf(encoded, Member.class.getName().getBytes("UTF-8")) + Member.class.getName().length();
+        encoded[fingerprint] ^= 1;
+        assertRejected(encoded, "schema");
+
+        assertRejected(BinaryCodec.encode(new SimpleDateFormat("yyyy")), "Can not decode");
+    }
+
+    @Test
+    public void testForgedLengthsAreRejected()
+    {
+        // a list, a map and a byte array claiming 2^31 - 1 elements
+        assertRejected(new byte[]{2, 10, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07}, "exceeds");
+        assertRejected(new byte[]{2, 18, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07}, "exceeds");
+        assertRejected(new byte[]{2, 20, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07}, "exceeds");
+    }
+
+    @Test
+    public void testConnectorTypesAreSerializedAsTheirEncoding() throws Exception
+    {
+        Thread thread = new DefaultJsonMapper().toJavaObject(
+            "{\"id\":\"1\",\"unread\":2,\"to\":{\"data\":[{\"id\":\"42\",\"name\":\"Jane\"}]}}", Thread.class);
+        ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(serialized);
+        out.writeObject(thread);
+        out.close();
+        assertTrue(new String(serialized.toByteArray(), "ISO-8859-1").contains(EncodedObject.class.getName()));
+        Thread read = (Thread) new ObjectInputStream(new ByteArrayInputStream(serialized.toByteArray())).readObject();
+        assertEquals(Integer.valueOf(2), read.getUnread());
+        assertEquals("Jane", read.getTo().getData().get(0).getName());
+    }
+
+    private static void assertRejected(byte[] encoded, String message)
+    {
+        try
+        {
+            BinaryCodec.decode(encoded);
+            fail();
+        }
+        catch (RuntimeException e)
+        {
+            Throwable cause = e;
+            while (!(cause instanceof IllegalArgumentException) && cause.getCause() != null)
+            {
+                cause = cause.getCause();
+            }
+            assertTrue(cause.getMessage(), cause.getMessage().contains(message));
+        }
+    }
+
+    private static byte[] replace(byte[] encoded, String from, String to) throws Exception
+    {
+        byte[] replaced = encoded.clone();
+        System.arraycopy(to.getBytes("UTF-8"), 0, replaced, indexOf(encoded, from.getBytes("UTF-8")), to.length());
+        return replaced;
+    }
+
+    private static int indexOf(byte[] bytes, byte[] wanted)
+    {
+        for (int i = 0; i <= bytes.length - wanted.length; i++)
+        {
+            int j = 0;
+            while (j < wanted.length && bytes[i + j] == wanted[j])
+            {
+                j++;
+            }
+            if (j == wanted.length)
+            {
+                return i;
+            }
+        }
+        throw new AssertionError();
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.dedup;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+
+import org.junit.Test;
+
+public class DeduplicatorTest
+{
+    @Test
+    public void testFalsePositiveRate()
+    {
+        BloomFilter filter = new BloomFilter(10000, 0.01);
+        for (int i = 0; i < 10000; i++)
+        {
+            filter.put("100000604250905_" + i);
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++)
+        {
+            assertTrue(filter.mightContain("100000604250905_" + i));
+        }
+        for (int i = 10000; i < 20000; i++)
+        {
+            if (filter.mightContain("100000604250905_" + i))
+            {
+                falsePositives++;
+            }
+        }
+        assertTrue("false positives: " + falsePositives, falsePositives < 200);
+    }
+
+    @Test
+    public void testScalableFilterGrows()
+    {
+        ScalableBloomFilter filter = new ScalableBloomFilter(100, 0.01);
+        for (int i = 0; i < 5000; i++)
+        {
+            filter.put("id" + i);
+        }
+        for (int i = 0; i < 5000; i++)
+        {
+            assertTrue(filter.mightContain("id" + i));
+        }
+        assertTrue(filter.getCount() > 4900);
+    }
+
+    @Test
+    public void testDuplicatesAreDetected()
+    {
+        Deduplicator deduplicator = new Deduplicator(1000, 0.001);
+        assertTrue(deduplicator.firstSeen("1@2012-07-17T12:54:35+0000"));
+        assertFalse(deduplicator.firstSeen("1@2012-07-17T12:54:35+0000"));
+        assertTrue(deduplicator.firstSeen("1@2012-07-18T12:54:35+0000"));
+        assertEquals(1, deduplicator.getDuplicates());
+    }
+
+    @Test
+    public void testOldestGenerationIsForgotten()
+    {
+        Deduplicator deduplicator = new Deduplicator(1000, 0.001);
+        deduplicator.firstSeen("first");
+        for (int i = 0; i < 1999; i++)
+        {
+            deduplicator.firstSeen("id" + i);
+        }
+        assertFalse(deduplicator.firstSeen("id1998"));
+        assertTrue(deduplicator.firstSeen("first"));
+    }
+
+    @Test
+    public void testSaveAndLoad() throws Exception
+    {
+        File file = File.createTempFile("facebook-dedup", ".bin");
+        try
+        {
+            Deduplicator deduplicator = new Deduplicator(1000, 0.001);
+            deduplicator.firstSeen("1");
+            deduplicator.save(file);
+
+            Deduplicator restored = new Deduplicator(1000, 0.001);
+            restored.load(file);
+            assertFalse(restored.firstSeen("1"));
+            assertTrue(restored.firstSeen("2"));
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+}
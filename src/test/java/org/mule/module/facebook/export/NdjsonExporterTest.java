@@ -0,0 +1,65 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.export;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Test;
+
+public class NdjsonExporterTest
+{
+    @Test
+    public void testPagesAreWrittenOneItemPerLine() throws Exception
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        NdjsonExporter exporter = new NdjsonExporter(out, false);
+        assertEquals("https://graph.facebook.com/1/posts?until=2", exporter.writePage(page(
+            "{\"data\":[{\"id\":\"1\",\"message\":\"a\\nb\"},{\"id\":\"2\",\"likes\":{\"count\":3}}],"
+                            + "\"paging\":{\"next\":\"https://graph.facebook.com/1/posts?until=2\"}}")));
+        assertNull(exporter.writePage(page("{\"paging\":{\"previous\":\"x\"},\"data\":[{\"id\":\"3\"}]}")));
+        assertNull(exporter.writePage(page("{\"data\":[],\"paging\":{\"next\":\"https://graph.facebook.com/1/posts?until=1\"}}")));
+        ExportStatistics statistics = exporter.finish();
+
+        assertEquals("{\"id\":\"1\",\"message\":\"a\\nb\"}\n{\"id\":\"2\",\"likes\":{\"count\":3}}\n{\"id\":\"3\"}\n",
+            out.toString("UTF-8"));
+        assertEquals(3, statistics.getItems());
+        assertEquals(3, statistics.getPages());
+        assertEquals(out.size(), statistics.getBytes());
+    }
+
+    @Test
+    public void testGzip() throws Exception
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        NdjsonExporter exporter = new NdjsonExporter(out, true);
+        exporter.writePage(page("{\"data\":[{\"id\":\"1\"},{\"id\":\"2\"}]}"));
+        ExportStatistics statistics = exporter.close();
+        assertEquals(out.size(), statistics.getBytes());
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(
+            new ByteArrayInputStream(out.toByteArray())), "UTF-8"));
+        assertEquals("{\"id\":\"1\"}", reader.readLine());
+        assertEquals("{\"id\":\"2\"}", reader.readLine());
+        assertNull(reader.readLine());
+    }
+
+    private static InputStream page(String json) throws Exception
+    {
+        return new ByteArrayInputStream(json.getBytes("UTF-8"));
+    }
+}
@@ -0,0 +1,135 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.graph;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class FriendGraphCrawlerTest
+{
+    private static final Map<String, List<String>> FRIENDS = new HashMap<String, List<String>>();
+
+    static
+    {
+        FRIENDS.put("1", Arrays.asList("2", "3"));
+        FRIENDS.put("2", Arrays.asList("1", "4", "4"));
+        FRIENDS.put("3", Arrays.asList("1", "john.doe"));
+        FRIENDS.put("4", Arrays.asList("2", "5"));
+    }
+
+    @Test
+    public void testCrawl() throws Exception
+    {
+        final AtomicInteger reads = new AtomicInteger();
+        FriendSource source = new FriendSource()
+        {
+            public List<String> getFriends(String user, String accessToken)
+            {
+                assertEquals("token", accessToken);
+                reads.incrementAndGet();
+                List<String> friends = FRIENDS.get(user);
+                return friends == null ? Collections.<String> emptyList() : friends;
+            }
+        };
+        Map<String, String> tokens = new HashMap<String, String>();
+        for (String user : FRIENDS.keySet())
+        {
+            tokens.put(user, "token");
+        }
+        CsrGraph graph = new FriendGraphCrawler(source, 2, 1, 100).crawl(Arrays.asList("1"), tokens, Long.MAX_VALUE);
+
+        assertEquals(3, reads.get());
+        assertEquals(Arrays.asList("2", "3"), graph.getNeighbours("1"));
+        assertEquals(Arrays.asList("1", "4"), graph.getNeighbours("2"));
+        assertEquals(2, graph.getDegree("3"));
+        assertTrue(graph.getNeighbours("4").isEmpty());
+        assertEquals(5, graph.getNodeCount());
+        assertEquals(6, graph.getEdgeCount());
+
+        File file = File.createTempFile("friends", ".csr");
+        file.deleteOnExit();
+        graph.writeTo(file);
+        CsrGraph read = CsrGraph.readFrom(file);
+        assertEquals(graph.getNodeCount(), read.getNodeCount());
+        assertEquals(graph.getEdgeCount(), read.getEdgeCount());
+        assertEquals(Arrays.asList("1", "john.doe"), read.getNeighbours("3"));
+    }
+
+    @Test
+    public void testUsersWithoutTokenAreNotCrawled() throws Exception
+    {
+        FriendSource source = new FriendSource()
+        {
+            public List<String> getFriends(String user, String accessToken)
+            {
+                assertEquals("1", user);
+                return FRIENDS.get(user);
+            }
+        };
+        Map<String, String> tokens = new HashMap<String, String>();
+        tokens.put("1", "token1");
+        CsrGraph graph = new FriendGraphCrawler(source, 2, 3, 100).crawl(Arrays.asList("1"), tokens,
+            Long.MAX_VALUE);
+        assertEquals(2, graph.getEdgeCount());
+    }
+
+    @Test
+    public void testCrawlStopsAtTheDeadline() throws Exception
+    {
+        FriendSource source = new FriendSource()
+        {
+            public List<String> getFriends(String user, String accessToken)
+            {
+                try
+                {
+                    Thread.sleep("1".equals(user) ? 0 : 5000);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                return FRIENDS.get(user);
+            }
+        };
+        Map<String, String> tokens = new HashMap<String, String>();
+        tokens.put("1", "token1");
+        tokens.put("2", "token2");
+        long started = System.currentTimeMillis();
+        CsrGraph graph = new FriendGraphCrawler(source, 2, 3, 100).crawl(Arrays.asList("1"), tokens, started + 200);
+        assertTrue(System.currentTimeMillis() - started < 2000);
+        assertEquals(2, graph.getEdgeCount());
+    }
+
+    @Test
+    public void testIdIndex()
+    {
+        IdIndex ids = new IdIndex();
+        for (int i = 0; i < 1000; i++)
+        {
+            assertEquals(i, ids.intern(String.valueOf(100000604250905L + i)));
+        }
+        assertEquals(1000, ids.intern("john.doe"));
+        assertEquals(1001, ids.intern("0123"));
+        assertEquals(500, ids.intern("100000604251405"));
+        assertEquals("0123", ids.get(1001));
+        assertEquals("100000604251405", ids.get(500));
+        assertEquals(-1, ids.indexOf("42"));
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.http;
+
+import static org.junit.Assert.*;
+
+import java.net.URI;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientHandler;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+
+public class ConnectionWarmerTest
+{
+    @Test
+    public void pooledTransportIsCappedByPoolSize()
+    {
+        assertEquals(20, ConnectionWarmer.usableConnections(HttpTransport.POOLED, 20, 50));
+        assertEquals(3, ConnectionWarmer.usableConnections(HttpTransport.POOLED, 20, 3));
+    }
+
+    @Test
+    public void unpooledTransportIsNotWarmedUp()
+    {
+        assertEquals(0, ConnectionWarmer.usableConnections(HttpTransport.URL_CONNECTION, 20, 50));
+        assertEquals(0, ConnectionWarmer.usableConnections(null, 20, 2));
+    }
+
+    @Test
+    public void warmUpDoesNotBlockTheCaller() throws Exception
+    {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch opened = new CountDownLatch(1);
+        Client client = new Client(new ClientHandler()
+        {
+            public ClientResponse handle(ClientRequest request)
+            {
+                try
+                {
+                    release.await();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                opened.countDown();
+                throw new IllegalStateException("offline");
+            }
+        });
+        new ConnectionWarmer(client, URI.create("http://localhost/")).warmUpInBackground(1);
+        assertEquals(1, opened.getCount());
+        release.countDown();
+        assertTrue(opened.await(5, TimeUnit.SECONDS));
+    }
+}
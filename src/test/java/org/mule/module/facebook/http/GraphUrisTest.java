@@ -0,0 +1,36 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.http;
+
+import static org.junit.Assert.*;
+
+import java.net.URI;
+
+import org.junit.Test;
+
+public class GraphUrisTest
+{
+    @Test
+    public void testObjectId()
+    {
+        assertEquals("1", GraphUris.objectId(URI.create("https://graph.facebook.com/1/picture")));
+        assertEquals("me", GraphUris.objectId(URI.create("https://graph.facebook.com/me?access_token=abc")));
+    }
+
+    @Test
+    public void testTokenHash()
+    {
+        assertEquals(GraphUris.hash("abc"), GraphUris.tokenHash(URI.create("https://graph.facebook.com/me?metadata=0&access_token=abc")));
+        assertEquals(16, GraphUris.hash("abc").length());
+        assertFalse(GraphUris.hash("abc").equals(GraphUris.hash("def")));
+        assertEquals("", GraphUris.tokenHash(URI.create("https://graph.facebook.com/1/comments?limit=3")));
+    }
+}
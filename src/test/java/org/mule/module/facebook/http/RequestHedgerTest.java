@@ -0,0 +1,125 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.http;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientHandler;
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.UniformInterfaceException;
+import com.sun.jersey.core.header.InBoundHeaders;
+
+public class RequestHedgerTest
+{
+    private RequestHedger hedger;
+    private Client client;
+    private StubHandler handler;
+
+    @Before
+    public void setup()
+    {
+        handler = new StubHandler();
+        client = new Client(handler);
+        hedger = new RequestHedger(95, 10, 100);
+    }
+
+    @After
+    public void tearDown()
+    {
+        hedger.dispose();
+    }
+
+    @Test
+    public void testSlowRequestIsHedged() throws Exception
+    {
+        for (int i = 0; i < 20; i++)
+        {
+            assertEquals("response 1", hedger.get(client.resource("https://graph.facebook.com/me")));
+            handler.calls.set(0);
+        }
+        assertEquals(0, hedger.getHedges());
+
+        handler.slowCall = 1;
+        assertEquals("response 2", hedger.get(client.resource("https://graph.facebook.com/me")));
+        assertEquals(1, hedger.getHedges());
+        assertEquals(1, hedger.getHedgeWins());
+    }
+
+    @Test
+    public void testHedgesAreCappedByBudget() throws Exception
+    {
+        hedger.dispose();
+        hedger = new RequestHedger(95, 1, 0);
+        for (int i = 0; i < 30; i++)
+        {
+            hedger.get(client.resource("https://graph.facebook.com/me"));
+        }
+        assertEquals(30, hedger.getRequests());
+        assertEquals(0, hedger.getHedges());
+    }
+
+    @Test
+    public void testUnhedgeableRequestsRunOnCallingThread() throws Exception
+    {
+        for (int i = 0; i < 20; i++)
+        {
+            hedger.get(client.resource("https://graph.facebook.com/me"));
+            assertSame(Thread.currentThread(), handler.lastThread);
+        }
+        hedger.get(client.resource("https://graph.facebook.com/me"));
+        assertNotSame(Thread.currentThread(), handler.lastThread);
+    }
+
+    @Test(expected = UniformInterfaceException.class)
+    public void testFailuresArePropagated() throws Exception
+    {
+        handler.status = 500;
+        hedger.get(client.resource("https://graph.facebook.com/me"));
+    }
+
+    private class StubHandler implements ClientHandler
+    {
+        private final AtomicInteger calls = new AtomicInteger();
+        private volatile int slowCall;
+        private volatile int status = 200;
+        private volatile Thread lastThread;
+
+        public ClientResponse handle(ClientRequest request) throws ClientHandlerException
+        {
+            int call = calls.incrementAndGet();
+            lastThread = Thread.currentThread();
+            if (call == slowCall)
+            {
+                try
+                {
+                    Thread.sleep(5000);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            byte[] body = ("response " + call).getBytes();
+            return new ClientResponse(status, new InBoundHeaders(), new ByteArrayInputStream(body),
+                client.getMessageBodyWorkers());
+        }
+    }
+}
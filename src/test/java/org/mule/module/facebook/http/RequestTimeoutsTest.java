@@ -0,0 +1,136 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.http;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.mule.api.MuleMessage;
+import org.mule.api.transport.PropertyScope;
+
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientHandler;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.WebResource;
+import com.sun.jersey.api.client.config.ClientConfig;
+
+public class RequestTimeoutsTest
+{
+    private final Map<String, Object> properties = new HashMap<String, Object>();
+    private MuleMessage message;
+    private WebResource resource;
+    private AtomicInteger requests;
+
+    @Before
+    public void setup()
+    {
+        message = mock(MuleMessage.class);
+        when(message.getProperty(anyString(), eq(PropertyScope.INVOCATION))).thenAnswer(new Answer<Object>()
+        {
+            public Object answer(InvocationOnMock invocation)
+            {
+                return properties.get(invocation.getArguments()[0]);
+            }
+        });
+        doAnswer(new Answer<Object>()
+        {
+            public Object answer(InvocationOnMock invocation)
+            {
+                properties.put((String) invocation.getArguments()[0], invocation.getArguments()[1]);
+                return null;
+            }
+        }).when(message).setProperty(anyString(), any(), eq(PropertyScope.INVOCATION));
+
+        requests = new AtomicInteger();
+        resource = new Client(new ClientHandler()
+        {
+            public ClientResponse handle(ClientRequest request)
+            {
+                requests.incrementAndGet();
+                throw new IllegalStateException("no request should be sent");
+            }
+        }).resource("https://graph.facebook.com/me");
+    }
+
+    @Test
+    public void testDeadlineBoundsTimeouts()
+    {
+        properties.put(RequestTimeouts.DEADLINE_PROPERTY, System.currentTimeMillis() + 500);
+        timeouts(10000, 0, 0).apply(resource);
+        assertBetween(1, 500, (Integer) resource.getProperties().get(ClientConfig.PROPERTY_CONNECT_TIMEOUT));
+        assertBetween(1, 500, (Integer) resource.getProperties().get(ClientConfig.PROPERTY_READ_TIMEOUT));
+    }
+
+    @Test
+    public void testEventOverridesTimeouts()
+    {
+        properties.put(RequestTimeouts.CONNECT_TIMEOUT_PROPERTY, "250");
+        properties.put(RequestTimeouts.READ_TIMEOUT_PROPERTY, 750);
+        timeouts(1000, 2000, 0).apply(resource);
+        assertEquals(250, resource.getProperties().get(ClientConfig.PROPERTY_CONNECT_TIMEOUT));
+        assertEquals(750, resource.getProperties().get(ClientConfig.PROPERTY_READ_TIMEOUT));
+    }
+
+    @Test
+    public void testRequestTimeoutStartsTheDeadlineOfTheFirstRequest()
+    {
+        RequestTimeouts timeouts = timeouts(0, 0, 1000);
+        assertEquals(1000, timeouts.remaining());
+        assertNull(properties.get(RequestTimeouts.DEADLINE_PROPERTY));
+
+        timeouts.apply(resource);
+        assertNotNull(properties.get(RequestTimeouts.DEADLINE_PROPERTY));
+        assertBetween(1, 1000, (Integer) resource.getProperties().get(ClientConfig.PROPERTY_READ_TIMEOUT));
+    }
+
+    @Test
+    public void testExceededDeadlineFailsWithoutRequest()
+    {
+        properties.put(RequestTimeouts.DEADLINE_PROPERTY, System.currentTimeMillis() - 1);
+        try
+        {
+            timeouts(0, 0, 0).apply(resource);
+            resource.get(String.class);
+            fail();
+        }
+        catch (DeadlineExceededException e)
+        {
+            assertEquals(0, requests.get());
+        }
+    }
+
+    private RequestTimeouts timeouts(int connectTimeout, int readTimeout, long requestTimeout)
+    {
+        return new RequestTimeouts(connectTimeout, readTimeout, requestTimeout)
+        {
+            @Override
+            protected MuleMessage currentMessage()
+            {
+                return message;
+            }
+        };
+    }
+
+    private static void assertBetween(int min, int max, int value)
+    {
+        assertTrue(value + " not in [" + min + ", " + max + "]", value >= min && value <= max);
+    }
+}
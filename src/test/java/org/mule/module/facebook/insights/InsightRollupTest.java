@@ -0,0 +1,109 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.insights;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class InsightRollupTest
+{
+    // 2012-05-01T07:00:00+0000, a Tuesday
+    private static final long MAY_FIRST = 1335855600L;
+    private static final long DAY = 86400L;
+
+    @Test
+    public void testPeriods()
+    {
+        assertEquals(1335830400L, RollupPeriod.DAY.start(MAY_FIRST));
+        assertEquals(1335744000L, RollupPeriod.WEEK.start(MAY_FIRST));
+        assertEquals(1335830400L, RollupPeriod.MONTH.start(MAY_FIRST));
+        assertEquals(1338508800L, RollupPeriod.MONTH.next(1335830400L));
+        assertEquals(1335744000L + 7 * DAY, RollupPeriod.WEEK.next(1335744000L));
+    }
+
+    @Test
+    public void testWeeklyRollup()
+    {
+        InsightRollup rollup = new InsightRollup(RollupPeriod.WEEK, 4, 100);
+        for (int i = 0; i < 14; i++)
+        {
+            rollup.value("application_active_users/day", MAY_FIRST + i * DAY, i);
+        }
+        // fetched again with a new value
+        rollup.value("application_active_users/day", MAY_FIRST + 13 * DAY, 100);
+
+        List<RollupBucket> buckets = rollup.getBuckets();
+        assertEquals(3, buckets.size());
+        RollupBucket first = buckets.get(0);
+        assertEquals(1335744000000L, first.getStart().getTime());
+        // the value ending on Tuesday covers Monday: 0 to 5
+        assertEquals(6, first.getCount());
+        assertEquals(15, first.getSum(), 0);
+        assertEquals(2.5, first.getAverage(), 0);
+        assertEquals(0, first.getMin(), 0);
+        assertEquals(2, first.getMedian(), 0);
+        assertEquals(5, first.getMax(), 0);
+        RollupBucket last = buckets.get(2);
+        assertEquals(1, last.getCount());
+        assertEquals(100, last.getSum(), 0);
+    }
+
+    @Test
+    public void testOldPeriodsAreForgotten()
+    {
+        InsightRollup rollup = new InsightRollup(RollupPeriod.DAY, 3, 2);
+        for (int i = 0; i < 10; i++)
+        {
+            rollup.value("m", MAY_FIRST + i * DAY, 1);
+        }
+        rollup.value("m", MAY_FIRST, 1);
+        List<RollupBucket> buckets = rollup.getBuckets();
+        assertEquals(3, buckets.size());
+        assertEquals(1, buckets.get(0).getCount());
+        assertTrue(Double.isNaN(buckets.get(0).getMedian()));
+        assertEquals(1, buckets.get(2).getMedian(), 0);
+    }
+
+    @Test
+    public void testValuesFetchedAgainAreNotCountedTwice()
+    {
+        InsightRollup rollup = new InsightRollup(RollupPeriod.WEEK, 4, 3);
+        for (int i = 0; i < 3; i++)
+        {
+            rollup.value("m", MAY_FIRST + i * DAY, 1);
+        }
+        rollup.value("m", MAY_FIRST, 1);
+        rollup.value("m", MAY_FIRST + DAY, 1);
+        rollup.value("m", MAY_FIRST + 2 * DAY, 5);
+        List<RollupBucket> buckets = rollup.getBuckets();
+        assertEquals(1, buckets.size());
+        assertEquals(3, buckets.get(0).getCount());
+        assertEquals(7, buckets.get(0).getSum(), 0);
+    }
+
+    @Test
+    public void testValuesArrivingOutOfOrderAreCounted()
+    {
+        InsightRollup rollup = new InsightRollup(RollupPeriod.WEEK, 4, 2);
+        rollup.value("m", MAY_FIRST + 2 * DAY, 3);
+        rollup.value("m", MAY_FIRST, 1);
+        rollup.value("m", MAY_FIRST + DAY, 2);
+        rollup.value("m", MAY_FIRST, 4);
+        List<RollupBucket> buckets = rollup.getBuckets();
+        assertEquals(1, buckets.size());
+        assertEquals(3, buckets.get(0).getCount());
+        assertEquals(9, buckets.get(0).getSum(), 0);
+        assertEquals(4, buckets.get(0).getMax(), 0);
+    }
+}
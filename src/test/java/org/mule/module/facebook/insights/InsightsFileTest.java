@@ -0,0 +1,70 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.insights;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.mule.module.facebook.paging.ConnectionPage;
+
+public class InsightsFileTest
+{
+    private static final String INSIGHTS = "{\"data\":["
+        + "{\"id\":\"1/insights/application_active_users/day\",\"name\":\"application_active_users\",\"period\":\"day\","
+        + "\"values\":[{\"value\":12,\"end_time\":\"2012-05-01T07:00:00+0000\"},{\"value\":15.5,\"end_time\":\"2012-05-02T07:00:00+0000\"}]},"
+        + "{\"id\":\"1/insights/application_active_users_locale/day\",\"name\":\"application_active_users_locale\",\"period\":\"day\","
+        + "\"values\":[{\"value\":{\"en_US\":3,\"fr_FR\":1},\"end_time\":\"2012-05-01T07:00:00+0000\"}]}]}";
+
+    @Test
+    public void testWriteAndRead() throws Exception
+    {
+        File file = File.createTempFile("insights", ".fbi");
+        file.deleteOnExit();
+        InsightsFileWriter writer = new InsightsFileWriter(new FileOutputStream(file), 1);
+        InsightValues.visit(ConnectionPage.parse(INSIGHTS).getItems(), writer);
+        writer.close();
+        assertEquals(4, writer.getCount());
+        assertEquals(file.length(), writer.getBytes());
+
+        InsightsFileReader reader = new InsightsFileReader(file);
+        assertEquals(Arrays.asList("application_active_users/day", "application_active_users_locale/day/en_US",
+            "application_active_users_locale/day/fr_FR"), reader.getMetrics());
+        InsightSeries series = reader.read("application_active_users/day");
+        assertArrayEquals(new long[]{1335855600L, 1335942000L}, series.getTimes());
+        assertArrayEquals(new double[]{12, 15.5}, series.getValues(), 0);
+        assertEquals(1, reader.read("application_active_users_locale/day/fr_FR").size());
+        assertEquals(0, reader.read("unknown").size());
+    }
+
+    @Test
+    public void testManyBlocks() throws Exception
+    {
+        File file = File.createTempFile("insights", ".fbi");
+        file.deleteOnExit();
+        InsightsFileWriter writer = new InsightsFileWriter(new FileOutputStream(file), 100);
+        for (int i = 0; i < 1050; i++)
+        {
+            writer.value("a/day", 1335855600L + i * 86400L, i);
+            writer.value("b/week", 1335855600L - i, -i * 0.5);
+        }
+        writer.close();
+
+        InsightSeries series = new InsightsFileReader(file).read("b/week");
+        assertEquals(1050, series.size());
+        assertEquals(1335855600L - 1049, series.getTimes()[1049]);
+        assertEquals(-524.5, series.getValues()[1049], 0);
+        assertTrue(file.length() < 1050 * 2 * 16);
+    }
+}
@@ -0,0 +1,42 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.intern;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.restfb.DefaultJsonMapper;
+import com.restfb.types.Post;
+
+public class IdInternerTest
+{
+    @Test
+    public void testIdsOfDecodedObjectsAreShared()
+    {
+        String json = "{\"data\":["
+                      + "{\"id\":\"1_1\",\"from\":{\"id\":\"100000604250905\",\"name\":\"John\"},"
+                      + "\"to\":{\"data\":[{\"id\":\"42\",\"name\":\"Jane\"}]}},"
+                      + "{\"id\":\"1_2\",\"from\":{\"id\":\"100000604250905\",\"name\":\"John\"},"
+                      + "\"to\":{\"data\":[{\"id\":\"42\",\"name\":\"Jane\"},{\"id\":\"page.name\",\"name\":\"Page\"}]}}]}";
+        List<Post> posts = new DefaultJsonMapper().toJavaList(json, Post.class);
+        assertNotSame(posts.get(0).getFrom().getId(), posts.get(1).getFrom().getId());
+
+        IdInterner interner = new IdInterner();
+        interner.internAll(posts);
+        assertSame(posts.get(0).getFrom().getId(), posts.get(1).getFrom().getId());
+        assertSame(posts.get(0).getTo().get(0).getId(), posts.get(1).getTo().get(0).getId());
+        assertEquals("page.name", posts.get(1).getTo().get(1).getId());
+        assertEquals(5, interner.size());
+    }
+}
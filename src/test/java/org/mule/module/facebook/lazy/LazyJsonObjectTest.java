@@ -0,0 +1,110 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.lazy;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.restfb.types.Post;
+
+public class LazyJsonObjectTest
+{
+    private static final String PAGE = "{ \"data\" : [ {\"id\":\"1_1\", \"message\":\"a \\\"quoted\\\" {brace]\","
+                                       + " \"from\":{\"id\":\"1\",\"name\":\"J\\u00f6rg\"}, \"likes\":{\"count\":3},"
+                                       + " \"shares\":null, \"is\\u005fpublished\":true, \"created_time\":\"2012-05-01T10:00:00+0000\"},"
+                                       + " {\"id\":\"1_2\",\"actions\":[1, 2.5, \"x\"]} ],"
+                                       + " \"paging\":{\"next\":\"https://graph.facebook.com/1/posts?until=1\"} }";
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFieldsAreDecodedOnDemand()
+    {
+        LazyJsonObject page = LazyJsonObject.parse(PAGE);
+        List<Object> data = (List<Object>) page.get("data");
+        assertEquals(2, data.size());
+        LazyJsonObject post = (LazyJsonObject) data.get(0);
+        assertEquals("a \"quoted\" {brace]", post.get("message"));
+        assertEquals("Jörg", ((Map<String, Object>) post.get("from")).get("name"));
+        assertEquals(3, ((Map<String, Object>) post.get("likes")).get("count"));
+        assertNull(post.get("shares"));
+        assertTrue(post.containsKey("shares"));
+        assertEquals(Boolean.TRUE, post.get("is_published"));
+        assertNull(post.get("missing"));
+        assertEquals(7, post.size());
+
+        List<Object> actions = (List<Object>) ((Map<String, Object>) data.get(1)).get("actions");
+        assertEquals(2.5, actions.get(1));
+        assertEquals("x", actions.get(2));
+        assertEquals("https://graph.facebook.com/1/posts?until=1", ((Map<String, Object>) page.get("paging")).get("next"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testDecodeAsRestfbType()
+    {
+        LazyJsonObject post = (LazyJsonObject) ((List<Object>) LazyJsonObject.parse(PAGE).get("data")).get(0);
+        Post decoded = post.as(Post.class);
+        assertEquals("1_1", decoded.getId());
+        assertEquals("Jörg", decoded.getFrom().getName());
+        assertEquals(7, post.entrySet().size());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSerializedAsItsByteRange() throws Exception
+    {
+        LazyJsonObject post = (LazyJsonObject) ((List<Object>) LazyJsonObject.parse(PAGE).get("data")).get(0);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(post);
+        out.close();
+        assertTrue(bytes.size() < PAGE.length() + 200);
+
+        Object read = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+        assertEquals(post.toString(), read.toString());
+        assertEquals("a \"quoted\" {brace]", ((LazyJsonObject) read).get("message"));
+    }
+
+    @Test
+    public void testTruncatedJsonIsRejected()
+    {
+        String[] truncated = {"{\"data\":[{\"id\":\"1\"}", "{\"id\":\"1", "{\"id\":", "{\"id\":\"1\","};
+        for (String json : truncated)
+        {
+            try
+            {
+                LazyJsonObject.parse(json).size();
+                fail("Accepted " + json);
+            }
+            catch (IllegalArgumentException e)
+            {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testArraysOfObjectsAreToldApartWithoutDecoding() throws Exception
+    {
+        LazyJsonObject page = LazyJsonObject.parse("{\"data\":[{\"id\":\"1\"},{\"id\":\"2\"}],\"ids\":[{\"id\":\"1\"},2]}"
+            .getBytes("UTF-8"));
+        assertTrue(((LazyJsonArray) page.get("data")).containsOnlyObjects());
+        assertFalse(((LazyJsonArray) page.get("ids")).containsOnlyObjects());
+    }
+}
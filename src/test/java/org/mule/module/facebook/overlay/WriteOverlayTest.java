@@ -0,0 +1,117 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.overlay;
+
+import static org.junit.Assert.*;
+
+import java.net.URI;
+
+import org.codehaus.jackson.node.ObjectNode;
+import org.junit.Test;
+
+public class WriteOverlayTest
+{
+    private static final URI FEED = URI.create("https://graph.facebook.com/1/feed?since=last+week&access_token=abc");
+    private static final String EMPTY = "{\"data\":[]}";
+
+    @Test
+    public void testPublishedObjectsAreMergedUntilReturned()
+    {
+        WriteOverlay overlay = new WriteOverlay(1000);
+        assertEquals("1_2", WriteOverlay.id("{\"id\":\"1_2\"}"));
+        assertNull(WriteOverlay.id("true"));
+        overlay.add("abc", "1", "feed", message("1_2", "first"), false);
+        overlay.add("abc", "1", "feed", message("1_3", "second"), false);
+
+        String merged = overlay.merge(FEED, EMPTY);
+        assertTrue(merged.indexOf("\"1_3\"") < merged.indexOf("\"1_2\""));
+        assertTrue(merged.contains("\"message\":\"second\""));
+        assertTrue(merged.contains("\"created_time\""));
+
+        String partial = overlay.merge(FEED, "{\"data\":[{\"id\":\"1_2\",\"message\":\"first\"}],\"paging\":{}}");
+        assertTrue(partial.startsWith("{\"data\":[{\"id\":\"1_3\""));
+        assertTrue(partial.contains("\"paging\""));
+        assertEquals(1, overlay.size());
+
+        overlay.remove("1_3");
+        assertEquals(EMPTY, overlay.merge(FEED, EMPTY));
+    }
+
+    @Test
+    public void testObjectsAreOnlyMergedIntoTheirConnectionAndToken() throws Exception
+    {
+        WriteOverlay overlay = new WriteOverlay(30);
+        overlay.add("abc", "1_2", "comments", message("1_2_3", "comment"), false);
+
+        assertEquals(EMPTY, overlay.merge(FEED, EMPTY));
+        assertEquals(EMPTY, overlay.merge(URI.create("https://graph.facebook.com/1_2/comments?access_token=def"), EMPTY));
+        assertEquals(EMPTY, overlay.merge(URI.create("https://graph.facebook.com/1_2/likes?access_token=abc"), EMPTY));
+        assertEquals(EMPTY, overlay.merge(URI.create("https://graph.facebook.com/1_2/comments?limit=3"), EMPTY));
+        assertTrue(overlay.merge(URI.create("https://graph.facebook.com/1_2/comments?access_token=abc"), EMPTY).contains("1_2_3"));
+
+        Thread.sleep(40);
+        assertEquals(EMPTY, overlay.merge(URI.create("https://graph.facebook.com/1_2/comments?access_token=abc"), EMPTY));
+        assertEquals(0, overlay.size());
+    }
+
+    @Test
+    public void testObjectsAreOnlyMergedIntoTheFirstPageOfCurrentWindows()
+    {
+        WriteOverlay overlay = new WriteOverlay(1000);
+        overlay.add("abc", "1", "feed", message("1_2", "first"), false);
+        String base = "https://graph.facebook.com/1/feed?access_token=abc";
+        assertEquals(EMPTY, overlay.merge(URI.create(base + "&offset=2"), EMPTY));
+        assertEquals(EMPTY, overlay.merge(URI.create(base + "&until=yesterday"), EMPTY));
+        assertEquals(EMPTY, overlay.merge(URI.create(base + "&until=1335866400"), EMPTY));
+        assertEquals(EMPTY, overlay.merge(URI.create(base + "&until=2+days+ago"), EMPTY));
+        assertTrue(overlay.merge(URI.create(base + "&offset=0&until=now"), EMPTY).contains("1_2"));
+        assertTrue(overlay.merge(URI.create(base + "&until=%2B1+day"), EMPTY).contains("1_2"));
+    }
+
+    @Test
+    public void testObjectsVisibleToAllAreMergedIntoReadsWithAnyToken()
+    {
+        WriteOverlay overlay = new WriteOverlay(1000);
+        overlay.add("abc", "1_2", "comments", message("1_2_3", "comment"), true);
+
+        assertTrue(overlay.merge(URI.create("https://graph.facebook.com/1_2/comments?limit=3"), EMPTY).contains("1_2_3"));
+        assertTrue(overlay.merge(URI.create("https://graph.facebook.com/1_2/comments?access_token=def"), EMPTY).contains("1_2_3"));
+        assertEquals(EMPTY, overlay.merge(URI.create("https://graph.facebook.com/1_4/comments?limit=3"), EMPTY));
+    }
+
+    @Test
+    public void testDefaultWindowsOfTheConnectorAreLeftAsTheyAre()
+    {
+        WriteOverlay overlay = new WriteOverlay(1000);
+        overlay.add("abc", "1_2", "comments", message("1_2_3", "comment"), true);
+        String base = "https://graph.facebook.com/1_2/comments?since=last+week&limit=3";
+        assertEquals(EMPTY, overlay.merge(URI.create(base + "&until=yesterday&offset=2"), EMPTY));
+        assertEquals(EMPTY, overlay.merge(URI.create(base + "&until=yesterday&offset=0"), EMPTY));
+        assertTrue(overlay.merge(URI.create(base + "&until=now&offset=0"), EMPTY).contains("1_2_3"));
+    }
+
+    @Test
+    public void testExpiredObjectsOfConnectionsNeverReadAgainAreForgotten() throws Exception
+    {
+        WriteOverlay overlay = new WriteOverlay(20);
+        overlay.add("abc", "1", "feed", message("1_2", "first"), false);
+        Thread.sleep(30);
+        overlay.add("abc", "2", "feed", message("2_3", "second"), false);
+        assertEquals(1, overlay.size());
+    }
+
+    private static ObjectNode message(String id, String message)
+    {
+        ObjectNode item = WriteOverlay.item(id);
+        item.put("message", message);
+        return item;
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.realtime;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.Socket;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RealtimeUpdatesReceiverTest
+{
+    private static String NOTIFICATION = "{\"object\": \"page\", \"entry\": ["
+        + "{\"id\": \"1\", \"time\": 1342529675, \"changed_fields\": [\"feed\"]},"
+        + "{\"id\": \"2\", \"time\": 1342529676, \"changed_fields\": [\"feed\"]}]}";
+
+    private RealtimeUpdatesReceiver receiver;
+    private List<Map<String, Object>> changes = new ArrayList<Map<String, Object>>();
+
+    @Before
+    public void setup() throws Exception
+    {
+        receiver = new RealtimeUpdatesReceiver("/realtime", "token", "secret", new UpdateListener()
+        {
+            public void onUpdate(String object, Map<String, Object> change) throws Exception
+            {
+                assertEquals("page", object);
+                changes.add(change);
+            }
+        });
+        receiver.start(0, 1);
+    }
+
+    @After
+    public void tearDown()
+    {
+        receiver.stop();
+    }
+
+    @Test
+    public void testVerification() throws Exception
+    {
+        HttpURLConnection connection = open("?hub.mode=subscribe&hub.challenge=42&hub.verify_token=token");
+        assertEquals(200, connection.getResponseCode());
+        assertEquals("42", IOUtils.toString(connection.getInputStream()));
+
+        connection = open("?hub.mode=subscribe&hub.challenge=42&hub.verify_token=other");
+        assertEquals(403, connection.getResponseCode());
+    }
+
+    @Test
+    public void testSignedNotification() throws Exception
+    {
+        String signature = "sha1=" + new SignatureValidator("secret").sign(NOTIFICATION.getBytes());
+        assertEquals(200, post(signature));
+        assertEquals(2, changes.size());
+        assertEquals("2", changes.get(1).get("id"));
+    }
+
+    @Test
+    public void testForgedNotification() throws Exception
+    {
+        String signature = "sha1=" + new SignatureValidator("other").sign(NOTIFICATION.getBytes());
+        assertEquals(403, post(signature));
+        assertTrue(changes.isEmpty());
+    }
+
+    @Test
+    public void testOversizedNotificationIsNotRead() throws Exception
+    {
+        Socket socket = new Socket("localhost", receiver.getPort());
+        try
+        {
+            OutputStream out = socket.getOutputStream();
+            out.write(("POST /realtime HTTP/1.1\r\nHost: localhost\r\nContent-Length: "
+                       + (RealtimeUpdatesReceiver.MAX_BODY + 1) + "\r\n\r\n").getBytes("US-ASCII"));
+            out.flush();
+            String status = new BufferedReader(new InputStreamReader(socket.getInputStream(), "US-ASCII")).readLine();
+            assertTrue(status, status.startsWith("HTTP/1.1 413"));
+        }
+        finally
+        {
+            socket.close();
+        }
+        assertTrue(changes.isEmpty());
+    }
+
+    private int post(String signature) throws Exception
+    {
+        HttpURLConnection connection = open("");
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("X-Hub-Signature", signature);
+        OutputStream out = connection.getOutputStream();
+        out.write(NOTIFICATION.getBytes());
+        out.close();
+        int status = connection.getResponseCode();
+        InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        if (in != null)
+        {
+            in.close();
+        }
+        return status;
+    }
+
+    private HttpURLConnection open(String query) throws Exception
+    {
+        return (HttpURLConnection) new URL("http://localhost:" + receiver.getPort() + "/realtime" + query).openConnection();
+    }
+}
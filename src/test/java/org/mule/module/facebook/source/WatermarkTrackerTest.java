@@ -0,0 +1,62 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.source;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.codehaus.jackson.JsonNode;
+import org.junit.Test;
+import org.mule.module.facebook.paging.ConnectionPage;
+
+public class WatermarkTrackerTest
+{
+    private static String PAGE = "{\"data\": ["
+        + "{\"id\": \"3\", \"created_time\": \"2012-07-17T12:54:36+0000\"},"
+        + "{\"id\": \"2\", \"created_time\": \"2012-07-17T12:54:35+0000\"},"
+        + "{\"id\": \"1\", \"created_time\": \"2012-07-17T12:54:35+0000\"}],"
+        + "\"paging\": {\"next\": \"https://graph.facebook.com/1/feed?until=1342529674\"}}";
+
+    @Test
+    public void testItemsAreSelectedOldestFirstAndOnlyOnce()
+    {
+        WatermarkTracker tracker = new WatermarkTracker();
+        ConnectionPage page = ConnectionPage.parse(PAGE);
+        assertEquals("https://graph.facebook.com/1/feed?until=1342529674", page.getNext());
+
+        List<JsonNode> items = tracker.select("1/feed", page.getItems(), "created_time");
+        assertEquals(3, items.size());
+        assertEquals("3", items.get(2).path("id").getTextValue());
+
+        tracker.advance("1/feed", items.get(0), "created_time");
+        assertEquals(Long.valueOf(1342529675L), tracker.getSince("1/feed"));
+
+        items = tracker.select("1/feed", page.getItems(), "created_time");
+        assertEquals(2, items.size());
+
+        tracker.advance("1/feed", items.get(0), "created_time");
+        tracker.advance("1/feed", items.get(1), "created_time");
+        assertTrue(tracker.select("1/feed", page.getItems(), "created_time").isEmpty());
+        assertEquals(Long.valueOf(1342529676L), tracker.getSince("1/feed"));
+    }
+
+    @Test
+    public void testKeysAreScopedByTokenAndField()
+    {
+        String key = WatermarkTracker.key("token1", "1", "feed", "last week", "created_time");
+        assertEquals(key, WatermarkTracker.key("token1", "1", "feed", "last week", "created_time"));
+        assertFalse(key.equals(WatermarkTracker.key("token2", "1", "feed", "last week", "created_time")));
+        assertFalse(key.equals(WatermarkTracker.key("token1", "1", "feed", "last week", "updated_time")));
+        assertFalse(key.equals(WatermarkTracker.key("token1", "1", "feed", "yesterday", "created_time")));
+        assertFalse(key.contains("token1"));
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.sync;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.codehaus.jackson.JsonNode;
+import org.junit.Test;
+import org.mule.module.facebook.paging.ConnectionPage;
+
+public class SyncStateTest
+{
+    @Test
+    public void testDeltas()
+    {
+        SyncState state = new SyncState();
+        List<SyncState.Change> changes = state.update(items(post("1", "01", "01", "hi"), post("2", "02", "02", "hello"),
+            post("3", "03", "03", "hey")));
+        assertEquals(3, changes.size());
+        for (SyncState.Change change : changes)
+        {
+            assertEquals(DeltaType.INSERT, change.getType());
+        }
+
+        assertTrue(state.update(items(post("1", "01", "01", "hi"), post("2", "02", "02", "hello"),
+            post("3", "03", "03", "hey"))).isEmpty());
+
+        changes = state.update(items(post("1", "01", "01", "hi"), post("3", "03", "04", "hey!"),
+            post("4", "05", "05", "new")));
+        assertEquals(3, changes.size());
+        assertChange(DeltaType.UPDATE, "3", changes.get(0));
+        assertChange(DeltaType.INSERT, "4", changes.get(1));
+        assertChange(DeltaType.DELETE, "2", changes.get(2));
+        assertNull(changes.get(2).getItem());
+        assertEquals(3, state.size());
+    }
+
+    @Test
+    public void testPostsOlderThanTheWindowAreForgottenWithoutBeingDeleted()
+    {
+        SyncState state = new SyncState();
+        state.update(items(post("1", "01", "01", "hi"), post("2", "02", "02", "hello")));
+        assertTrue(state.update(items(post("2", "02", "02", "hello"))).isEmpty());
+        assertEquals(1, state.size());
+        assertTrue(state.update(items()).isEmpty());
+        assertEquals(1, state.size());
+    }
+
+    @Test
+    public void testUpdatingACopyLeavesTheStateUnchanged()
+    {
+        SyncState state = new SyncState();
+        state.update(items(post("1", "01", "01", "hi")));
+        SyncState copy = state.copy();
+        assertEquals(1, copy.update(items(post("1", "01", "01", "hi"), post("2", "02", "02", "hello"))).size());
+        assertEquals(1, state.size());
+        assertEquals(2, copy.size());
+        assertEquals(1, state.update(items(post("1", "01", "01", "hi"), post("2", "02", "02", "hello"))).size());
+    }
+
+    @Test
+    public void testKeysAreScopedByToken()
+    {
+        assertFalse(SyncState.key("token1", "1").equals(SyncState.key("token2", "1")));
+        assertFalse(SyncState.key("token1", "1").contains("token1"));
+    }
+
+    private static void assertChange(DeltaType type, String id, SyncState.Change change)
+    {
+        assertEquals(type, change.getType());
+        assertEquals(id, change.getId());
+    }
+
+    private static String post(String id, String createdDay, String updatedDay, String message)
+    {
+        return "{\"id\":\"" + id + "\",\"message\":\"" + message + "\",\"created_time\":\"2012-05-" + createdDay
+               + "T10:00:00+0000\",\"updated_time\":\"2012-05-" + updatedDay + "T10:00:00+0000\"}";
+    }
+
+    private static List<JsonNode> items(String... posts)
+    {
+        StringBuilder json = new StringBuilder("{\"data\":[");
+        for (int i = 0; i < posts.length; i++)
+        {
+            json.append(i == 0 ? "" : ",").append(posts[i]);
+        }
+        return ConnectionPage.parse(json.append("]}").toString()).getItems();
+    }
+}
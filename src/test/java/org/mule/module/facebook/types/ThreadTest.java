@@ -0,0 +1,65 @@
+/**
+ * Mule Facebook Cloud Connector
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.facebook.types;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Field;
+
+import org.junit.Test;
+
+import com.restfb.DefaultJsonMapper;
+
+public class ThreadTest
+{
+    private static final String JSON = "{\"id\":\"1\",\"unread\":2,\"message\":\"hello\","
+                                       + "\"to\":{\"data\":[{\"id\":\"42\",\"name\":\"Jane\"}]},"
+                                       + "\"comments\":{\"data\":[{\"id\":\"1_1\",\"message\":\"hi\"}]}}";
+
+    @Test
+    public void testNestedCollectionsAreDecodedOnFirstAccess() throws Exception
+    {
+        OutboxThread thread = new DefaultJsonMapper().toJavaObject(JSON, OutboxThread.class);
+        assertEquals(Integer.valueOf(2), thread.getUnread());
+        assertEquals("hello", thread.getMessage());
+        assertNull(decoded(thread, "to"));
+        assertNull(decoded(thread, "comments"));
+
+        assertEquals("Jane", thread.getTo().getData().get(0).getName());
+        assertNotNull(decoded(thread, "to"));
+        assertNull(decoded(thread, "comments"));
+        assertNotNull(thread.getComments());
+    }
+
+    @Test
+    public void testSerialization() throws Exception
+    {
+        Thread thread = new DefaultJsonMapper().toJavaObject(JSON, Thread.class);
+        thread.getTo();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(thread);
+        out.close();
+        Thread read = (Thread) new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+        assertEquals("42", read.getTo().getData().get(0).getId());
+    }
+
+    private static Object decoded(Thread thread, String name) throws Exception
+    {
+        Field field = Thread.class.getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(thread);
+    }
+}